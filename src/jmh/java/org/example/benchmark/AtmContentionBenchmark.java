@@ -0,0 +1,146 @@
+package org.example.benchmark;
+
+import org.example.atm.ATM;
+import org.example.atm.DispenseResult;
+import org.example.atm.NoteInventory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link ATM#withdraw(long)} with 1, 4, 16 and 64 threads withdrawing from the same ATM.
+ * <p>
+ * {@code withdraw} prints to {@code System.out}, which is redirected to a discarding stream during the run. The
+ * {@code inventory*} benchmarks measure the compare-and-set commit of one shared {@link NoteInventory} without the
+ * printing, and the {@code ownInventory*} benchmarks give every thread its own inventory, as the machines of an
+ * {@code AtmFleet} have, for comparison with the shared case.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AtmContentionBenchmark {
+
+    private static final int[] AMOUNTS = {100, 300, 700, 800, 1500};
+
+    @Param({"SMALL", "LARGE"})
+    public InventorySize size;
+
+    private ATM atm;
+    private PrintStream originalOut;
+
+    @State(Scope.Thread)
+    public static class Amounts {
+        private final DispenseResult result = new DispenseResult();
+        private NoteInventory own;
+        private int next;
+
+        int nextAmount() {
+            int amount = AMOUNTS[next];
+            next = next + 1 == AMOUNTS.length ? 0 : next + 1;
+            return amount;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        atm = new ATM(size.newInventory());
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    private DispenseResult withdrawFrom(NoteInventory inventory, Amounts amounts) {
+        int amount = amounts.nextAmount();
+        size.topUp(inventory, amount);
+        return inventory.withdraw(amount, amounts.result);
+    }
+
+    private DispenseResult withdrawFromOwn(Amounts amounts) {
+        if (amounts.own == null) {
+            amounts.own = size.newInventory();
+        }
+        return withdrawFrom(amounts.own, amounts);
+    }
+
+    private void withdraw(Amounts amounts) {
+        int amount = amounts.nextAmount();
+        size.topUp(atm.getInventory(), amount);
+        atm.withdraw(amount);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void withdraw1Thread(Amounts amounts) {
+        withdraw(amounts);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void withdraw4Threads(Amounts amounts) {
+        withdraw(amounts);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void withdraw16Threads(Amounts amounts) {
+        withdraw(amounts);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void withdraw64Threads(Amounts amounts) {
+        withdraw(amounts);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public DispenseResult inventory1Thread(Amounts amounts) {
+        return withdrawFrom(atm.getInventory(), amounts);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public DispenseResult inventory4Threads(Amounts amounts) {
+        return withdrawFrom(atm.getInventory(), amounts);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public DispenseResult inventory16Threads(Amounts amounts) {
+        return withdrawFrom(atm.getInventory(), amounts);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public DispenseResult ownInventory1Thread(Amounts amounts) {
+        return withdrawFromOwn(amounts);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public DispenseResult ownInventory16Threads(Amounts amounts) {
+        return withdrawFromOwn(amounts);
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.benchmark;
+
+import org.example.atm.ATM;
+import org.example.constant.ProjectConstants;
+import org.example.event.BufferFullPolicy;
+import org.example.event.ConsoleEventHandler;
+import org.example.event.DispenseEventSink;
+import org.example.event.RingBufferEventSink;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compares withdrawal throughput when the dispensed notes are printed on the withdrawing thread with handing them to
+ * a {@link RingBufferEventSink} whose consumer thread does the printing.
+ * <p>
+ * Four threads withdraw from one ATM while holding its lock, as callers that serialize on {@link ATM#getLock()} do.
+ * {@code System.out} is redirected to an auto-flushing stream on {@code /dev/null} where available, so every line
+ * still costs a write like it does on a console.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispenseEventSinkBenchmark {
+
+    private static final int[] AMOUNTS = {100, 300, 700, 800, 1500};
+
+    public enum SinkType {
+        PRINT, RING_BUFFER_BLOCK, RING_BUFFER_DROP
+    }
+
+    @Param({"PRINT", "RING_BUFFER_BLOCK", "RING_BUFFER_DROP"})
+    public SinkType sink;
+
+    private ATM atm;
+    private ReentrantLock lock;
+    private RingBufferEventSink ringBuffer;
+    private PrintStream originalOut;
+
+    @State(Scope.Thread)
+    public static class Amounts {
+        private int next;
+
+        int nextAmount() {
+            int amount = AMOUNTS[next];
+            next = next + 1 == AMOUNTS.length ? 0 : next + 1;
+            return amount;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws FileNotFoundException {
+        originalOut = System.out;
+        File devNull = new File("/dev/null");
+        OutputStream out = devNull.exists() ? new FileOutputStream(devNull) : OutputStream.nullOutputStream();
+        System.setOut(new PrintStream(out, true));
+
+        DispenseEventSink events;
+        if (sink == SinkType.PRINT) {
+            events = DispenseEventSink.console();
+        } else {
+            BufferFullPolicy policy = sink == SinkType.RING_BUFFER_BLOCK ? BufferFullPolicy.BLOCK : BufferFullPolicy.DROP;
+            ringBuffer = RingBufferEventSink.start(ProjectConstants.EVENT_BUFFER_CAPACITY, policy, new ConsoleEventHandler());
+            events = ringBuffer;
+        }
+        atm = new ATM(InventorySize.LARGE.newInventory(), events);
+        lock = atm.getLock();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (ringBuffer != null) {
+            ringBuffer.close();
+        }
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void withdrawUnderLock(Amounts amounts) {
+        int amount = amounts.nextAmount();
+        lock.lock();
+        try {
+            InventorySize.LARGE.topUp(atm.getInventory(), amount);
+            atm.withdraw(amount);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
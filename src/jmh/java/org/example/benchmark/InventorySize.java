@@ -0,0 +1,49 @@
+package org.example.benchmark;
+
+import org.example.atm.Denomination;
+import org.example.atm.NoteInventory;
+import org.example.constant.ProjectConstants;
+
+/**
+ * The inventory sizes the benchmarks run against: the stock of a freshly started ATM and a vault-sized stock.
+ */
+public enum InventorySize {
+    SMALL(ProjectConstants.INITIAL_HUNDRED_NOTES, ProjectConstants.INITIAL_TWO_HUNDRED_NOTES, ProjectConstants.INITIAL_FIVE_HUNDRED_NOTES),
+    LARGE(1_000_000, 1_000_000, 1_000_000);
+
+    private final int[] counts;
+
+    InventorySize(int hundreds, int twoHundreds, int fiveHundreds) {
+        counts = new int[Denomination.values().length];
+        counts[Denomination.HUNDRED.ordinal()] = hundreds;
+        counts[Denomination.TWO_HUNDRED.ordinal()] = twoHundreds;
+        counts[Denomination.FIVE_HUNDRED.ordinal()] = fiveHundreds;
+    }
+
+    public int[] getCounts() {
+        return counts.clone();
+    }
+
+    public NoteInventory newInventory() {
+        return new NoteInventory(counts);
+    }
+
+    /**
+     * Refills an inventory back to this size once it can no longer pay an amount, so benchmarks never measure an
+     * empty machine. The check is a single table lookup; the refill itself is rare for large inventories.
+     *
+     * @param inventory the inventory to top up
+     * @param amount    the amount about to be withdrawn
+     */
+    public void topUp(NoteInventory inventory, int amount) {
+        if (inventory.canDispense(amount)) {
+            return;
+        }
+        for (Denomination denomination : Denomination.values()) {
+            int missing = counts[denomination.ordinal()] - inventory.getCount(denomination);
+            if (missing > 0) {
+                inventory.refill(denomination, missing);
+            }
+        }
+    }
+}
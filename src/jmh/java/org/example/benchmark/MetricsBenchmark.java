@@ -0,0 +1,70 @@
+package org.example.benchmark;
+
+import org.example.atm.NoteInventory;
+import org.example.atm.WithdrawalStatus;
+import org.example.metrics.AtmMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of recording a withdrawal in {@link AtmMetrics}, alone and with threads recording concurrently,
+ * next to the cost of the withdrawal itself with and without recording.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private NoteInventory plainInventory;
+    private NoteInventory inventory;
+    private AtmMetrics metrics;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        plainInventory = InventorySize.LARGE.newInventory();
+        inventory = InventorySize.LARGE.newInventory();
+        metrics = new AtmMetrics(inventory);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void record1Thread() {
+        metrics.recordWithdrawal(WithdrawalStatus.SUCCESS, 1_234);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void record4Threads() {
+        metrics.recordWithdrawal(WithdrawalStatus.SUCCESS, 1_234);
+    }
+
+    @Benchmark
+    public int[] withdrawWithoutMetrics() throws Exception {
+        InventorySize.LARGE.topUp(plainInventory, 800);
+        return plainInventory.withdraw(800);
+    }
+
+    @Benchmark
+    public int[] withdrawWithMetrics() throws Exception {
+        long start = System.nanoTime();
+        InventorySize.LARGE.topUp(inventory, 800);
+        int[] dispensed = inventory.withdraw(800);
+        metrics.recordWithdrawal(WithdrawalStatus.SUCCESS, System.nanoTime() - start);
+        return dispensed;
+    }
+}
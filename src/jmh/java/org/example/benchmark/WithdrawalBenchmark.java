@@ -0,0 +1,104 @@
+package org.example.benchmark;
+
+import org.example.atm.DenominationRegistry;
+import org.example.atm.DispenseResult;
+import org.example.atm.ExactChangeSolver;
+import org.example.atm.NoteInventory;
+import org.example.atm.Withdrawal;
+import org.example.constant.ProjectConstants;
+import org.example.exception.AmountNegativeException;
+import org.example.exception.DenominationUnavailableException;
+import org.example.exception.InsufficientFundsException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded benchmarks of the withdrawal hot path: a full {@link Withdrawal#execute()}, the allocation-free
+ * withdrawal into a reused {@link DispenseResult}, the dispense computation on its own, and the total balance
+ * calculation.
+ * <p>
+ * {@code execute()} prints to {@code System.out}, which is redirected to a discarding stream during the run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class WithdrawalBenchmark {
+
+    private static final int[] AMOUNTS = {100, 300, 700, 800, 1500};
+
+    @Param({"SMALL", "LARGE"})
+    public InventorySize size;
+
+    private NoteInventory inventory;
+    private ExactChangeSolver solver;
+    private int[] counts;
+    private long[] table;
+    private int next;
+    private final DispenseResult result = new DispenseResult();
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        inventory = size.newInventory();
+        int[] values = DenominationRegistry.standard().getValues();
+        solver = new ExactChangeSolver(values, ExactChangeSolver.tableLimit(values, ProjectConstants.EXACT_CHANGE_TABLE_UNITS,
+                ProjectConstants.MAX_EXACT_CHANGE_TABLE_SLOTS));
+        counts = size.getCounts();
+        table = solver.newTable(counts);
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    private int nextAmount() {
+        int amount = AMOUNTS[next];
+        next = next + 1 == AMOUNTS.length ? 0 : next + 1;
+        return amount;
+    }
+
+    @Benchmark
+    public void execute() throws InsufficientFundsException, DenominationUnavailableException, AmountNegativeException {
+        int amount = nextAmount();
+        size.topUp(inventory, amount);
+        new Withdrawal(amount, inventory).execute();
+    }
+
+    @Benchmark
+    public DispenseResult withdrawIntoResult() {
+        int amount = nextAmount();
+        size.topUp(inventory, amount);
+        return inventory.withdraw(amount, result);
+    }
+
+    @Benchmark
+    public int[] dispenseComputation() {
+        return solver.plan(table, counts, nextAmount());
+    }
+
+    @Benchmark
+    public long calculateTotalBalance() {
+        return inventory.getTotalBalance();
+    }
+}
@@ -0,0 +1,107 @@
+package org.example.benchmark;
+
+import org.example.atm.ATM;
+import org.example.atm.DispenseResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compares 16 threads serializing their withdrawals on {@link ATM#getLock()} with the same threads handing them to the
+ * ATM's single writer through {@link ATM#withdrawAsync(long)}.
+ * <p>
+ * {@code lockedWithdraw} takes the ATM lock around each withdrawal, the way callers that need a serialized ATM do
+ * today. {@code pipelinedWithdraw} submits one withdrawal and waits for it, and {@code pipelinedWindow} keeps
+ * {@link #WINDOW} withdrawals in flight per thread, which lets the writer fill its batches.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WithdrawalPipelineBenchmark {
+
+    private static final int[] AMOUNTS = {100, 300, 700, 800, 1500};
+    private static final int WINDOW = 16;
+
+    private ATM atm;
+    private ReentrantLock lock;
+
+    @State(Scope.Thread)
+    public static class Caller {
+        private final DispenseResult result = new DispenseResult();
+        @SuppressWarnings("unchecked")
+        private final CompletableFuture<DispenseResult>[] window = new CompletableFuture[WINDOW];
+        private int next;
+
+        int nextAmount() {
+            int amount = AMOUNTS[next];
+            next = next + 1 == AMOUNTS.length ? 0 : next + 1;
+            return amount;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        atm = new ATM(InventorySize.LARGE.newInventory());
+        lock = atm.getLock();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        atm.closePipeline();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public DispenseResult lockedWithdraw(Caller caller) {
+        int amount = caller.nextAmount();
+        InventorySize.LARGE.topUp(atm.getInventory(), amount);
+        lock.lock();
+        try {
+            return atm.withdraw(amount, caller.result);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Benchmark
+    @Threads(16)
+    public DispenseResult pipelinedWithdraw(Caller caller) {
+        int amount = caller.nextAmount();
+        InventorySize.LARGE.topUp(atm.getInventory(), amount);
+        return atm.withdrawAsync(amount).join();
+    }
+
+    @Benchmark
+    @Threads(16)
+    @OperationsPerInvocation(WINDOW)
+    public DispenseResult pipelinedWindow(Caller caller) {
+        for (int i = 0; i < WINDOW; i++) {
+            int amount = caller.nextAmount();
+            InventorySize.LARGE.topUp(atm.getInventory(), amount);
+            caller.window[i] = atm.withdrawAsync(amount);
+        }
+        DispenseResult last = null;
+        for (int i = 0; i < WINDOW; i++) {
+            last = caller.window[i].join();
+        }
+        return last;
+    }
+}
@@ -1,17 +1,38 @@
 package org.example;
 
 import org.example.atm.ATM;
+import org.example.atm.AtmFleet;
+import org.example.atm.Denomination;
+import org.example.atm.DenominationRegistry;
 import org.example.atm.Withdrawal;
+import org.example.constant.ProjectConstants;
 import org.example.exception.AmountNegativeException;
 import org.example.exception.DenominationUnavailableException;
 import org.example.exception.InsufficientFundsException;
+import org.example.journal.InventoryJournal;
+import org.example.load.AmountDistribution;
+import org.example.load.SyntheticWorkload;
+import org.example.load.WorkloadDriver;
+import org.example.load.WorkloadReport;
+import org.example.server.AtmServer;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.Scanner;
 
 /**
  * The Main class serves as the entry point for the ATM application.
  * It initializes the ATM object and starts a loop to continuously prompt the user for input.
  * Users can choose to withdraw funds or exit the application.
+ * <p>
+ * Started with {@code --server [port] [journal-directory]}, the application instead serves the ATM over HTTP (see
+ * {@link AtmServer}). With a journal directory the note counts are recovered from the journal on startup and every
+ * change is journaled before it takes effect (see {@link InventoryJournal}).
+ * For capacity planning, {@code --replay <trace> [threads] [atms]} replays a recorded trace and
+ * {@code --synthetic [operations] [threads] [atms] [rate] [distribution]} generates load, both against a fleet of
+ * ATMs (see {@link WorkloadDriver}), and print a throughput and latency report.
  */
 public class Main {
 
@@ -20,9 +41,26 @@ public class Main {
      * It initializes the ATM object and starts a loop to continuously prompt the user for input.
      * Users can choose to withdraw funds or exit the application.
      *
-     * @param args The command-line arguments (not used in this application).
+     * @param args The command-line arguments; {@code --server [port] [journal-directory]} starts the HTTP server,
+     *             {@code --replay} and {@code --synthetic} run a workload.
      */
-    public static void main(String[] args) throws DenominationUnavailableException, InsufficientFundsException, AmountNegativeException {
+    public static void main(String[] args) throws DenominationUnavailableException, InsufficientFundsException, AmountNegativeException, IOException, JMException {
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : ProjectConstants.SERVER_PORT;
+            InventoryJournal journal = args.length > 2 ? openJournal(args[2]) : null;
+            ATM atm = journal != null ? new ATM(journal.getInventory()) : new ATM();
+            AtmServer server = new AtmServer(atm, port, ProjectConstants.SERVER_BACKLOG, ProjectConstants.SERVER_MAX_IN_FLIGHT_REQUESTS,
+                    ProjectConstants.SERVER_PERMIT_WAIT_MILLIS);
+            atm.getMetrics().registerMBean("default");
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> stopServer(server, journal)));
+            server.start();
+            System.out.println("ATM server listening on port " + server.getPort());
+            return;
+        }
+        if (args.length > 0 && (args[0].equals("--replay") || args[0].equals("--synthetic"))) {
+            runWorkload(args);
+            return;
+        }
         ATM atm = new ATM();
         Scanner scanner = new Scanner(System.in);
 
@@ -34,7 +72,7 @@ public class Main {
             switch (choice) {
                 case 1:
                     int withdrawAmount = getPositiveInput(scanner, "Enter amount to withdraw (positive integer):");
-                    Withdrawal withdrawal = new Withdrawal(withdrawAmount, atm.getDenominations());
+                    Withdrawal withdrawal = new Withdrawal(withdrawAmount, atm.getInventory());
                     withdrawal.execute();
                     break;
                 case 2:
@@ -46,6 +84,60 @@ public class Main {
         }
     }
 
+    // Runs a trace replay or synthetic workload against a fleet and prints the report
+    private static void runWorkload(String[] args) throws IOException {
+        boolean replay = args[0].equals("--replay");
+        int first = replay ? 2 : 1;
+        if (replay && args.length < 2) {
+            throw new IllegalArgumentException("Usage: --replay <trace> [threads] [atms]");
+        }
+        long operations = replay ? 0 : longArgument(args, 1, ProjectConstants.LOAD_OPERATIONS);
+        int threads = (int) longArgument(args, first, Runtime.getRuntime().availableProcessors());
+        int atms = (int) longArgument(args, first + 1, ProjectConstants.LOAD_ATMS);
+
+        int[] counts = new int[Denomination.values().length];
+        Arrays.fill(counts, ProjectConstants.LOAD_NOTES_PER_DENOMINATION);
+        AtmFleet fleet = WorkloadDriver.newFleet(atms, counts);
+        long replenishBelow = DenominationRegistry.standard().totalValue(counts) / 10;
+        WorkloadDriver driver = new WorkloadDriver(fleet, counts, replenishBelow);
+
+        WorkloadReport report;
+        if (replay) {
+            report = driver.replay(Paths.get(args[1]), threads);
+        } else {
+            long rate = longArgument(args, 4, 0);
+            String distribution = args.length > 5 ? args[5] : ProjectConstants.LOAD_AMOUNT_DISTRIBUTION;
+            report = driver.run(new SyntheticWorkload(operations, threads, rate, AmountDistribution.parse(distribution),
+                    System.nanoTime()));
+        }
+        System.out.print(report.format());
+    }
+
+    // Recovers the ATM's notes from a journal directory, starting with the initial notes if it holds no journal yet
+    private static InventoryJournal openJournal(String directory) throws IOException {
+        int[] initialCounts = new int[Denomination.values().length];
+        initialCounts[Denomination.HUNDRED.ordinal()] = ProjectConstants.INITIAL_HUNDRED_NOTES;
+        initialCounts[Denomination.TWO_HUNDRED.ordinal()] = ProjectConstants.INITIAL_TWO_HUNDRED_NOTES;
+        initialCounts[Denomination.FIVE_HUNDRED.ordinal()] = ProjectConstants.INITIAL_FIVE_HUNDRED_NOTES;
+        return InventoryJournal.open(Paths.get(directory), initialCounts, ProjectConstants.JOURNAL_SNAPSHOT_INTERVAL);
+    }
+
+    // Lets requests in progress finish, then closes the journal so its last records are on disk
+    private static void stopServer(AtmServer server, InventoryJournal journal) {
+        server.stop(1);
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close the inventory journal: " + e.getMessage());
+            }
+        }
+    }
+
+    private static long longArgument(String[] args, int index, long defaultValue) {
+        return args.length > index ? Long.parseLong(args[index]) : defaultValue;
+    }
+
     // Helper method to get positive input from the user
     private static int getPositiveInput(Scanner scanner, String prompt) {
         int input;
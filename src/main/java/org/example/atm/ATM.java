@@ -1,11 +1,17 @@
 package org.example.atm;
 
 import org.example.constant.ProjectConstants;
+import org.example.event.DispenseEventSink;
 import org.example.exception.AmountNegativeException;
 import org.example.exception.DenominationUnavailableException;
+import org.example.exception.HoldExpiredException;
 import org.example.exception.InsufficientFundsException;
+import org.example.exception.LimitExceededException;
+import org.example.limit.CardLimitTracker;
+import org.example.metrics.AtmMetrics;
 
-import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -14,50 +20,350 @@ import java.util.concurrent.locks.ReentrantLock;
 /**
  * Represents an Automated Teller Machine (ATM) that manages the dispensing of money.
  * <p>
- * The ATM class provides functionality for withdrawing money from the ATM. It maintains the counts of different
- * denominations of currency available in the ATM and ensures thread-safe access to withdrawal operations.
+ * The ATM class provides functionality for withdrawing money from the ATM. It keeps the counts of different
+ * denominations of currency in a {@link NoteInventory}, which makes each withdrawal atomic without a global lock.
  */
 public class ATM {
 
 
-    private final ConcurrentHashMap<Denomination, Integer> denominations;
+    private final NoteInventory inventory;
     private final ReentrantLock lock;
+    private final AtmMetrics metrics;
+    private final DispenseEventSink events;
+    private final DispenseEventSink outcomes;
+    private final HoldManager holds;
+    private final CardLimitTracker limits;
+    private volatile WithdrawalPipeline pipeline;
 
     public ATM() {
-        this.denominations = new ConcurrentHashMap<>();
-        initializeDenominations();
+        this(new NoteInventory(initialDenominations()));
+    }
+
+    /**
+     * Constructs an ATM that dispenses from the given inventory. The exception-based withdrawals print their outcome;
+     * the result-object, batch and asynchronous ones publish it nowhere.
+     *
+     * @param inventory the note inventory of the ATM
+     */
+    public ATM(NoteInventory inventory) {
+        this(inventory, DispenseEventSink.console(), DispenseEventSink.none(),
+                CardLimitTracker.shared(inventory.getRegistry().getCurrency()));
+    }
+
+    /**
+     * Constructs an ATM that dispenses from the given inventory and publishes the outcome of every withdrawal, whichever
+     * method makes it, to an event sink instead of printing it.
+     *
+     * @param inventory the note inventory of the ATM
+     * @param events    the sink that receives the outcome of each withdrawal
+     */
+    public ATM(NoteInventory inventory, DispenseEventSink events) {
+        this(inventory, events, CardLimitTracker.shared(inventory.getRegistry().getCurrency()));
+    }
+
+    /**
+     * Constructs an ATM that checks card withdrawals against the given limit tracker instead of the one shared by
+     * all ATMs of this JVM that dispense the same currency.
+     *
+     * @param inventory the note inventory of the ATM
+     * @param events    the sink that receives the outcome of each withdrawal
+     * @param limits    the tracker of the per-card limits
+     */
+    public ATM(NoteInventory inventory, DispenseEventSink events, CardLimitTracker limits) {
+        this(inventory, events, events, limits);
+    }
+
+    private ATM(NoteInventory inventory, DispenseEventSink events, DispenseEventSink outcomes, CardLimitTracker limits) {
+        this.inventory = inventory;
         this.lock = new ReentrantLock();
+        this.metrics = new AtmMetrics(inventory);
+        this.events = events;
+        this.outcomes = outcomes;
+        this.holds = new HoldManager(inventory);
+        this.limits = limits;
+    }
+
+    private static int[] initialDenominations() {
+        int[] counts = new int[Denomination.values().length];
+        counts[Denomination.HUNDRED.ordinal()] = ProjectConstants.INITIAL_HUNDRED_NOTES;
+        counts[Denomination.TWO_HUNDRED.ordinal()] = ProjectConstants.INITIAL_TWO_HUNDRED_NOTES;
+        counts[Denomination.FIVE_HUNDRED.ordinal()] = ProjectConstants.INITIAL_FIVE_HUNDRED_NOTES;
+        return counts;
+    }
+
+    public NoteInventory getInventory() {
+        return inventory;
+    }
+
+    public AtmMetrics getMetrics() {
+        return metrics;
+    }
+
+    public DispenseEventSink getEventSink() {
+        return events;
     }
 
-    private void initializeDenominations() {
-        this.denominations.put(Denomination.HUNDRED, ProjectConstants.INITIAL_HUNDRED_NOTES);
-        this.denominations.put(Denomination.TWO_HUNDRED, ProjectConstants.INITIAL_TWO_HUNDRED_NOTES);
-        this.denominations.put(Denomination.FIVE_HUNDRED, ProjectConstants.INITIAL_FIVE_HUNDRED_NOTES);
+    public HoldManager getHolds() {
+        return holds;
     }
 
+    public CardLimitTracker getCardLimits() {
+        return limits;
+    }
+
+    /**
+     * Returns an immutable, versioned snapshot of the ATM's notes. Monitoring and reconciliation should read this
+     * instead of {@link #getDenominations()}: it is one volatile read, never takes {@link #getLock()} and always shows
+     * a state between two withdrawals.
+     *
+     * @return the current inventory snapshot
+     */
+    public InventorySnapshot getSnapshot() {
+        return inventory.snapshot();
+    }
+
+    /**
+     * Returns a copy of the current denomination counts. Changes to the returned map do not affect the ATM.
+     *
+     * @return the note count per denomination
+     */
     public ConcurrentHashMap<Denomination, Integer> getDenominations() {
-        return denominations;
+        return inventory.toMap();
     }
 
+    /**
+     * Returns the lock of this ATM. Withdrawals no longer need it; it is kept for callers that want to
+     * serialize their own multi-step operations on the ATM.
+     *
+     * @return the ATM lock
+     */
     public ReentrantLock getLock() {
         return lock;
     }
 
+    /**
+     * Deposits counted notes into the ATM in one atomic step, so a recycler can dispense them again straight away.
+     * Deposits never block withdrawals, and withdrawals waiting for notes see them as soon as they are committed.
+     *
+     * @param notes the notes to add, indexed by the dense indices of the inventory's registry
+     * @return the version of the inventory state that holds the notes
+     */
+    public long deposit(int[] notes) {
+        return inventory.deposit(notes);
+    }
+
     /**
      * Withdraws the specified amount from the ATM.
      *
      * @param amount the amount to withdraw from the ATM
      *
      */
-    public void withdraw(int amount)  {
-        lock.lock();
+    public void withdraw(long amount)  {
         try {
-            Withdrawal withdrawal = new Withdrawal(amount, denominations);
+            Withdrawal withdrawal = new Withdrawal(amount, inventory, metrics, events);
             withdrawal.execute();
         } catch (AmountNegativeException | InsufficientFundsException | DenominationUnavailableException e) {
             System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Withdraws the specified amount with a card, enforcing the card's transaction and daily limits.
+     *
+     * @param cardId the number of the card the withdrawal is made with
+     * @param amount the amount to withdraw from the ATM
+     */
+    public void withdraw(long cardId, long amount) {
+        try {
+            Withdrawal withdrawal = new Withdrawal(amount, inventory, metrics, events);
+            withdrawal.execute(cardId, limits);
+        } catch (AmountNegativeException | InsufficientFundsException | DenominationUnavailableException | LimitExceededException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Withdraws the specified amount with a card and writes the outcome into a result object, enforcing the card's
+     * limits. The amount is reserved against the limits first and given back if the ATM cannot dispense it.
+     *
+     * @param cardId the number of the card the withdrawal is made with
+     * @param amount the amount to withdraw from the ATM
+     * @param result the result to overwrite
+     * @return the given result, with {@link WithdrawalStatus#LIMIT_EXCEEDED} if the card's limits do not allow it
+     */
+    public DispenseResult withdraw(long cardId, long amount, DispenseResult result) {
+        long start = System.nanoTime();
+        if (!limits.tryAcquire(cardId, amount)) {
+            result.start(amount, inventory.getRegistry().size());
+            result.finish(WithdrawalStatus.LIMIT_EXCEEDED);
+        } else {
+            inventory.withdraw(amount, result);
+            if (!result.isSuccessful()) {
+                limits.release(cardId, amount);
+            }
+        }
+        metrics.recordWithdrawal(result.getStatus(), System.nanoTime() - start);
+        outcomes.publish(inventory.getRegistry(), amount, result.getStatus(), result.notes());
+        return result;
+    }
+
+    /**
+     * Withdraws the specified amount from the ATM and reports the outcome instead of printing it.
+     *
+     * @param amount the amount to withdraw from the ATM
+     * @return the status of the withdrawal and the notes dispensed
+     */
+    public WithdrawalResult tryWithdraw(long amount) {
+        return withdraw(amount, DispenseResult.internal()).toWithdrawalResult();
+    }
+
+    /**
+     * Withdraws the specified amount from the ATM and writes the outcome into a result object.
+     * <p>
+     * This is the result-object variant of {@link #withdraw(long)}: it neither prints nor throws, and the result
+     * can be reused across calls, for example the one returned by {@link DispenseResult#forCurrentThread()}. The
+     * withdrawal itself still allocates the new inventory state it publishes. The outcome goes to the ATM's event
+     * sink like that of every other withdrawal, unless the ATM was built without one.
+     *
+     * @param amount the amount to withdraw from the ATM
+     * @param result the result to overwrite
+     * @return the given result
+     */
+    public DispenseResult withdraw(long amount, DispenseResult result) {
+        long start = System.nanoTime();
+        inventory.withdraw(amount, result);
+        metrics.recordWithdrawal(result.getStatus(), System.nanoTime() - start);
+        outcomes.publish(inventory.getRegistry(), amount, result.getStatus(), result.notes());
+        return result;
+    }
+
+    /**
+     * Queues a withdrawal for this ATM's writer thread instead of applying it on the calling thread.
+     * <p>
+     * The first call starts a {@link WithdrawalPipeline}; from then on every asynchronous withdrawal is applied by its
+     * single writer in submission order, in batches, so callers never hand a lock or a compare-and-set back and forth.
+     * A pipeline whose writer thread has failed is replaced by a new one.
+     * Like {@link #withdraw(long, DispenseResult)} it neither prints nor throws for routine outcomes.
+     *
+     * @param amount the amount to withdraw from the ATM
+     * @return a future completed on the writer thread with the status of the withdrawal and the notes dispensed
+     */
+    public CompletableFuture<DispenseResult> withdrawAsync(long amount) {
+        while (true) {
+            WithdrawalPipeline current = pipeline;
+            if (current == null || current.isClosed()) {
+                lock.lock();
+                try {
+                    current = pipeline;
+                    if (current == null || current.isClosed()) {
+                        current = WithdrawalPipeline.start(inventory, metrics, outcomes);
+                        pipeline = current;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            try {
+                return current.submit(amount);
+            } catch (IllegalStateException e) {
+                // The pipeline was closed, or its writer failed, after it was read; start over with a new one.
+            }
+        }
+    }
+
+    /**
+     * Stops the writer thread started by {@link #withdrawAsync(long)} after it has applied every queued withdrawal. A
+     * later asynchronous withdrawal starts a new writer.
+     */
+    public void closePipeline() {
+        lock.lock();
+        try {
+            if (pipeline != null) {
+                pipeline.close();
+                pipeline = null;
+            }
         } finally {
             lock.unlock();
         }
     }
+
+    /**
+     * Reserves the notes for an amount while the dispenser works, without holding any lock.
+     * <p>
+     * The notes leave the available inventory at once, so other withdrawals only see what is left. Finish the
+     * dispense with {@link #commit(NoteHold)} or undo it with {@link #release(NoteHold)}; a hold that gets neither
+     * within {@link ProjectConstants#HOLD_TIMEOUT_MILLIS} is released automatically.
+     *
+     * @param amount the amount to reserve
+     * @return the pending hold
+     * @throws AmountNegativeException          if the amount is not positive
+     * @throws InsufficientFundsException       if the ATM holds less than the amount
+     * @throws DenominationUnavailableException if the ATM cannot make the amount from its notes
+     */
+    public NoteHold reserve(long amount) throws AmountNegativeException, InsufficientFundsException, DenominationUnavailableException {
+        long start = System.nanoTime();
+        DispenseResult result = DispenseResult.internal();
+        NoteHold hold = holds.reserve(amount, result);
+        metrics.recordWithdrawal(result.getStatus(), System.nanoTime() - start);
+        result.throwIfFailed();
+        return hold;
+    }
+
+    /**
+     * Makes the dispense of a hold final and publishes it like a completed withdrawal. Committing a hold twice has no
+     * further effect.
+     *
+     * @param hold the hold whose notes were dispensed
+     * @throws HoldExpiredException if the hold expired or was released before the commit
+     */
+    public void commit(NoteHold hold) throws HoldExpiredException {
+        if (holds.commit(hold)) {
+            events.publish(inventory.getRegistry(), hold.getAmount(), WithdrawalStatus.SUCCESS, hold.notes());
+        }
+    }
+
+    /**
+     * Abandons the dispense of a hold and returns its notes to the ATM.
+     *
+     * @param hold the hold to release
+     * @return {@code true} if the notes went back; {@code false} if the hold had already ended
+     */
+    public boolean release(NoteHold hold) {
+        return holds.release(hold);
+    }
+
+    /**
+     * Withdraws a batch of amounts from the ATM.
+     * <p>
+     * The whole batch is planned against one snapshot of the inventory and committed at once, which gives the same
+     * results as calling {@link #withdraw(long)} for each amount in order without paying for a commit per amount.
+     * Each outcome is published to the ATM's event sink in order once the batch has committed.
+     *
+     * @param amounts the amounts to withdraw
+     * @return one result per amount, in the same order
+     */
+    public WithdrawalResult[] withdrawAll(long[] amounts) {
+        WithdrawalResult[] results = inventory.withdrawAll(amounts);
+        DenominationRegistry registry = inventory.getRegistry();
+        for (WithdrawalResult result : results) {
+            metrics.recordOutcome(result.getStatus());
+            outcomes.publish(registry, result.getAmount(), result.getStatus(), result.getDispensedNotes());
+        }
+        return results;
+    }
+
+    /**
+     * Withdraws a batch of requests from the ATM.
+     *
+     * @param requests the withdrawal requests
+     * @return one result per request, in the same order
+     * @see #withdrawAll(long[])
+     */
+    public WithdrawalResult[] withdrawAll(List<WithdrawalRequest> requests) {
+        long[] amounts = new long[requests.size()];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = requests.get(i).getAmount();
+        }
+        return withdrawAll(amounts);
+    }
 }
@@ -0,0 +1,137 @@
+package org.example.atm;
+
+import org.example.exception.AmountNegativeException;
+import org.example.exception.DenominationUnavailableException;
+import org.example.exception.InsufficientFundsException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A registry of many ATMs running in one JVM.
+ * <p>
+ * Each registered ATM gets a dense integer id. The fleet stores a reference to each ATM in fixed-size shards of
+ * 1,024 slots that are created on demand, so a lookup by id is two array reads and never takes a lock. The ATMs
+ * themselves, with their inventories, stay ordinary objects on the heap. Every ATM keeps its own {@link NoteInventory}, which means
+ * withdrawals on different machines never touch shared state. Fleet-wide queries read the published inventory state
+ * of each machine and therefore never block or slow down withdrawals in progress.
+ */
+public class AtmFleet {
+
+    private static final int SHARD_BITS = 10;
+    private static final int SHARD_SIZE = 1 << SHARD_BITS;
+    private static final int SHARD_MASK = SHARD_SIZE - 1;
+    private static final int MAX_SHARDS = 1 << 16;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<ATM>> shards;
+    private final AtomicInteger nextId;
+
+    /**
+     * Constructs an empty fleet.
+     */
+    public AtmFleet() {
+        this.shards = new AtomicReferenceArray<>(MAX_SHARDS);
+        this.nextId = new AtomicInteger();
+    }
+
+    /**
+     * Registers an ATM with the fleet.
+     *
+     * @param atm the ATM to register
+     * @return the id assigned to the ATM
+     */
+    public int register(ATM atm) {
+        int id = nextId.getAndIncrement();
+        int shardIndex = id >>> SHARD_BITS;
+        if (shardIndex >= MAX_SHARDS) {
+            throw new IllegalStateException("Fleet is full");
+        }
+        AtomicReferenceArray<ATM> shard = shards.get(shardIndex);
+        if (shard == null) {
+            shards.compareAndSet(shardIndex, null, new AtomicReferenceArray<>(SHARD_SIZE));
+            shard = shards.get(shardIndex);
+        }
+        shard.set(id & SHARD_MASK, atm);
+        return id;
+    }
+
+    /**
+     * Returns the ATM registered under an id.
+     *
+     * @param atmId the id returned by {@link #register(ATM)}
+     * @return the ATM
+     */
+    public ATM get(int atmId) {
+        ATM atm = atmId >= 0 && atmId < nextId.get() ? lookup(atmId) : null;
+        if (atm == null) {
+            throw new IllegalArgumentException("Unknown ATM id: " + atmId);
+        }
+        return atm;
+    }
+
+    /**
+     * Returns the number of ATMs registered so far.
+     *
+     * @return the fleet size
+     */
+    public int size() {
+        return nextId.get();
+    }
+
+    /**
+     * Withdraws an amount from one ATM of the fleet.
+     *
+     * @param atmId  the id of the ATM
+     * @param amount the amount to withdraw
+     * @return the notes dispensed, indexed by the dense indices of the ATM's {@link DenominationRegistry}
+     * @throws AmountNegativeException          if the amount is not positive
+     * @throws InsufficientFundsException       if the ATM holds less than the amount
+     * @throws DenominationUnavailableException if the ATM cannot make the amount from its notes
+     */
+    public int[] withdraw(int atmId, long amount) throws AmountNegativeException, InsufficientFundsException, DenominationUnavailableException {
+        return get(atmId).getInventory().withdraw(amount);
+    }
+
+    /**
+     * Sums the notes held by the ATMs of the fleet that stock the standard denominations.
+     *
+     * @return the total note count, indexed by {@link Denomination#ordinal()}
+     */
+    public long[] getTotalNotes() {
+        DenominationRegistry standard = DenominationRegistry.standard();
+        long[] totals = new long[standard.size()];
+        int size = size();
+        for (int id = 0; id < size; id++) {
+            ATM atm = lookup(id);
+            if (atm != null && atm.getInventory().getRegistry() == standard) {
+                atm.getInventory().addCountsTo(totals);
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Returns the ids of the ATMs that hold no notes at all.
+     *
+     * @return the ids of the empty ATMs, in ascending order
+     */
+    public List<Integer> getEmptyAtmIds() {
+        List<Integer> empty = new ArrayList<>();
+        int size = size();
+        for (int id = 0; id < size; id++) {
+            ATM atm = lookup(id);
+            if (atm != null && atm.getInventory().getTotalBalance() == 0) {
+                empty.add(id);
+            }
+        }
+        return empty;
+    }
+
+    // Returns null for an id whose registration has not been published yet
+    private ATM lookup(int atmId) {
+        AtomicReferenceArray<ATM> shard = shards.get(atmId >>> SHARD_BITS);
+        return shard == null ? null : shard.get(atmId & SHARD_MASK);
+    }
+}
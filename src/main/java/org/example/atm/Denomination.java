@@ -1,5 +1,6 @@
 package org.example.atm;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -8,13 +9,15 @@ import java.util.Map;
  * <p>
  * The Denomination enum represents the different denominations of currency supported by the ATM.
  * Each denomination is associated with a specific value, which represents the monetary worth of that denomination.
+ * Machines that stock other notes describe them with a {@link DenominationRegistry}; these three are the
+ * {@link DenominationRegistry#standard() standard} registry, where each ordinal is the denomination's index.
  */
 public enum Denomination {
     HUNDRED(100),
     TWO_HUNDRED(200),
     FIVE_HUNDRED(500);
 
-    private int value;
+    private final int value;
 
     Denomination(int value) {
         this.value = value;
@@ -24,12 +27,36 @@ public enum Denomination {
         return value;
     }
 
-    // TODO: Consider using a Map for dynamic denominations
+    /**
+     * Looks up the denomination with a given value in constant time, without allocating.
+     *
+     * @param value The note value.
+     * @return The denomination, or {@code null} if there is none with that value.
+     */
+    public static Denomination fromValue(int value) {
+        int index = DenominationRegistry.standard().indexOf(value);
+        return index < 0 ? null : Holder.DENOMINATIONS[index];
+    }
+
+    /**
+     * Returns the denominations keyed by value. The map is built once and cannot be modified.
+     *
+     * @return The denomination per note value.
+     */
     public static Map<Integer, Denomination> createDenominationMap() {
-        Map<Integer, Denomination> denominationMap = new HashMap<>();
-        for (Denomination denomination : values()) {
-            denominationMap.put(denomination.getValue(), denomination);
+        return Holder.BY_VALUE;
+    }
+
+    private static final class Holder {
+        private static final Denomination[] DENOMINATIONS = values();
+        private static final Map<Integer, Denomination> BY_VALUE;
+
+        static {
+            Map<Integer, Denomination> denominationMap = new HashMap<>();
+            for (Denomination denomination : DENOMINATIONS) {
+                denominationMap.put(denomination.getValue(), denomination);
+            }
+            BY_VALUE = Collections.unmodifiableMap(denominationMap);
         }
-        return denominationMap;
     }
 }
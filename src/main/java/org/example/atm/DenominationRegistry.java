@@ -0,0 +1,250 @@
+package org.example.atm;
+
+import org.example.constant.ProjectConstants;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * An immutable set of note values that one kind of machine stocks, for example 50, 100, 200, 500 and 2000 rupees.
+ * <p>
+ * Each denomination gets a dense index from 0 to {@code size() - 1} in ascending order of value, and inventories,
+ * plans and the exact-change solver store their note counts in primitive arrays with these indices. Looking up the
+ * index of a value is a single read of a direct-address table, so it takes constant time and allocates nothing.
+ * <p>
+ * A registry can be loaded from a properties file such as
+ * <pre>
+ * currency=INR
+ * denominations=50,100,200,500,2000
+ * </pre>
+ * The {@link #standard()} registry holds the values of the {@link Denomination} enum, with each enum constant's
+ * ordinal as its index; the enum must therefore declare its constants in ascending order of value, which is checked
+ * when this class loads.
+ * <p>
+ * Each registry sizes its exact-change table in units of its own note values, so a registry counted in cents covers
+ * as many notes as one counted in whole rupees.
+ */
+public final class DenominationRegistry {
+
+    public static final String CURRENCY_PROPERTY = "currency";
+    public static final String DENOMINATIONS_PROPERTY = "denominations";
+
+    private static final DenominationRegistry STANDARD = new DenominationRegistry(ProjectConstants.DEFAULT_CURRENCY, standardValues());
+
+    private final String currency;
+    private final int[] values;
+    private final int unit;
+    private final int[] indexByUnits;
+    private final ExactChangeSolver solver;
+
+    private DenominationRegistry(String currency, int[] values) {
+        if (currency == null || currency.isBlank()) {
+            throw new IllegalArgumentException("Currency must not be empty");
+        }
+        if (values.length == 0) {
+            throw new IllegalArgumentException("At least one denomination is required");
+        }
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int gcd = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] <= 0) {
+                throw new IllegalArgumentException("Denomination values must be positive: " + sorted[i]);
+            }
+            if (i > 0 && sorted[i] == sorted[i - 1]) {
+                throw new IllegalArgumentException("Duplicate denomination value: " + sorted[i]);
+            }
+            gcd = gcd(gcd, sorted[i]);
+        }
+        this.currency = currency.trim();
+        this.values = sorted;
+        this.unit = gcd;
+        this.indexByUnits = new int[sorted[sorted.length - 1] / gcd + 1];
+        Arrays.fill(indexByUnits, -1);
+        for (int i = 0; i < sorted.length; i++) {
+            indexByUnits[sorted[i] / gcd] = i;
+        }
+        this.solver = new ExactChangeSolver(sorted, ExactChangeSolver.tableLimit(sorted,
+                ProjectConstants.EXACT_CHANGE_TABLE_UNITS, ProjectConstants.MAX_EXACT_CHANGE_TABLE_SLOTS));
+    }
+
+    /**
+     * Returns the registry of the {@link Denomination} enum, in which every denomination's index is its ordinal.
+     *
+     * @return The standard registry.
+     */
+    public static DenominationRegistry standard() {
+        return STANDARD;
+    }
+
+    /**
+     * Creates a registry for the given note values. The values may be given in any order.
+     *
+     * @param currency The currency code the notes belong to.
+     * @param values   The distinct, positive note values.
+     * @return A new registry.
+     */
+    public static DenominationRegistry of(String currency, int... values) {
+        return new DenominationRegistry(currency, values);
+    }
+
+    /**
+     * Creates a registry from configuration properties: {@value #CURRENCY_PROPERTY} names the currency and
+     * {@value #DENOMINATIONS_PROPERTY} lists the note values separated by commas.
+     *
+     * @param properties The configuration.
+     * @return A new registry.
+     * @throws IllegalArgumentException If a property is missing or malformed.
+     */
+    public static DenominationRegistry fromProperties(Properties properties) {
+        String currency = properties.getProperty(CURRENCY_PROPERTY, ProjectConstants.DEFAULT_CURRENCY);
+        String list = properties.getProperty(DENOMINATIONS_PROPERTY);
+        if (list == null || list.isBlank()) {
+            throw new IllegalArgumentException("Missing property: " + DENOMINATIONS_PROPERTY);
+        }
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                values[i] = Integer.parseInt(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Denomination value must be an integer: " + parts[i].trim());
+            }
+        }
+        return new DenominationRegistry(currency, values);
+    }
+
+    /**
+     * Loads a registry from a properties file.
+     *
+     * @param file The configuration file.
+     * @return A new registry.
+     * @throws IOException If the file cannot be read.
+     * @see #fromProperties(Properties)
+     */
+    public static DenominationRegistry load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return fromProperties(properties);
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Returns the number of denominations, which is also the length of every note count array of this registry.
+     *
+     * @return The number of denominations.
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Returns the value of a denomination.
+     *
+     * @param index The dense index of the denomination.
+     * @return The note value.
+     */
+    public int getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Returns a copy of all note values, indexed by dense index.
+     *
+     * @return The note values in ascending order.
+     */
+    public int[] getValues() {
+        return values.clone();
+    }
+
+    /**
+     * Looks up the dense index of a note value in constant time.
+     *
+     * @param value The note value.
+     * @return The index, or -1 if the registry holds no such denomination.
+     */
+    public int indexOf(int value) {
+        if (value <= 0 || value % unit != 0) {
+            return -1;
+        }
+        int units = value / unit;
+        return units < indexByUnits.length ? indexByUnits[units] : -1;
+    }
+
+    /**
+     * Returns the dense index of an enum denomination in this registry.
+     *
+     * @param denomination The denomination.
+     * @return The index.
+     * @throws IllegalArgumentException If this registry does not hold the denomination's value.
+     */
+    public int indexOf(Denomination denomination) {
+        int index = indexOf(denomination.getValue());
+        if (index < 0) {
+            throw new IllegalArgumentException("Denomination " + denomination.getValue() + " is not stocked in " + this);
+        }
+        return index;
+    }
+
+    /**
+     * Calculates the total value of a set of note counts.
+     *
+     * @param counts The note counts, indexed by dense index.
+     * @return The total value.
+     */
+    public long totalValue(int[] counts) {
+        long total = 0;
+        for (int i = 0; i < values.length; i++) {
+            total += (long) values[i] * counts[i];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the exact-change solver for these values, shared by every inventory of this registry.
+     *
+     * @return The solver.
+     */
+    ExactChangeSolver getSolver() {
+        return solver;
+    }
+
+    @Override
+    public String toString() {
+        return currency + Arrays.toString(values);
+    }
+
+    // The enum values by ordinal. Indices are assigned in ascending order of value, so the ordinals only match them if
+    // the constants are declared that way; anything else fails here, when the class loads, rather than misdispensing.
+    private static int[] standardValues() {
+        Denomination[] denominations = Denomination.values();
+        int[] values = new int[denominations.length];
+        for (Denomination denomination : denominations) {
+            values[denomination.ordinal()] = denomination.getValue();
+            if (denomination.ordinal() > 0 && values[denomination.ordinal() - 1] >= denomination.getValue()) {
+                throw new IllegalStateException("Denomination constants must be declared in ascending order of value: "
+                        + Arrays.toString(denominations));
+            }
+        }
+        return values;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
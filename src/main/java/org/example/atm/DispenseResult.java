@@ -0,0 +1,133 @@
+package org.example.atm;
+
+import org.example.constant.ProjectConstants;
+import org.example.exception.AmountNegativeException;
+import org.example.exception.DenominationUnavailableException;
+import org.example.exception.InsufficientFundsException;
+
+import java.util.Arrays;
+
+/**
+ * A reusable holder for the outcome of one withdrawal.
+ * <p>
+ * The result-object withdrawal methods, such as {@link NoteInventory#withdraw(long, DispenseResult)}, write their
+ * status and the dispensed note counts into a caller-supplied result instead of returning new objects or throwing
+ * exceptions. A result may be reused for any number of withdrawals, but only by one thread at a time; use
+ * {@link #forCurrentThread()} to get one per thread.
+ */
+public class DispenseResult {
+
+    private static final ThreadLocal<DispenseResult> THREAD_RESULT = ThreadLocal.withInitial(DispenseResult::new);
+    private static final ThreadLocal<DispenseResult> INTERNAL_RESULT = ThreadLocal.withInitial(DispenseResult::new);
+
+    private int[] notes;
+    private long amount;
+    private WithdrawalStatus status;
+
+    public DispenseResult() {
+        this.notes = new int[Denomination.values().length];
+        this.status = WithdrawalStatus.AMOUNT_NOT_POSITIVE;
+    }
+
+    /**
+     * Returns the result owned by the current thread. Each call on the same thread returns the same object, which the
+     * next withdrawal overwrites.
+     *
+     * @return The result of the current thread.
+     */
+    public static DispenseResult forCurrentThread() {
+        return THREAD_RESULT.get();
+    }
+
+    // The result the convenience methods of this package work in. It is kept apart from forCurrentThread() so that a
+    // call such as NoteInventory.withdraw(long) never overwrites a result its caller is still reading.
+    static DispenseResult internal() {
+        return INTERNAL_RESULT.get();
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public WithdrawalStatus getStatus() {
+        return status;
+    }
+
+    public boolean isSuccessful() {
+        return status == WithdrawalStatus.SUCCESS;
+    }
+
+    /**
+     * Returns the number of notes of a standard denomination that were dispensed.
+     *
+     * @param denomination The denomination to look up; the inventory must use {@link DenominationRegistry#standard()}.
+     * @return The number of notes dispensed, zero if the withdrawal failed.
+     */
+    public int getCount(Denomination denomination) {
+        return getCount(denomination.ordinal());
+    }
+
+    /**
+     * Returns the number of notes of a denomination that were dispensed.
+     *
+     * @param index The dense index of the denomination in the inventory's {@link DenominationRegistry}.
+     * @return The number of notes dispensed, zero if the withdrawal failed.
+     */
+    public int getCount(int index) {
+        return index < notes.length ? notes[index] : 0;
+    }
+
+    /**
+     * Returns the live array of dispensed note counts, indexed by the dense indices of the inventory's
+     * {@link DenominationRegistry}. It is overwritten by the next withdrawal that uses this result and must not be
+     * modified.
+     *
+     * @return The dispensed note counts.
+     */
+    public int[] notes() {
+        return notes;
+    }
+
+    /**
+     * Copies this result into an immutable {@link WithdrawalResult}.
+     *
+     * @return A new result with the same outcome.
+     */
+    public WithdrawalResult toWithdrawalResult() {
+        return new WithdrawalResult(amount, status, notes.clone());
+    }
+
+    /**
+     * Throws the exception that the exception-based API uses for this result's status, if it is a failure.
+     *
+     * @throws AmountNegativeException          If the amount was not positive.
+     * @throws InsufficientFundsException       If the inventory held less than the amount.
+     * @throws DenominationUnavailableException If the amount could not be made from the available notes.
+     */
+    void throwIfFailed() throws AmountNegativeException, InsufficientFundsException, DenominationUnavailableException {
+        switch (status) {
+            case AMOUNT_NOT_POSITIVE:
+                throw new AmountNegativeException(ProjectConstants.AMOUNT_POSITIVE_MESSAGE);
+            case INSUFFICIENT_FUNDS:
+                throw new InsufficientFundsException(ProjectConstants.INSUFFICIENT_FUNDS_MESSAGE);
+            case DENOMINATION_UNAVAILABLE:
+                throw new DenominationUnavailableException(ProjectConstants.DENOMINATION_UNAVAILABLE_MESSAGE);
+            default:
+                break;
+        }
+    }
+
+    void start(long amount, int denominationCount) {
+        if (notes.length != denominationCount) {
+            notes = new int[denominationCount];
+        } else {
+            Arrays.fill(notes, 0);
+        }
+        this.amount = amount;
+        this.status = WithdrawalStatus.AMOUNT_NOT_POSITIVE;
+    }
+
+    void finish(WithdrawalStatus status) {
+        this.status = status;
+    }
+}
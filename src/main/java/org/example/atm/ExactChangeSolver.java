@@ -0,0 +1,409 @@
+package org.example.atm;
+
+import java.util.Arrays;
+
+/**
+ * Finds an exact combination of notes for an amount whenever one exists.
+ * <p>
+ * The solver works on a feasibility table: entry {@code x} holds the number of distinct note combinations that add
+ * up to {@code x * unit}, modulo the Mersenne prime 2<sup>61</sup>-1, where {@code unit} is the greatest common
+ * divisor of the note values. An amount can be paid exactly if its entry is non-zero, so a feasibility check is a
+ * single array read. Each denomination contributes the factor {@code (1 - z^((k+1)w)) / (1 - z^w)} to the table's
+ * generating function, where {@code k} is its note count and {@code w} its value in units. Changing a count from
+ * {@code k0} to {@code k1} therefore means dividing by one binomial and multiplying by another, which costs two
+ * linear passes over the table no matter how many notes are involved. This keeps debits and refills cheap even for
+ * vault-sized inventories with millions of notes.
+ * <p>
+ * The table covers amounts up to a fixed limit. Larger amounts are reduced in whole blocks of the least common
+ * multiple {@code L} of the note values: any exact combination can be rearranged so that, for every denomination,
+ * fewer than {@code L / value} notes lie outside whole blocks, so the part outside the blocks is one of the
+ * {@code n} amounts below {@code n * L} that are congruent to the amount modulo {@code L}. For each of them the solver
+ * takes the blocks largest notes first and, when that leaves too few notes for the remainder, backtracks over the
+ * few block choices that change which remainders stay payable. This keeps large amounts exact as long as
+ * {@code n * L} fits in the table; for note sets whose {@code L} is too large, the amount is brought into range
+ * greedily with the largest notes instead, which can miss a combination.
+ * <p>
+ * Because entries are kept modulo a prime, an amount is wrongly reported as unreachable only if its number of
+ * combinations is an exact multiple of 2<sup>61</sup>-1; a non-zero entry is always correct. That needs more than
+ * 2<sup>61</sup> distinct combinations for a single amount, which only tables far larger than the ones used here
+ * can hold.
+ */
+public class ExactChangeSolver {
+
+    private static final long MODULUS = (1L << 61) - 1;
+
+    private final int[] values;
+    private final int[] order;
+    private final int unit;
+    private final int maxAmount;
+    private final int slots;
+    private final int block;
+    private final int[] blockNotes;
+
+    /**
+     * Constructs a solver for the given note values.
+     *
+     * @param values    The value of each denomination, indexed like the note counts the solver is used with.
+     * @param maxAmount The largest amount the feasibility table covers.
+     */
+    public ExactChangeSolver(int[] values, int maxAmount) {
+        int gcd = 0;
+        for (int value : values) {
+            if (value <= 0) {
+                throw new IllegalArgumentException("Denomination values must be positive: " + value);
+            }
+            gcd = gcd(gcd, value);
+        }
+        this.values = values.clone();
+        this.order = descendingOrder(values);
+        this.unit = gcd;
+        this.slots = maxAmount / gcd + 1;
+        this.maxAmount = (slots - 1) * gcd;
+        this.block = blockAmount(values, this.maxAmount);
+        this.blockNotes = new int[values.length];
+        for (int i = 0; i < values.length && block > 0; i++) {
+            blockNotes[i] = block / values[i];
+        }
+    }
+
+    /**
+     * Chooses how far the feasibility table of a set of note values should reach: a fixed number of multiples of
+     * their greatest common divisor, so that registries counted in minor units get the same coverage as others, but
+     * at least {@code n} times their least common multiple, so that larger amounts are planned exactly. The limit
+     * never makes the table longer than {@code maxSlots} entries.
+     *
+     * @param values   The note values.
+     * @param units    The number of multiples of the greatest common divisor the table should cover.
+     * @param maxSlots The largest table size allowed.
+     * @return The table limit to construct the solver with.
+     */
+    public static int tableLimit(int[] values, int units, int maxSlots) {
+        long gcd = 0;
+        for (int value : values) {
+            gcd = gcd(gcd, value);
+        }
+        long ceiling = (maxSlots - 1L) * gcd;
+        long limit = (long) units * gcd;
+        long lcm = 1;
+        for (int value : values) {
+            lcm = lcm / gcd(lcm, value) * value;
+            if (lcm > ceiling) {
+                break;
+            }
+        }
+        if (lcm * values.length <= ceiling) {
+            limit = Math.max(limit, lcm * values.length);
+        }
+        return (int) Math.min(limit, ceiling);
+    }
+
+    /**
+     * Returns the largest amount covered by the feasibility table.
+     *
+     * @return The table limit.
+     */
+    public int getMaxAmount() {
+        return maxAmount;
+    }
+
+    /**
+     * Returns the number of entries of a feasibility table, which is also the scratch size planning needs.
+     *
+     * @return The table size.
+     */
+    public int getTableSize() {
+        return slots;
+    }
+
+    /**
+     * Builds the feasibility table for the given note counts.
+     *
+     * @param counts The note counts, indexed like the values.
+     * @return A new table.
+     */
+    public long[] newTable(int[] counts) {
+        long[] table = new long[slots];
+        table[0] = 1;
+        for (int i = 0; i < counts.length; i++) {
+            updateCount(table, i, 0, counts[i]);
+        }
+        return table;
+    }
+
+    /**
+     * Updates a table after the note count of one denomination changed. The cost is two passes over the table
+     * regardless of the size of the change.
+     *
+     * @param table The table to update in place.
+     * @param index The denomination index.
+     * @param from  The note count the table currently reflects.
+     * @param to    The new note count.
+     */
+    public void updateCount(long[] table, int index, int from, int to) {
+        if (from == to) {
+            return;
+        }
+        long weight = values[index] / unit;
+        // Divide by (1 - z^((from+1)w)): a running sum with that stride.
+        long divideStride = (from + 1L) * weight;
+        if (divideStride < slots) {
+            int stride = (int) divideStride;
+            for (int x = stride; x < slots; x++) {
+                table[x] = add(table[x], table[x - stride]);
+            }
+        }
+        // Multiply by (1 - z^((to+1)w)), walking downwards so every read sees the old value.
+        long multiplyStride = (to + 1L) * weight;
+        if (multiplyStride < slots) {
+            int stride = (int) multiplyStride;
+            for (int x = slots - 1; x >= stride; x--) {
+                table[x] = subtract(table[x], table[x - stride]);
+            }
+        }
+    }
+
+    /**
+     * Checks in constant time whether the table can pay an amount within its range exactly. A {@code true} answer is
+     * always correct; a {@code false} one is wrong only in the modular case described in the class documentation.
+     *
+     * @param table  The feasibility table.
+     * @param amount The amount to check.
+     * @return {@code true} if the amount is reachable; {@code false} if not or if it lies outside the table range.
+     */
+    public boolean isReachable(long[] table, long amount) {
+        return amount >= 0 && amount <= maxAmount && amount % unit == 0 && table[(int) (amount / unit)] != 0;
+    }
+
+    /**
+     * Plans the notes for an amount. Among all exact combinations it prefers the one that uses as many of the larger
+     * denominations as possible, so it agrees with a greedy dispenser whenever the greedy choice works.
+     *
+     * @param table  The feasibility table for {@code counts}; it is not modified.
+     * @param counts The available note counts.
+     * @param amount The amount to dispense.
+     * @return The notes to dispense, indexed like the counts, or {@code null} if no exact combination was found.
+     */
+    public int[] plan(long[] table, int[] counts, long amount) {
+        int[] dispensed = new int[values.length];
+        return plan(table, counts, amount, dispensed, new long[slots]) ? dispensed : null;
+    }
+
+    /**
+     * Plans the notes for an amount without allocating, using caller-supplied working space.
+     *
+     * @param table     The feasibility table for {@code counts}; it is not modified.
+     * @param counts    The available note counts.
+     * @param amount    The amount to dispense.
+     * @param dispensed Receives the notes to dispense, indexed like the counts; cleared if no combination is found.
+     * @param scratch   Working space of at least {@link #getTableSize()} entries; its contents are overwritten.
+     * @return {@code true} if an exact combination was found.
+     * @see #plan(long[], int[], long)
+     */
+    public boolean plan(long[] table, int[] counts, long amount, int[] dispensed, long[] scratch) {
+        Arrays.fill(dispensed, 0);
+        if (amount < 0 || amount % unit != 0) {
+            return false;
+        }
+        System.arraycopy(table, 0, scratch, 0, slots);
+        long remaining = amount;
+
+        if (remaining > maxAmount) {
+            remaining = block > 0 ? reduceByBlocks(table, counts, remaining, dispensed, scratch) : reduceGreedily(counts, remaining, dispensed, scratch);
+            if (remaining < 0) {
+                Arrays.fill(dispensed, 0);
+                return false;
+            }
+        }
+        if (!isReachable(scratch, remaining)) {
+            Arrays.fill(dispensed, 0);
+            return false;
+        }
+
+        for (int index : order) {
+            if (remaining == 0) {
+                return true;
+            }
+            int available = counts[index] - dispensed[index];
+            // Take this denomination out of the table so it only describes the denominations still to decide.
+            updateCount(scratch, index, available, 0);
+            int value = values[index];
+            for (int notes = (int) Math.min(available, remaining / value); notes >= 0; notes--) {
+                if (isReachable(scratch, remaining - (long) notes * value)) {
+                    dispensed[index] += notes;
+                    remaining -= (long) notes * value;
+                    break;
+                }
+            }
+        }
+        if (remaining != 0) {
+            Arrays.fill(dispensed, 0);
+            return false;
+        }
+        return true;
+    }
+
+    // Pays all of the amount but a remainder below n * L in whole blocks of L and leaves the table of the notes
+    // still available in scratch. Returns the remainder, or -1 if no choice of blocks leaves it payable.
+    private long reduceByBlocks(long[] table, int[] counts, long amount, int[] dispensed, long[] scratch) {
+        for (int k = 0; k < values.length; k++) {
+            long remainder = amount % block + (long) k * block;
+            if (remainder > amount) {
+                break;
+            }
+            // Fewer notes cannot pay what all of them cannot.
+            if (!isReachable(table, remainder)) {
+                continue;
+            }
+            long blocks = (amount - remainder) / block;
+            Arrays.fill(dispensed, 0);
+            if (!chooseBlocks(table, counts, remainder, blocks, 0, 0, dispensed, scratch)) {
+                continue;
+            }
+            // The fixed choices are in place; take the other blocks from the free ones, largest notes first.
+            long fixed = 0;
+            for (int index : order) {
+                fixed += dispensed[index];
+            }
+            long open = blocks - fixed;
+            for (int index : order) {
+                if (dispensed[index] == 0 && open > 0) {
+                    int taken = (int) Math.min(open, freeBlocks(counts, index, remainder));
+                    dispensed[index] = taken;
+                    open -= taken;
+                }
+            }
+            System.arraycopy(table, 0, scratch, 0, slots);
+            for (int i = 0; i < dispensed.length; i++) {
+                dispensed[i] *= blockNotes[i];
+                if (dispensed[i] > 0) {
+                    updateCount(scratch, i, counts[i], counts[i] - dispensed[i]);
+                }
+            }
+            return remainder;
+        }
+        return -1;
+    }
+
+    // Decides, denomination by denomination, whether to take only free blocks (those that leave at least as many notes
+    // as the remainder could use, recorded as 0) or a specific larger number of blocks. Only the latter change which
+    // remainders stay payable, and there are fewer than n + 1 of them per denomination.
+    private boolean chooseBlocks(long[] table, int[] counts, long remainder, long blocks, int position, long fixed,
+                                 int[] chosen, long[] scratch) {
+        if (position == order.length) {
+            long free = 0;
+            boolean constrained = false;
+            for (int i = 0; i < chosen.length; i++) {
+                if (chosen[i] == 0) {
+                    free += freeBlocks(counts, i, remainder);
+                } else {
+                    constrained = true;
+                }
+            }
+            if (fixed + free < blocks) {
+                return false;
+            }
+            if (!constrained) {
+                return true;
+            }
+            System.arraycopy(table, 0, scratch, 0, slots);
+            for (int i = 0; i < chosen.length; i++) {
+                if (chosen[i] > 0) {
+                    updateCount(scratch, i, counts[i], counts[i] - chosen[i] * blockNotes[i]);
+                }
+            }
+            return isReachable(scratch, remainder);
+        }
+        int index = order[position];
+        chosen[index] = 0;
+        if (chooseBlocks(table, counts, remainder, blocks, position + 1, fixed, chosen, scratch)) {
+            return true;
+        }
+        int most = counts[index] / blockNotes[index];
+        for (int taken = freeBlocks(counts, index, remainder) + 1; taken <= most && fixed + taken <= blocks; taken++) {
+            chosen[index] = taken;
+            if (chooseBlocks(table, counts, remainder, blocks, position + 1, fixed + taken, chosen, scratch)) {
+                return true;
+            }
+        }
+        chosen[index] = 0;
+        return false;
+    }
+
+    // The number of blocks a denomination can give while keeping every note the remainder could use
+    private int freeBlocks(int[] counts, int index, long remainder) {
+        int usable = (int) (remainder / values[index]);
+        return counts[index] > usable ? (counts[index] - usable) / blockNotes[index] : 0;
+    }
+
+    // Brings the amount into the table range with the largest notes first and leaves the table of the notes still
+    // available in scratch. Returns the rest, or -1 if the notes run out before it is in range.
+    private long reduceGreedily(int[] counts, long amount, int[] dispensed, long[] scratch) {
+        long remaining = amount;
+        for (int index : order) {
+            if (remaining <= maxAmount) {
+                break;
+            }
+            int value = values[index];
+            int notes = (int) Math.min(counts[index], Math.min((remaining - maxAmount + value - 1) / value, remaining / value));
+            if (notes > 0) {
+                dispensed[index] = notes;
+                remaining -= (long) notes * value;
+                updateCount(scratch, index, counts[index], counts[index] - notes);
+            }
+        }
+        return remaining <= maxAmount ? remaining : -1;
+    }
+
+    private static long add(long a, long b) {
+        long sum = a + b;
+        return sum >= MODULUS ? sum - MODULUS : sum;
+    }
+
+    private static long subtract(long a, long b) {
+        long difference = a - b;
+        return difference < 0 ? difference + MODULUS : difference;
+    }
+
+    private static int gcd(int a, int b) {
+        return (int) gcd((long) a, b);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    // The least common multiple of the values, or 0 if n times it does not fit in the table
+    private static int blockAmount(int[] values, int maxAmount) {
+        long lcm = 1;
+        for (int value : values) {
+            lcm = lcm / gcd((int) lcm, value) * value;
+            if (lcm * values.length > maxAmount) {
+                return 0;
+            }
+        }
+        return (int) lcm;
+    }
+
+    private static int[] descendingOrder(int[] values) {
+        int[] order = new int[values.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        // Insertion sort by descending value; the denomination set is small and this runs once.
+        for (int i = 1; i < order.length; i++) {
+            int current = order[i];
+            int j = i - 1;
+            while (j >= 0 && values[order[j]] < values[current]) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = current;
+        }
+        return order;
+    }
+}
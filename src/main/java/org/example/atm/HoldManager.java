@@ -0,0 +1,168 @@
+package org.example.atm;
+
+import org.example.constant.ProjectConstants;
+import org.example.exception.AmountNegativeException;
+import org.example.exception.DenominationUnavailableException;
+import org.example.exception.HoldExpiredException;
+import org.example.exception.InsufficientFundsException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Splits a withdrawal into reserving the notes and finishing the dispense, for dispensers that take seconds and may
+ * jam.
+ * <p>
+ * {@link #reserve(long)} debits the inventory straight away, exactly like a withdrawal, and returns a {@link NoteHold}
+ * for the notes. Other withdrawals keep running against the remaining notes while the dispenser works. When the
+ * dispense finishes, {@link #commit(NoteHold)} makes the debit final; when it fails, {@link #release(NoteHold)} puts
+ * the notes back. A hold that is neither committed nor released within the timeout is released by a
+ * {@link TimerWheel}, so a crashed dispense cannot lock notes away forever.
+ * <p>
+ * Reserving and returning notes are ordinary commits of the inventory, so listeners such as the journal see a reserve
+ * as notes taken out and a release or expiry as notes put back.
+ */
+public class HoldManager {
+
+    private final NoteInventory inventory;
+    private final long timeoutMillis;
+    private final TimerWheel wheel;
+    private final AtomicLong nextId;
+    private final LongAdder pending;
+    private final LongAdder expired;
+
+    /**
+     * Constructs a hold manager that expires holds after {@link ProjectConstants#HOLD_TIMEOUT_MILLIS} on the shared
+     * timer wheel.
+     *
+     * @param inventory The inventory to reserve notes from.
+     */
+    public HoldManager(NoteInventory inventory) {
+        this(inventory, ProjectConstants.HOLD_TIMEOUT_MILLIS, TimerWheel.shared());
+    }
+
+    /**
+     * Constructs a hold manager.
+     *
+     * @param inventory     The inventory to reserve notes from.
+     * @param timeoutMillis How long a hold may stay pending before its notes go back.
+     * @param wheel         The timer wheel that expires holds.
+     */
+    public HoldManager(NoteInventory inventory, long timeoutMillis, TimerWheel wheel) {
+        if (timeoutMillis <= 0) {
+            throw new IllegalArgumentException("Hold timeout must be positive: " + timeoutMillis);
+        }
+        this.inventory = inventory;
+        this.timeoutMillis = timeoutMillis;
+        this.wheel = wheel;
+        this.nextId = new AtomicLong();
+        this.pending = new LongAdder();
+        this.expired = new LongAdder();
+    }
+
+    /**
+     * Takes the notes for an amount out of the available inventory and holds them for a dispense.
+     *
+     * @param amount The amount to reserve.
+     * @return The pending hold.
+     * @throws AmountNegativeException          If the amount is not positive.
+     * @throws InsufficientFundsException       If the inventory holds less than the amount.
+     * @throws DenominationUnavailableException If the amount cannot be made from the available notes.
+     */
+    public NoteHold reserve(long amount) throws AmountNegativeException, InsufficientFundsException, DenominationUnavailableException {
+        DispenseResult result = DispenseResult.internal();
+        NoteHold hold = reserve(amount, result);
+        result.throwIfFailed();
+        return hold;
+    }
+
+    /**
+     * Takes the notes for an amount out of the available inventory and reports the outcome instead of throwing.
+     *
+     * @param amount The amount to reserve.
+     * @param result The result to overwrite with the status and the reserved notes.
+     * @return The pending hold, or {@code null} if nothing was reserved.
+     */
+    public NoteHold reserve(long amount, DispenseResult result) {
+        inventory.withdraw(amount, result);
+        if (!result.isSuccessful()) {
+            return null;
+        }
+        NoteHold hold = new NoteHold(nextId.incrementAndGet(), amount, result.notes().clone(),
+                System.currentTimeMillis() + timeoutMillis);
+        pending.increment();
+        hold.setTimeout(wheel.schedule(() -> expire(hold), timeoutMillis, TimeUnit.MILLISECONDS));
+        return hold;
+    }
+
+    /**
+     * Makes the dispense of a hold final. Committing a hold twice has no further effect.
+     *
+     * @param hold The hold whose notes were dispensed.
+     * @return {@code true} if this call committed the hold; {@code false} if it was already committed.
+     * @throws HoldExpiredException If the hold expired or was released and its notes are back in the inventory.
+     */
+    public boolean commit(NoteHold hold) throws HoldExpiredException {
+        if (hold.finish(HoldState.COMMITTED)) {
+            pending.decrement();
+            return true;
+        }
+        if (hold.getState() != HoldState.COMMITTED) {
+            throw new HoldExpiredException(ProjectConstants.HOLD_EXPIRED_MESSAGE);
+        }
+        return false;
+    }
+
+    /**
+     * Abandons the dispense of a hold and puts its notes back into the inventory. If the notes cannot be put back,
+     * for example because the inventory's journal failed, the hold stays pending, with a new expiry timer, and the
+     * failure is thrown.
+     *
+     * @param hold The hold to release.
+     * @return {@code true} if the notes went back; {@code false} if the hold had already ended.
+     */
+    public boolean release(NoteHold hold) {
+        return end(hold, HoldState.RELEASED);
+    }
+
+    /**
+     * Returns the number of holds that are currently pending.
+     *
+     * @return The number of pending holds.
+     */
+    public long getPendingCount() {
+        return pending.sum();
+    }
+
+    /**
+     * Returns the number of holds that expired because they were neither committed nor released in time.
+     *
+     * @return The number of expired holds.
+     */
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    private void expire(NoteHold hold) {
+        if (end(hold, HoldState.EXPIRED)) {
+            expired.increment();
+        }
+    }
+
+    // Claims the hold, then puts its notes back; a failed restore reopens the hold rather than lose its notes
+    private boolean end(NoteHold hold, HoldState outcome) {
+        if (!hold.finish(outcome)) {
+            return false;
+        }
+        try {
+            inventory.restore(hold.notes());
+        } catch (RuntimeException | Error e) {
+            hold.reopen(outcome);
+            hold.setTimeout(wheel.schedule(() -> expire(hold), timeoutMillis, TimeUnit.MILLISECONDS));
+            throw e;
+        }
+        pending.decrement();
+        return true;
+    }
+}
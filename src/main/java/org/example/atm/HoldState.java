@@ -0,0 +1,27 @@
+package org.example.atm;
+
+/**
+ * The life cycle of a {@link NoteHold}. A hold starts out pending and ends in exactly one of the other states.
+ */
+public enum HoldState {
+
+    /**
+     * The notes are out of the available inventory and the dispense has not finished yet.
+     */
+    PENDING,
+
+    /**
+     * The notes were dispensed and are gone for good.
+     */
+    COMMITTED,
+
+    /**
+     * The dispense was abandoned and the notes went back to the inventory.
+     */
+    RELEASED,
+
+    /**
+     * Neither commit nor release came in time, so the notes went back to the inventory.
+     */
+    EXPIRED
+}
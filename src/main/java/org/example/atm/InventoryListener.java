@@ -0,0 +1,24 @@
+package org.example.atm;
+
+/**
+ * Receives every change committed to a {@link NoteInventory}.
+ * <p>
+ * The listener runs on the thread that committed the change, after the new state has been published and before the
+ * committing call returns. Versions increase by exactly one per commit, but listeners of concurrent commits may run
+ * out of version order. A listener that throws is logged and skipped; the change stays committed and the other
+ * listeners still receive it.
+ */
+@FunctionalInterface
+public interface InventoryListener {
+
+    /**
+     * Called after a change was committed.
+     *
+     * @param version The version of the state the change produced.
+     * @param delta   The change in note count per denomination, indexed by the dense indices of the inventory's
+     *                {@link DenominationRegistry}.
+     *                Negative for dispensed notes, positive for refilled ones. The array is reused after the call
+     *                returns, so it must not be modified or kept.
+     */
+    void onCommit(long version, int[] delta);
+}
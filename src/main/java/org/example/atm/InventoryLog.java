@@ -0,0 +1,32 @@
+package org.example.atm;
+
+import java.io.IOException;
+
+/**
+ * Makes the changes of a {@link NoteInventory} durable before they take effect.
+ * <p>
+ * While a log is attached, the inventory commits one change at a time: it appends the change to the log, publishes
+ * the new state and then waits until the log reports the change durable, all before the committing call returns.
+ * A change whose append fails is never published, so the inventory never runs ahead of its log.
+ */
+public interface InventoryLog {
+
+    /**
+     * Appends a change that is about to be published. Versions arrive in order, exactly one apart.
+     *
+     * @param version The version of the state the change produces.
+     * @param delta   The change in note count per denomination, indexed by the dense indices of the inventory's
+     *                {@link DenominationRegistry}. The array is reused after the call returns, so it must not be
+     *                modified or kept.
+     * @throws IOException If the change could not be appended; the inventory then leaves its state unchanged.
+     */
+    void append(long version, int[] delta) throws IOException;
+
+    /**
+     * Waits until the change of a version, and of every version before it, is durable.
+     *
+     * @param version The version to wait for.
+     * @throws IOException If the log cannot make the change durable or the wait is interrupted.
+     */
+    void awaitDurable(long version) throws IOException;
+}
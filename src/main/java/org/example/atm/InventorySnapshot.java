@@ -0,0 +1,102 @@
+package org.example.atm;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable, versioned view of the note counts of an inventory.
+ * <p>
+ * The inventory publishes a new snapshot with every committed change, and the snapshot it holds is the inventory's
+ * state, so {@link NoteInventory#snapshot()} costs one volatile read and never blocks a withdrawal. All values of a
+ * snapshot belong to the same version: a reader can never see a withdrawal half applied. The total balance is kept
+ * as a running total by the committing thread, so reading it does not add up the counts.
+ * <p>
+ * The arrays of a snapshot are never modified once published; the accessors copy them so readers cannot either.
+ */
+public final class InventorySnapshot {
+
+    private final DenominationRegistry registry;
+    private final long version;
+    private final long totalBalance;
+    // Shared with the inventory's hot path, which reads them without copying and never writes them
+    final int[] counts;
+    final long[] table;
+
+    InventorySnapshot(DenominationRegistry registry, long version, int[] counts, long[] table, long totalBalance) {
+        this.registry = registry;
+        this.version = version;
+        this.counts = counts;
+        this.table = table;
+        this.totalBalance = totalBalance;
+    }
+
+    public DenominationRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Returns the version of this snapshot. The version increases by one with every committed change.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the total value of the notes in this snapshot.
+     *
+     * @return The total balance.
+     */
+    public long getTotalBalance() {
+        return totalBalance;
+    }
+
+    /**
+     * Returns the number of notes of a denomination.
+     *
+     * @param index The dense index of the denomination in the registry.
+     * @return The note count.
+     */
+    public int getCount(int index) {
+        return counts[index];
+    }
+
+    /**
+     * Returns the number of notes of a denomination.
+     *
+     * @param denomination The denomination to look up.
+     * @return The note count.
+     * @throws IllegalArgumentException If the registry does not hold the denomination.
+     */
+    public int getCount(Denomination denomination) {
+        return counts[registry.indexOf(denomination)];
+    }
+
+    /**
+     * Returns a copy of the note counts.
+     *
+     * @return The note counts, indexed by the registry's dense indices.
+     */
+    public int[] getCounts() {
+        return counts.clone();
+    }
+
+    /**
+     * Copies the note counts into a map keyed by note value.
+     *
+     * @return A new map with one entry per denomination of the registry.
+     */
+    public Map<Integer, Integer> toValueMap() {
+        Map<Integer, Integer> byValue = new ConcurrentHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            byValue.put(registry.getValue(i), counts[i]);
+        }
+        return byValue;
+    }
+
+    @Override
+    public String toString() {
+        return "InventorySnapshot{version=" + version + ", totalBalance=" + totalBalance + ", registry=" + registry + "}";
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.atm;
+
+import org.example.event.DispenseEventSink;
+import org.example.limit.CardLimitTracker;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * An ATM that dispenses several currencies.
+ * <p>
+ * Every currency is served by its own {@link ATM}, with its own {@link NoteInventory}, lock, metrics, holds and card
+ * limits, so withdrawals in different currencies never share any state and never contend with each other. The map
+ * from currency code to machine is built once and only read afterwards, so routing a withdrawal costs one lookup.
+ * Amounts and balances are in minor units of the currency, such as cents, and are {@code long} throughout.
+ */
+public class MultiCurrencyATM {
+
+    private final Map<String, ATM> byCurrency;
+
+    /**
+     * Constructs a machine with one inventory per currency, printing each withdrawal to the console.
+     *
+     * @param inventories the inventories, each of a different currency
+     * @throws IllegalArgumentException if no inventory is given or two inventories share a currency
+     */
+    public MultiCurrencyATM(List<NoteInventory> inventories) {
+        this(inventories, DispenseEventSink.console());
+    }
+
+    /**
+     * Constructs a machine with one inventory per currency. Card limits are checked against the tracker shared by
+     * all ATMs of the currency; configure its limits in minor units with
+     * {@link CardLimitTracker#shared(String, long, long)} before the first ATM of the currency is built.
+     *
+     * @param inventories the inventories, each of a different currency
+     * @param events      the sink that receives the outcome of each withdrawal in any currency
+     * @throws IllegalArgumentException if no inventory is given or two inventories share a currency
+     */
+    public MultiCurrencyATM(List<NoteInventory> inventories, DispenseEventSink events) {
+        this(inventories, events, Map.of());
+    }
+
+    /**
+     * Constructs a machine with one inventory per currency and its own card limit trackers for some currencies. The
+     * other currencies use the tracker shared by all ATMs of the currency.
+     *
+     * @param inventories the inventories, each of a different currency
+     * @param events      the sink that receives the outcome of each withdrawal in any currency
+     * @param limits      the card limit tracker per currency code, with limits in that currency's minor units
+     * @throws IllegalArgumentException if no inventory is given or two inventories share a currency
+     */
+    public MultiCurrencyATM(List<NoteInventory> inventories, DispenseEventSink events, Map<String, CardLimitTracker> limits) {
+        if (inventories.isEmpty()) {
+            throw new IllegalArgumentException("A multi-currency ATM needs at least one inventory");
+        }
+        Map<String, ATM> machines = new HashMap<>();
+        for (NoteInventory inventory : inventories) {
+            String currency = inventory.getRegistry().getCurrency();
+            CardLimitTracker tracker = limits.get(currency);
+            ATM atm = new ATM(inventory, events, tracker != null ? tracker : CardLimitTracker.shared(currency));
+            if (machines.putIfAbsent(currency, atm) != null) {
+                throw new IllegalArgumentException("Currency " + currency + " has more than one inventory");
+            }
+        }
+        this.byCurrency = Map.copyOf(machines);
+    }
+
+    public Set<String> getCurrencies() {
+        return byCurrency.keySet();
+    }
+
+    /**
+     * Returns the machine that serves one currency.
+     *
+     * @param currency the currency code
+     * @return the ATM of the currency
+     * @throws IllegalArgumentException if the machine does not dispense the currency
+     */
+    public ATM get(String currency) {
+        ATM atm = byCurrency.get(currency);
+        if (atm == null) {
+            throw new IllegalArgumentException("Unsupported currency: " + currency);
+        }
+        return atm;
+    }
+
+    /**
+     * Withdraws an amount of a currency and prints the outcome, like {@link ATM#withdraw(long)}.
+     *
+     * @param currency the currency code
+     * @param amount   the amount in minor units
+     */
+    public void withdraw(String currency, long amount) {
+        get(currency).withdraw(amount);
+    }
+
+    /**
+     * Withdraws an amount of a currency and writes the outcome into a result object.
+     *
+     * @param currency the currency code
+     * @param amount   the amount in minor units
+     * @param result   the result to overwrite
+     * @return the given result
+     * @see ATM#withdraw(long, DispenseResult)
+     */
+    public DispenseResult withdraw(String currency, long amount, DispenseResult result) {
+        return get(currency).withdraw(amount, result);
+    }
+
+    /**
+     * Withdraws an amount of a currency with a card, enforcing the card's limits for that currency.
+     *
+     * @param currency the currency code
+     * @param cardId   the number of the card the withdrawal is made with
+     * @param amount   the amount in minor units
+     * @param result   the result to overwrite
+     * @return the given result
+     * @see ATM#withdraw(long, long, DispenseResult)
+     */
+    public DispenseResult withdraw(String currency, long cardId, long amount, DispenseResult result) {
+        return get(currency).withdraw(cardId, amount, result);
+    }
+
+    /**
+     * Deposits counted notes of one currency in one atomic step.
+     *
+     * @param currency the currency code
+     * @param notes    the notes to add, indexed by the dense indices of the currency's registry
+     * @return the version of the currency's inventory that holds the notes
+     */
+    public long deposit(String currency, int[] notes) {
+        return get(currency).deposit(notes);
+    }
+
+    /**
+     * Returns the total value held in one currency.
+     *
+     * @param currency the currency code
+     * @return the balance in minor units
+     */
+    public long getBalance(String currency) {
+        return get(currency).getInventory().getTotalBalance();
+    }
+
+    /**
+     * Returns the balance of every currency, read from each inventory's current state without blocking withdrawals.
+     *
+     * @return the balance in minor units per currency code, sorted by code
+     */
+    public Map<String, Long> getBalances() {
+        Map<String, Long> balances = new TreeMap<>();
+        byCurrency.forEach((currency, atm) -> balances.put(currency, atm.getInventory().getTotalBalance()));
+        return balances;
+    }
+}
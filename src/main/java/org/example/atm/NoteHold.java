@@ -0,0 +1,102 @@
+package org.example.atm;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The notes set aside for one dispense that has not finished yet.
+ * <p>
+ * A hold is created by {@link HoldManager#reserve(long)}, which takes its notes out of the available inventory, and
+ * ends when it is committed, released or expires. These can race, for example a late commit against the expiry
+ * timer, so the state changes with a single compare-and-set and only the first transition wins.
+ */
+public class NoteHold {
+
+    private final long id;
+    private final long amount;
+    private final int[] notes;
+    private final long deadlineMillis;
+    private final AtomicReference<HoldState> state;
+    private volatile TimerWheel.Timeout timeout;
+
+    NoteHold(long id, long amount, int[] notes, long deadlineMillis) {
+        this.id = id;
+        this.amount = amount;
+        this.notes = notes;
+        this.deadlineMillis = deadlineMillis;
+        this.state = new AtomicReference<>(HoldState.PENDING);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    /**
+     * Returns the wall-clock time after which the hold expires if it is still pending.
+     *
+     * @return The deadline in milliseconds since the epoch.
+     */
+    public long getDeadlineMillis() {
+        return deadlineMillis;
+    }
+
+    public HoldState getState() {
+        return state.get();
+    }
+
+    public boolean isPending() {
+        return state.get() == HoldState.PENDING;
+    }
+
+    /**
+     * Returns the number of notes of a denomination that the hold sets aside.
+     *
+     * @param index The dense index of the denomination in the inventory's {@link DenominationRegistry}.
+     * @return The number of notes held.
+     */
+    public int getCount(int index) {
+        return notes[index];
+    }
+
+    /**
+     * Returns a copy of the notes the hold sets aside.
+     *
+     * @return The notes held, indexed by the inventory's dense indices.
+     */
+    public int[] getNotes() {
+        return notes.clone();
+    }
+
+    int[] notes() {
+        return notes;
+    }
+
+    void setTimeout(TimerWheel.Timeout timeout) {
+        this.timeout = timeout;
+    }
+
+    // Ends the hold if it is still pending; exactly one caller wins
+    boolean finish(HoldState outcome) {
+        if (!state.compareAndSet(HoldState.PENDING, outcome)) {
+            return false;
+        }
+        TimerWheel.Timeout pending = timeout;
+        if (pending != null) {
+            pending.cancel();
+        }
+        return true;
+    }
+
+    // Undoes an end whose notes could not be put back, so the hold can be released or expire again
+    void reopen(HoldState outcome) {
+        state.compareAndSet(outcome, HoldState.PENDING);
+    }
+
+    @Override
+    public String toString() {
+        return "NoteHold{id=" + id + ", amount=" + amount + ", state=" + state.get() + "}";
+    }
+}
@@ -0,0 +1,712 @@
+package org.example.atm;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.constant.ProjectConstants;
+import org.example.exception.AmountNegativeException;
+import org.example.exception.DenominationUnavailableException;
+import org.example.exception.InsufficientFundsException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the note counts of an ATM and dispenses from them without a global lock.
+ * <p>
+ * The counts live in a primitive array indexed by the dense indices of a {@link DenominationRegistry} inside an
+ * immutable, versioned {@link InventorySnapshot}. A withdrawal reads the current state, plans the notes to dispense
+ * against it and publishes the debited state with a single compare-and-set. If another withdrawal committed in the meantime the plan is recomputed
+ * against the newer state, so the plan-and-debit step is atomic and no update is ever lost.
+ * <p>
+ * Each state also carries the feasibility table of an {@link ExactChangeSolver}, updated incrementally whenever
+ * notes are debited or refilled, so an amount is paid exactly whenever some combination of the notes allows it.
+ * Because states are immutable, every commit copies the table as well as the counts. The table has a fixed number
+ * of entries per registry ({@link ExactChangeSolver#getTableSize()}, 1,001 for the standard notes), so a commit costs
+ * one copy of a few kilobytes plus two passes over it per changed denomination, however many notes the ATM holds.
+ * <p>
+ * Deposits and refills are committed the same way, so they run alongside withdrawals without blocking them. A
+ * withdrawal that may wait for notes sleeps only until the next credit is committed and then plans again against
+ * the new state.
+ */
+public class NoteInventory {
+
+    private static final Logger logger = LogManager.getLogger(NoteInventory.class);
+    private static final Denomination[] DENOMINATIONS = Denomination.values();
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final DenominationRegistry registry;
+    private final ExactChangeSolver solver;
+    private final int[] values;
+    private final AtomicReference<InventorySnapshot> state;
+    private final CopyOnWriteArrayList<InventoryListener> listeners;
+    private final LongAdder commitConflicts;
+    private final AtomicLong credits;
+    private final AtomicInteger creditWaiters;
+    private final Object creditMonitor;
+    private final ReentrantLock batchLock;
+    private final ReentrantLock logLock;
+    private volatile Thread exclusiveWriter;
+    private volatile InventoryLog log;
+
+    /**
+     * Constructs an inventory of the {@link DenominationRegistry#standard() standard} denominations.
+     *
+     * @param counts The initial number of notes, indexed by {@link Denomination#ordinal()}.
+     */
+    public NoteInventory(int[] counts) {
+        this(DenominationRegistry.standard(), counts, 0);
+    }
+
+    /**
+     * Constructs an inventory of the standard denominations at a given version, for example when restoring a saved
+     * state.
+     *
+     * @param counts  The initial number of notes, indexed by {@link Denomination#ordinal()}.
+     * @param version The version of the initial state.
+     */
+    public NoteInventory(int[] counts, long version) {
+        this(DenominationRegistry.standard(), counts, version);
+    }
+
+    /**
+     * Constructs an inventory of the denominations of a registry.
+     *
+     * @param registry The denominations the inventory stocks.
+     * @param counts   The initial number of notes, indexed by the registry's dense indices.
+     */
+    public NoteInventory(DenominationRegistry registry, int[] counts) {
+        this(registry, counts, 0);
+    }
+
+    /**
+     * Constructs an inventory of the denominations of a registry at a given version.
+     *
+     * @param registry The denominations the inventory stocks.
+     * @param counts   The initial number of notes, indexed by the registry's dense indices.
+     * @param version  The version of the initial state.
+     */
+    public NoteInventory(DenominationRegistry registry, int[] counts, long version) {
+        if (counts.length != registry.size()) {
+            throw new IllegalArgumentException("Expected " + registry.size() + " note counts but got " + counts.length);
+        }
+        for (int count : counts) {
+            if (count < 0) {
+                throw new IllegalArgumentException("Note counts must not be negative: " + count);
+            }
+        }
+        int[] initial = counts.clone();
+        this.registry = registry;
+        this.solver = registry.getSolver();
+        this.values = registry.getValues();
+        this.state = new AtomicReference<>(new InventorySnapshot(registry, version, initial, solver.newTable(initial),
+                registry.totalValue(initial)));
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.commitConflicts = new LongAdder();
+        this.credits = new AtomicLong();
+        this.creditWaiters = new AtomicInteger();
+        this.creditMonitor = new Object();
+        this.batchLock = new ReentrantLock();
+        this.logLock = new ReentrantLock();
+    }
+
+    /**
+     * Registers a listener that is told about every change committed from now on.
+     *
+     * @param listener The listener to add.
+     */
+    public void addListener(InventoryListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Attaches a log that every later change is written to before it is published. With a log attached, commits are
+     * serialized and each committing call returns only once its change is durable; an inventory without a log
+     * commits lock-free. Attach the log before the inventory is shared.
+     *
+     * @param log The log to write changes to.
+     */
+    public void setLog(InventoryLog log) {
+        this.log = log;
+    }
+
+    /**
+     * Stops telling a listener about changes.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeListener(InventoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    public DenominationRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Creates an inventory of the standard denominations holding the counts of the given denomination map. Missing denominations start empty.
+     *
+     * @param denominations The note count per denomination.
+     * @return A new inventory with the same counts.
+     */
+    public static NoteInventory fromMap(Map<Denomination, Integer> denominations) {
+        int[] counts = new int[DENOMINATIONS.length];
+        denominations.forEach((denomination, count) -> counts[denomination.ordinal()] = count);
+        return new NoteInventory(counts);
+    }
+
+    /**
+     * Withdraws the given amount, returning the notes that were debited.
+     *
+     * @param amount The amount to withdraw.
+     * @return The number of notes dispensed, indexed by the registry's dense indices.
+     * @throws AmountNegativeException          If the amount is not positive.
+     * @throws InsufficientFundsException       If the inventory holds less than the amount.
+     * @throws DenominationUnavailableException If the amount cannot be made from the available notes.
+     */
+    public int[] withdraw(long amount) throws AmountNegativeException, InsufficientFundsException, DenominationUnavailableException {
+        DispenseResult result = withdraw(amount, DispenseResult.internal());
+        result.throwIfFailed();
+        return result.notes().clone();
+    }
+
+    /**
+     * Withdraws the given amount and writes the outcome into a result object instead of throwing.
+     * <p>
+     * Planning uses per-thread working space, which each thread sets up on first use. Apart from that and the new
+     * state a successful withdrawal publishes, a copy of the counts and of the feasibility table, this method
+     * allocates nothing, and it never throws for routine outcomes.
+     *
+     * @param amount The amount to withdraw.
+     * @param result The result to overwrite with the status and the dispensed notes.
+     * @return The given result.
+     */
+    public DispenseResult withdraw(long amount, DispenseResult result) {
+        result.start(amount, values.length);
+        if (amount <= 0) {
+            return result;
+        }
+        int[] dispensed = result.notes();
+        long[] scratch = SCRATCH.get().table(solver.getTableSize());
+        while (true) {
+            InventorySnapshot current = state.get();
+            if (amount > current.getTotalBalance()) {
+                result.finish(WithdrawalStatus.INSUFFICIENT_FUNDS);
+                return result;
+            }
+            if (!solver.plan(current.table, current.counts, amount, dispensed, scratch)) {
+                result.finish(WithdrawalStatus.DENOMINATION_UNAVAILABLE);
+                return result;
+            }
+            int[] remaining = current.counts.clone();
+            long[] table = current.table.clone();
+            debit(remaining, table, dispensed);
+            if (commit(current, remaining, table, current.getTotalBalance() - amount)) {
+                result.finish(WithdrawalStatus.SUCCESS);
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Withdraws the given amount, waiting up to a timeout for deposits or refills if the notes do not allow it yet.
+     * <p>
+     * Each time notes are credited to the inventory the withdrawal is planned again against the new state, so notes
+     * that were just deposited can be dispensed straight away.
+     *
+     * @param amount  The amount to withdraw.
+     * @param result  The result to overwrite with the status and the dispensed notes.
+     * @param timeout The longest time to wait for notes.
+     * @param unit    The unit of the timeout.
+     * @return The given result, with the status of the last attempt if the timeout elapsed.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public DispenseResult withdraw(long amount, DispenseResult result, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            long seen = credits.get();
+            withdraw(amount, result);
+            if (result.isSuccessful() || result.getStatus() == WithdrawalStatus.AMOUNT_NOT_POSITIVE) {
+                return result;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !awaitCredit(seen, remaining)) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Withdraws a batch of amounts in order and commits all of them at once.
+     * <p>
+     * The batch is planned against one snapshot of the inventory, with the balance tracked as the batch proceeds,
+     * and published with a single compare-and-set. The results are the same as withdrawing each amount in turn,
+     * except that no other withdrawal can interleave with the batch.
+     *
+     * @param amounts The amounts to withdraw.
+     * @return One result per amount, in the same order.
+     */
+    public WithdrawalResult[] withdrawAll(long[] amounts) {
+        DispenseResult[] results = new DispenseResult[amounts.length];
+        for (int i = 0; i < results.length; i++) {
+            results[i] = new DispenseResult();
+        }
+        withdrawAll(amounts, results);
+        WithdrawalResult[] copies = new WithdrawalResult[results.length];
+        for (int i = 0; i < results.length; i++) {
+            copies[i] = results[i].toWithdrawalResult();
+        }
+        return copies;
+    }
+
+    /**
+     * Withdraws a batch of amounts in order and commits all of them at once, writing each outcome into the
+     * corresponding result object.
+     * <p>
+     * A batch replans whenever another writer commits first. After
+     * {@link ProjectConstants#BATCH_COMMIT_ATTEMPTS} lost races in a row it holds off the other writers until it is
+     * committed, so a steady stream of single withdrawals cannot starve it.
+     *
+     * @param amounts The amounts to withdraw.
+     * @param results One result per amount to overwrite.
+     * @see #withdrawAll(long[])
+     */
+    public void withdrawAll(long[] amounts, DispenseResult[] results) {
+        withdrawAll(amounts, results, amounts.length);
+    }
+
+    /**
+     * Withdraws the first {@code count} amounts of a batch, so callers can reuse arrays larger than the batch.
+     *
+     * @param amounts The amounts to withdraw.
+     * @param results One result per amount to overwrite.
+     * @param count   The number of leading entries that form the batch.
+     * @see #withdrawAll(long[], DispenseResult[])
+     */
+    void withdrawAll(long[] amounts, DispenseResult[] results, int count) {
+        long[] scratch = SCRATCH.get().table(solver.getTableSize());
+        for (int attempt = 0; attempt < ProjectConstants.BATCH_COMMIT_ATTEMPTS; attempt++) {
+            if (tryWithdrawAll(amounts, results, count, scratch)) {
+                return;
+            }
+        }
+        batchLock.lock();
+        exclusiveWriter = Thread.currentThread();
+        try {
+            // Writers that planned before the flag was raised can still win once each, so this ends quickly.
+            while (!tryWithdrawAll(amounts, results, count, scratch)) {
+                Thread.onSpinWait();
+            }
+        } finally {
+            exclusiveWriter = null;
+            batchLock.unlock();
+        }
+    }
+
+    // Plans the batch against the current state and commits it, returning false if another writer committed first
+    private boolean tryWithdrawAll(long[] amounts, DispenseResult[] results, int count, long[] scratch) {
+        InventorySnapshot current = state.get();
+        int[] counts = current.counts.clone();
+        long[] table = current.table.clone();
+        long balance = current.getTotalBalance();
+        boolean changed = false;
+
+        for (int i = 0; i < count; i++) {
+            long amount = amounts[i];
+            DispenseResult result = results[i];
+            result.start(amount, values.length);
+            if (amount <= 0) {
+                continue;
+            }
+            if (amount > balance) {
+                result.finish(WithdrawalStatus.INSUFFICIENT_FUNDS);
+                continue;
+            }
+            if (!solver.plan(table, counts, amount, result.notes(), scratch)) {
+                result.finish(WithdrawalStatus.DENOMINATION_UNAVAILABLE);
+                continue;
+            }
+            debit(counts, table, result.notes());
+            balance -= amount;
+            changed = true;
+            result.finish(WithdrawalStatus.SUCCESS);
+        }
+        return !changed || commit(current, counts, table, balance);
+    }
+
+    /**
+     * Adds notes of one denomination to the inventory.
+     *
+     * @param denomination The denomination to refill.
+     * @param count        The number of notes to add.
+     * @throws IllegalArgumentException If the count is not positive or the registry does not hold the denomination.
+     */
+    public void refill(Denomination denomination, int count) {
+        refill(registry.indexOf(denomination), count);
+    }
+
+    /**
+     * Adds notes of one denomination to the inventory.
+     *
+     * @param index The dense index of the denomination to refill.
+     * @param count The number of notes to add.
+     * @throws IllegalArgumentException If the count is not positive.
+     */
+    public void refill(int index, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Refill count must be positive: " + count);
+        }
+        while (true) {
+            InventorySnapshot current = state.get();
+            int[] counts = current.counts.clone();
+            counts[index] = Math.addExact(counts[index], count);
+            long[] table = current.table.clone();
+            solver.updateCount(table, index, current.counts[index], counts[index]);
+            if (commit(current, counts, table, current.getTotalBalance() + (long) count * values[index])) {
+                signalCredit();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds a batch of counted notes, such as a deposit or a set of refilled cassettes, in one commit. Concurrent
+     * readers and withdrawals see either none or all of the batch.
+     *
+     * @param notes The notes to add, indexed by the registry's dense indices.
+     * @return The version of the state that holds the notes.
+     * @throws IllegalArgumentException If the batch does not match the registry, holds a negative count or is empty.
+     */
+    public long deposit(int[] notes) {
+        if (notes.length != values.length) {
+            throw new IllegalArgumentException("Expected " + values.length + " note counts but got " + notes.length);
+        }
+        long total = 0;
+        for (int count : notes) {
+            if (count < 0) {
+                throw new IllegalArgumentException("Deposited note counts must not be negative: " + count);
+            }
+            total += count;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("A deposit must hold at least one note");
+        }
+        return credit(notes);
+    }
+
+    /**
+     * Puts notes back that an earlier withdrawal took out, in one commit.
+     *
+     * @param notes The notes to add, indexed by the registry's dense indices.
+     */
+    void restore(int[] notes) {
+        credit(notes);
+    }
+
+    // Adds notes in one commit and wakes the withdrawals waiting for them, returning the committed version
+    private long credit(int[] notes) {
+        while (true) {
+            InventorySnapshot current = state.get();
+            int[] counts = current.counts.clone();
+            long[] table = current.table.clone();
+            long balance = current.getTotalBalance();
+            for (int i = 0; i < counts.length; i++) {
+                if (notes[i] > 0) {
+                    counts[i] = Math.addExact(counts[i], notes[i]);
+                    solver.updateCount(table, i, current.counts[i], counts[i]);
+                    balance += (long) notes[i] * values[i];
+                }
+            }
+            if (commit(current, counts, table, balance)) {
+                signalCredit();
+                return current.getVersion() + 1;
+            }
+        }
+    }
+
+    /**
+     * Checks whether the current notes can pay an amount exactly. Amounts up to
+     * {@link ProjectConstants#EXACT_CHANGE_TABLE_UNITS} units of the registry (100,000 for the standard notes) are
+     * answered with a single table lookup, larger ones by
+     * planning. See {@link ExactChangeSolver} for the one modular case in which a payable amount is reported as not
+     * payable.
+     *
+     * @param amount The amount to check.
+     * @return {@code true} if a withdrawal of the amount would currently succeed.
+     */
+    public boolean canDispense(long amount) {
+        InventorySnapshot current = state.get();
+        if (amount <= 0 || amount > current.getTotalBalance()) {
+            return false;
+        }
+        if (amount <= solver.getMaxAmount()) {
+            return solver.isReachable(current.table, amount);
+        }
+        Scratch scratch = SCRATCH.get();
+        return solver.plan(current.table, current.counts, amount, scratch.dispensed(values.length), scratch.table(solver.getTableSize()));
+    }
+
+    /**
+     * Returns the number of notes currently held for a denomination.
+     *
+     * @param denomination The denomination to look up.
+     * @return The note count.
+     * @throws IllegalArgumentException If the registry does not hold the denomination.
+     */
+    public int getCount(Denomination denomination) {
+        return getCount(registry.indexOf(denomination));
+    }
+
+    /**
+     * Returns the number of notes currently held for a denomination.
+     *
+     * @param index The dense index of the denomination.
+     * @return The note count.
+     */
+    public int getCount(int index) {
+        return state.get().counts[index];
+    }
+
+    /**
+     * Returns a copy of the current note counts.
+     *
+     * @return The note counts, indexed by the registry's dense indices.
+     */
+    public int[] getCounts() {
+        return state.get().counts.clone();
+    }
+
+    /**
+     * Adds the current note counts to a running total, reading a single consistent state without copying it.
+     *
+     * @param totals The totals to add to, indexed by the registry's dense indices.
+     */
+    public void addCountsTo(long[] totals) {
+        int[] counts = state.get().counts;
+        for (int i = 0; i < counts.length; i++) {
+            totals[i] += counts[i];
+        }
+    }
+
+    /**
+     * Returns the version of the current state. The version increases by one with every committed change.
+     *
+     * @return The state version.
+     */
+    public long getVersion() {
+        return state.get().getVersion();
+    }
+
+    /**
+     * Returns the current state as an immutable snapshot. This is a single volatile read; the snapshot stays
+     * consistent however many changes are committed after it.
+     *
+     * @return The current snapshot.
+     */
+    public InventorySnapshot snapshot() {
+        return state.get();
+    }
+
+    /**
+     * Returns how many commits had to be retried because another thread committed first.
+     *
+     * @return The number of failed compare-and-set attempts.
+     */
+    public long getCommitConflicts() {
+        return commitConflicts.sum();
+    }
+
+    /**
+     * Returns the total value of the notes currently held. The total is kept up to date by every commit, so this is a
+     * single read.
+     *
+     * @return The total balance.
+     */
+    public long getTotalBalance() {
+        return state.get().getTotalBalance();
+    }
+
+    /**
+     * Copies the current note counts into a denomination map. Denominations of the registry that have no
+     * {@link Denomination} constant are left out.
+     *
+     * @return A new map with one entry per denomination.
+     */
+    public ConcurrentHashMap<Denomination, Integer> toMap() {
+        int[] counts = state.get().counts;
+        ConcurrentHashMap<Denomination, Integer> denominations = new ConcurrentHashMap<>();
+        for (Denomination denomination : DENOMINATIONS) {
+            int index = registry.indexOf(denomination.getValue());
+            if (index >= 0) {
+                denominations.put(denomination, counts[index]);
+            }
+        }
+        return denominations;
+    }
+
+    // Publishes the next state if the current one is still in place, then tells the listeners what changed. With a
+    // log attached the change is appended first, under a lock so that no other commit can claim the same version.
+    // Once the state is published every listener hears of it, even if the wait for durability fails.
+    private boolean commit(InventorySnapshot current, int[] counts, long[] table, long totalBalance) {
+        Thread exclusive = exclusiveWriter;
+        if (exclusive != null && exclusive != Thread.currentThread()) {
+            // A starved batch is committing; let it through, then plan again against its state.
+            while (exclusiveWriter == exclusive) {
+                Thread.yield();
+            }
+            return false;
+        }
+        InventorySnapshot next = new InventorySnapshot(registry, current.getVersion() + 1, counts, table, totalBalance);
+        InventoryLog log = this.log;
+        if (log == null) {
+            if (!state.compareAndSet(current, next)) {
+                commitConflicts.increment();
+                return false;
+            }
+        } else if (!commitLogged(log, current, next)) {
+            return false;
+        }
+        try {
+            if (log != null) {
+                awaitDurable(log, next.getVersion());
+            }
+        } finally {
+            if (!listeners.isEmpty()) {
+                notifyListeners(next.getVersion(), delta(current.counts, counts));
+            }
+        }
+        return true;
+    }
+
+    // Calls every listener, so one that throws cannot keep the change from the others
+    private void notifyListeners(long version, int[] delta) {
+        for (InventoryListener listener : listeners) {
+            try {
+                listener.onCommit(version, delta);
+            } catch (RuntimeException e) {
+                logger.error("Inventory listener {} failed on version {}", listener, version, e);
+            }
+        }
+    }
+
+    private boolean commitLogged(InventoryLog log, InventorySnapshot current, InventorySnapshot next) {
+        logLock.lock();
+        try {
+            if (state.get() != current) {
+                commitConflicts.increment();
+                return false;
+            }
+            log.append(next.getVersion(), delta(current.counts, next.counts));
+            state.set(next);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to log inventory version " + next.getVersion(), e);
+        } finally {
+            logLock.unlock();
+        }
+        return true;
+    }
+
+    private static void awaitDurable(InventoryLog log, long version) {
+        try {
+            log.awaitDurable(version);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Inventory version " + version + " was published but is not durable", e);
+        }
+    }
+
+    // The change per denomination between two count arrays, in this thread's reusable delta array
+    private int[] delta(int[] before, int[] after) {
+        int[] delta = SCRATCH.get().delta(after.length);
+        for (int i = 0; i < delta.length; i++) {
+            delta[i] = after[i] - before[i];
+        }
+        return delta;
+    }
+
+    // Counts a committed credit and wakes the waiting withdrawals. The count is raised before the waiters are read,
+    // and a waiter registers before it reads the count, so a credit can never slip between a waiter's check and wait
+    private void signalCredit() {
+        credits.incrementAndGet();
+        if (creditWaiters.get() > 0) {
+            synchronized (creditMonitor) {
+                creditMonitor.notifyAll();
+            }
+        }
+    }
+
+    // Waits until a credit is committed after the given count was read, returning false if the time runs out first
+    private boolean awaitCredit(long seen, long nanos) throws InterruptedException {
+        creditWaiters.incrementAndGet();
+        try {
+            synchronized (creditMonitor) {
+                long deadline = System.nanoTime() + nanos;
+                while (credits.get() == seen) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(creditMonitor, nanos);
+                    nanos = deadline - System.nanoTime();
+                }
+                return true;
+            }
+        } finally {
+            creditWaiters.decrementAndGet();
+        }
+    }
+
+    // Removes dispensed notes from working copies of the counts and their feasibility table
+    private void debit(int[] counts, long[] table, int[] dispensed) {
+        for (int i = 0; i < counts.length; i++) {
+            if (dispensed[i] > 0) {
+                int before = counts[i];
+                counts[i] -= dispensed[i];
+                solver.updateCount(table, i, before, counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Per-thread working space for planning and change notification, so the withdrawal path does not allocate it.
+     * It is shared by all inventories, so it grows to the largest table seen and keeps one delta array per
+     * denomination count.
+     */
+    private static final class Scratch {
+        private long[] table = new long[0];
+        private int[] dispensed = new int[0];
+        private int[][] deltas = new int[0][];
+
+        private long[] table(int size) {
+            if (table.length < size) {
+                table = new long[size];
+            }
+            return table;
+        }
+
+        private int[] dispensed(int size) {
+            if (dispensed.length < size) {
+                dispensed = new int[size];
+            }
+            return dispensed;
+        }
+
+        // Listeners see the length of the delta, so it must match the denomination count exactly
+        private int[] delta(int size) {
+            if (deltas.length <= size) {
+                deltas = Arrays.copyOf(deltas, size + 1);
+            }
+            if (deltas[size] == null) {
+                deltas[size] = new int[size];
+            }
+            return deltas[size];
+        }
+    }
+}
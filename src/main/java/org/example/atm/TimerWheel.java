@@ -0,0 +1,183 @@
+package org.example.atm;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.constant.ProjectConstants;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timer wheel that runs tasks after a delay, with a resolution of one tick.
+ * <p>
+ * The wheel is a ring of buckets, one per tick. A task due in {@code n} ticks goes into the bucket {@code n} steps
+ * ahead of the current one, with the number of full turns it has to wait. A single worker thread advances one bucket
+ * per tick and runs the tasks whose turn has come. Scheduling only appends to a lock-free queue that the worker
+ * drains into the buckets, and cancelling only sets a flag, so both cost the same no matter how many timers are
+ * pending. This suits timeouts that are usually cancelled before they fire, such as dispense holds.
+ * <p>
+ * Tasks run on the worker thread and should be short.
+ */
+public class TimerWheel implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(TimerWheel.class);
+
+    private final long tickNanos;
+    private final ArrayDeque<Timeout>[] buckets;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> scheduled;
+    private final long startNanos;
+    private final Thread worker;
+    private volatile boolean stopped;
+
+    private TimerWheel(long tickMillis, int size) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a positive power of two: " + size);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.buckets = newBuckets(size);
+        this.mask = size - 1;
+        this.scheduled = new ConcurrentLinkedQueue<>();
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, "timer-wheel");
+        this.worker.setDaemon(true);
+    }
+
+    /**
+     * Creates a timer wheel and starts its worker thread.
+     *
+     * @param tickMillis The duration of one tick.
+     * @param size       The number of buckets, a power of two.
+     * @return The running wheel.
+     */
+    public static TimerWheel start(long tickMillis, int size) {
+        TimerWheel wheel = new TimerWheel(tickMillis, size);
+        wheel.worker.start();
+        return wheel;
+    }
+
+    /**
+     * Returns the wheel shared by all ATMs of this JVM, so that holds do not cost a thread per machine.
+     *
+     * @return The shared wheel.
+     */
+    public static TimerWheel shared() {
+        return Shared.WHEEL;
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param task  The task to run.
+     * @param delay The delay after which the task runs, rounded up to whole ticks.
+     * @param unit  The unit of the delay.
+     * @return A handle that cancels the task.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (stopped) {
+            throw new IllegalStateException("Timer wheel is stopped");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() + unit.toNanos(delay));
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the worker thread. Pending tasks never run.
+     */
+    @Override
+    public void close() {
+        stopped = true;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        long tick = 0;
+        while (!stopped) {
+            long wakeUp = startNanos + (tick + 1) * tickNanos;
+            long now;
+            while ((now = System.nanoTime()) < wakeUp && !stopped) {
+                LockSupport.parkNanos(this, wakeUp - now);
+            }
+            transferScheduled(tick);
+            expire(buckets[(int) tick & mask]);
+            tick++;
+        }
+    }
+
+    // Moves newly scheduled timeouts into their buckets; overdue ones go into the current bucket
+    private void transferScheduled(long tick) {
+        for (Timeout timeout = scheduled.poll(); timeout != null; timeout = scheduled.poll()) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long dueTick = Math.max(tick, (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos - 1);
+            timeout.rounds = (dueTick - tick) / buckets.length;
+            buckets[(int) dueTick & mask].add(timeout);
+        }
+    }
+
+    private static ArrayDeque<Timeout>[] newBuckets(int size) {
+        @SuppressWarnings("unchecked")
+        ArrayDeque<Timeout>[] buckets = (ArrayDeque<Timeout>[]) new ArrayDeque<?>[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        return buckets;
+    }
+
+    private void expire(ArrayDeque<Timeout> bucket) {
+        for (Iterator<Timeout> it = bucket.iterator(); it.hasNext(); ) {
+            Timeout timeout = it.next();
+            if (timeout.cancelled) {
+                it.remove();
+            } else if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                it.remove();
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Timer task failed", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * A scheduled task that can be cancelled until it runs.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadlineNanos;
+        private long rounds;
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Prevents the task from running if it has not run yet. The wheel drops the timeout when its bucket comes up.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final class Shared {
+        private static final TimerWheel WHEEL = TimerWheel.start(ProjectConstants.TIMER_WHEEL_TICK_MILLIS,
+                ProjectConstants.TIMER_WHEEL_SIZE);
+    }
+}
@@ -3,37 +3,90 @@ package org.example.atm;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.example.constant.ProjectConstants;
+import org.example.event.DispenseEventSink;
 import org.example.exception.AmountNegativeException;
 import org.example.exception.DenominationUnavailableException;
 import org.example.exception.InsufficientFundsException;
+import org.example.exception.LimitExceededException;
+import org.example.limit.CardLimitTracker;
+import org.example.metrics.AtmMetrics;
 
-import java.util.*;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.ReentrantLock;
-import java.util.stream.Collectors;
 
 
 /**
  * The Withdrawal class handles the execution of withdrawal operations from an ATM.
- * It ensures thread safety, checks for sufficient funds, dispenses the correct denominations,
- * updates the available denominations, and logs the dispensed notes.
+ * It validates the amount, debits the correct denominations from a {@link NoteInventory}
+ * in one atomic step, and publishes the outcome to a {@link DispenseEventSink}, which by default prints the dispensed
+ * notes to the console.
  */
 
 public class Withdrawal {
 
     private static final Logger logger = LogManager.getLogger(Withdrawal.class);
-    private final int amount;
-    private final ConcurrentHashMap<Denomination, Integer> denominations;
+    private static final Denomination[] DENOMINATIONS = Denomination.values();
+    private static final DispenseEventSink CONSOLE = DispenseEventSink.console();
+    private final long amount;
+    private final NoteInventory inventory;
+    private final Map<Denomination, Integer> denominations;
+    private final AtmMetrics metrics;
+    private final DispenseEventSink events;
+
+    /**
+     * Constructs a Withdrawal object that debits the given inventory.
+     *
+     * @param amount    The amount to withdraw.
+     * @param inventory The inventory of the ATM.
+     */
+    public Withdrawal(long amount, NoteInventory inventory) {
+        this(amount, inventory, null);
+    }
+
+    /**
+     * Constructs a Withdrawal object that debits the given inventory and records its outcome and latency.
+     *
+     * @param amount    The amount to withdraw.
+     * @param inventory The inventory of the ATM.
+     * @param metrics   The metrics of the ATM, or {@code null} to record nothing.
+     */
+    public Withdrawal(long amount, NoteInventory inventory, AtmMetrics metrics) {
+        this(amount, inventory, metrics, CONSOLE);
+    }
+
+    /**
+     * Constructs a Withdrawal object that debits the given inventory, records its outcome and latency, and publishes
+     * its outcome to an event sink instead of printing it.
+     *
+     * @param amount    The amount to withdraw.
+     * @param inventory The inventory of the ATM.
+     * @param metrics   The metrics of the ATM, or {@code null} to record nothing.
+     * @param events    The sink that receives the outcome of the withdrawal.
+     */
+    public Withdrawal(long amount, NoteInventory inventory, AtmMetrics metrics, DispenseEventSink events) {
+        this.amount = amount;
+        this.inventory = inventory;
+        this.denominations = null;
+        this.metrics = metrics;
+        this.events = events;
+    }
 
     /**
      * Constructs a Withdrawal object with the specified amount and denominations.
+     * <p>
+     * The map is copied into a private inventory and the dispensed counts are written back after a successful
+     * withdrawal. Concurrent withdrawals against the same map are not atomic; use {@link #Withdrawal(long, NoteInventory)}
+     * for shared inventories.
      *
      * @param amount        The amount to withdraw.
      * @param denominations The denominations available in the ATM.
      */
-    public Withdrawal(int amount, ConcurrentHashMap<Denomination, Integer> denominations) {
+    public Withdrawal(long amount, ConcurrentHashMap<Denomination, Integer> denominations) {
         this.amount = amount;
+        this.inventory = NoteInventory.fromMap(denominations);
         this.denominations = denominations;
+        this.metrics = null;
+        this.events = CONSOLE;
     }
 
     /**
@@ -44,112 +97,121 @@ public class Withdrawal {
      * @throws AmountNegativeException        If the withdrawal amount is negative.
      */
     public void execute() throws InsufficientFundsException, DenominationUnavailableException, AmountNegativeException {
-
-            validateAmount();
-            checkSufficientBalance();
-            Map<Denomination, Integer> dispensedNotes = dispenseNotes();
-            updateDenominations(dispensedNotes);
-            handleRemainingAmount(dispensedNotes);
-            printDispensedNotes(dispensedNotes);
-            System.out.println(ProjectConstants.WITHDRAW_SUCCESS_MESSAGE);
-
+        long start = System.nanoTime();
+        complete(debit(start), start);
     }
 
     /**
-     * Validates that the withdrawal amount is positive.
+     * Executes the withdrawal for a card, checking the card's limits first.
+     * <p>
+     * The amount is reserved against the card's limits before any note is debited and given back if the withdrawal
+     * then fails, so concurrent withdrawals with the same card can never together pass its daily limit.
      *
-     * @throws AmountNegativeException If the withdrawal amount is not positive.
+     * @param cardId The number of the card the withdrawal is made with.
+     * @param limits The tracker of the card limits.
+     * @throws InsufficientFundsException       If the ATM has insufficient funds.
+     * @throws DenominationUnavailableException If a required denomination is not available.
+     * @throws AmountNegativeException          If the withdrawal amount is negative.
+     * @throws LimitExceededException           If the amount exceeds the card's transaction or daily limit.
      */
-    private void validateAmount() throws AmountNegativeException {
-        if (amount <= 0) {
-            throw new AmountNegativeException(ProjectConstants.AMOUNT_POSITIVE_MESSAGE);
+    public void execute(long cardId, CardLimitTracker limits)
+            throws InsufficientFundsException, DenominationUnavailableException, AmountNegativeException, LimitExceededException {
+        long start = System.nanoTime();
+        if (!limits.tryAcquire(cardId, amount)) {
+            recordOutcome(WithdrawalStatus.LIMIT_EXCEEDED, start);
+            publishFailure(WithdrawalStatus.LIMIT_EXCEEDED);
+            throw new LimitExceededException(ProjectConstants.LIMIT_EXCEEDED_MESSAGE);
+        }
+        int[] dispensedNotes;
+        boolean dispensed = false;
+        try {
+            dispensedNotes = debit(start);
+            // The notes have left the inventory, so the limit stays charged even if publishing fails below.
+            dispensed = true;
+        } finally {
+            if (!dispensed) {
+                limits.release(cardId, amount);
+            }
         }
+        complete(dispensedNotes, start);
     }
 
     /**
-     * Checks if there are sufficient funds in the ATM for the withdrawal.
+     * Debits the amount from the inventory, recording and publishing the outcome if it fails.
      *
-     * @throws InsufficientFundsException If the ATM has insufficient funds.
+     * @param start The {@link System#nanoTime()} at which the withdrawal started.
+     * @return The dispensed notes, indexed by the registry's dense indices.
+     * @throws InsufficientFundsException       If the ATM has insufficient funds.
+     * @throws DenominationUnavailableException If a required denomination is not available.
+     * @throws AmountNegativeException          If the withdrawal amount is negative.
      */
-    private void checkSufficientBalance() throws InsufficientFundsException {
-        int totalBalance = calculateTotalBalance();
-        if (amount > totalBalance) {
-            throw new InsufficientFundsException(ProjectConstants.INSUFFICIENT_FUNDS_MESSAGE);
+    private int[] debit(long start) throws InsufficientFundsException, DenominationUnavailableException, AmountNegativeException {
+        try {
+            return inventory.withdraw(amount);
+        } catch (AmountNegativeException e) {
+            recordOutcome(WithdrawalStatus.AMOUNT_NOT_POSITIVE, start);
+            publishFailure(WithdrawalStatus.AMOUNT_NOT_POSITIVE);
+            throw e;
+        } catch (InsufficientFundsException e) {
+            recordOutcome(WithdrawalStatus.INSUFFICIENT_FUNDS, start);
+            publishFailure(WithdrawalStatus.INSUFFICIENT_FUNDS);
+            throw e;
+        } catch (DenominationUnavailableException e) {
+            recordOutcome(WithdrawalStatus.DENOMINATION_UNAVAILABLE, start);
+            publishFailure(WithdrawalStatus.DENOMINATION_UNAVAILABLE);
+            throw e;
         }
     }
 
     /**
-     * Calculates the total balance of the ATM based on available denominations.
+     * Finishes a successful debit: writes back the denomination map, records the outcome and publishes it.
      *
-     * @return The total balance of the ATM.
+     * @param dispensedNotes The dispensed notes, indexed by the registry's dense indices.
+     * @param start          The {@link System#nanoTime()} at which the withdrawal started.
      */
-    private int calculateTotalBalance() {
-        return denominations.entrySet().stream()
-                .mapToInt(entry -> entry.getKey().getValue() * entry.getValue())
-                .sum();
+    private void complete(int[] dispensedNotes, long start) {
+        updateDenominations(dispensedNotes);
+        recordOutcome(WithdrawalStatus.SUCCESS, start);
+        events.publish(inventory.getRegistry(), amount, WithdrawalStatus.SUCCESS, dispensedNotes);
     }
 
     /**
-     * Dispenses notes based on the withdrawal amount and available denominations.
+     * Records the outcome and latency of this withdrawal, if it was created with metrics.
      *
-     * @return A map containing the dispensed notes.
+     * @param status The outcome of the withdrawal.
+     * @param start  The {@link System#nanoTime()} at which the withdrawal started.
      */
-    private Map<Denomination, Integer> dispenseNotes() {
-        Map<Denomination, Integer> dispensedNotes = new HashMap<>();
-        List<Denomination> sortedDenominations = Arrays.stream(Denomination.values())
-                .sorted(Comparator.comparingInt(Denomination::getValue).reversed())
-                .collect(Collectors.toList());
-
-        int remainingAmountToDispense = amount;
-        for (Denomination denomination : sortedDenominations) {
-            int quantity = denominations.getOrDefault(denomination, 0);
-            if (quantity <= 0 || denomination.getValue() > remainingAmountToDispense) {
-                continue;
-            }
-            int notesToDispense = Math.min(remainingAmountToDispense / denomination.getValue(), quantity);
-            dispensedNotes.put(denomination, notesToDispense);
-            remainingAmountToDispense -= notesToDispense * denomination.getValue();
-            if (remainingAmountToDispense == 0) {
-                break;
-            }
+    private void recordOutcome(WithdrawalStatus status, long start) {
+        if (metrics != null) {
+            metrics.recordWithdrawal(status, System.nanoTime() - start);
         }
-        return dispensedNotes;
     }
 
     /**
-     * Updates the ATM denominations after dispensing notes.
+     * Publishes a failed withdrawal, which dispensed no notes.
      *
-     * @param dispensedNotes The dispensed notes to update denominations.
+     * @param status The outcome of the withdrawal.
      */
-    private void updateDenominations(Map<Denomination, Integer> dispensedNotes) {
-        dispensedNotes.forEach((denomination, count) -> {
-            int currentQuantity = denominations.getOrDefault(denomination, 0);
-            denominations.put(denomination, currentQuantity - count);
-        });
+    private void publishFailure(WithdrawalStatus status) {
+        DenominationRegistry registry = inventory.getRegistry();
+        events.publish(registry, amount, status, new int[registry.size()]);
     }
 
     /**
-     * Handles any remaining amount after dispensing notes.
+     * Writes the dispensed notes back to the denomination map this withdrawal was created with, if any.
      *
-     * @param dispensedNotes The dispensed notes.
-     * @throws DenominationUnavailableException If a required denomination is not available.
+     * @param dispensedNotes The dispensed notes, indexed by {@link Denomination#ordinal()}.
      */
-    private void handleRemainingAmount(Map<Denomination, Integer> dispensedNotes) throws DenominationUnavailableException {
-        int remainingAmountToDispense = amount - dispensedNotes.entrySet().stream()
-                .mapToInt(entry -> entry.getKey().getValue() * entry.getValue())
-                .sum();
-        if (remainingAmountToDispense > 0) {
-            throw new DenominationUnavailableException(ProjectConstants.DENOMINATION_UNAVAILABLE_MESSAGE);
+    private void updateDenominations(int[] dispensedNotes) {
+        if (denominations == null) {
+            return;
+        }
+        for (Denomination denomination : DENOMINATIONS) {
+            int count = dispensedNotes[denomination.ordinal()];
+            if (count > 0) {
+                int currentQuantity = denominations.getOrDefault(denomination, 0);
+                denominations.put(denomination, currentQuantity - count);
+            }
         }
-    }
-
-    /**
-     * Prints the dispensed notes.
-     *
-     * @param dispensedNotes The dispensed notes to print.
-     */
-    private void printDispensedNotes(Map<Denomination, Integer> dispensedNotes) {
-        dispensedNotes.forEach((denomination, count) ->
-                System.out.println("Dispensing " + count + " x " + denomination.getValue()));
     }
 }
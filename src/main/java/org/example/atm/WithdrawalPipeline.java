@@ -0,0 +1,259 @@
+package org.example.atm;
+
+import org.example.constant.ProjectConstants;
+import org.example.event.DispenseEventSink;
+import org.example.metrics.AtmMetrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Applies the withdrawals of one ATM on a single writer thread instead of letting callers contend for the inventory.
+ * <p>
+ * Callers {@link #submit(long)} an amount and get a future for its {@link DispenseResult}. Requests travel through an
+ * intrusive multi-producer, single-consumer queue: a producer links its request with one atomic swap of the tail, so
+ * submitting never locks and never retries. The writer thread drains up to
+ * {@link ProjectConstants#PIPELINE_BATCH_SIZE} requests at a time and applies them with
+ * {@link NoteInventory#withdrawAll(long[], DispenseResult[])}, which plans the whole batch on private copies of the
+ * note counts and publishes it with a single commit. Withdrawals are applied in the order the queue received them,
+ * so the requests of one caller are always applied in the order it submitted them.
+ * <p>
+ * Futures are completed on the writer thread; dependent stages that do real work should use an async variant such as
+ * {@link CompletableFuture#thenApplyAsync}. While the queue is empty the writer parks; producers wake it up when they
+ * see it parked.
+ * <p>
+ * If applying a batch throws, for example because the inventory's journal failed, the futures of that batch complete
+ * exceptionally with the exception and the writer goes on with the next batch. Every accepted request is either
+ * applied or failed: closing waits for producers that are still linking a request, so none is left in the queue
+ * after the last drain.
+ */
+public class WithdrawalPipeline implements AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final NoteInventory inventory;
+    private final AtmMetrics metrics;
+    private final DispenseEventSink events;
+    private final AtomicReference<Request> tail;
+    private final AtomicInteger submitting;
+    private final Request[] batch;
+    private final long[] amounts;
+    private final DispenseResult[] results;
+    private final Thread writer;
+    private Request head;
+    private volatile boolean parked;
+    private volatile boolean closed;
+
+    private WithdrawalPipeline(NoteInventory inventory, AtmMetrics metrics, DispenseEventSink events) {
+        this.inventory = inventory;
+        this.metrics = metrics;
+        this.events = events;
+        this.head = new Request(0);
+        this.tail = new AtomicReference<>(head);
+        this.submitting = new AtomicInteger();
+        this.batch = new Request[ProjectConstants.PIPELINE_BATCH_SIZE];
+        this.amounts = new long[batch.length];
+        this.results = new DispenseResult[batch.length];
+        this.writer = new Thread(this::drain, "atm-writer");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Creates a pipeline and starts its writer thread.
+     *
+     * @param inventory The inventory the writer withdraws from.
+     * @param metrics   The metrics that record each withdrawal, with its latency measured from submission.
+     * @return The running pipeline.
+     */
+    public static WithdrawalPipeline start(NoteInventory inventory, AtmMetrics metrics) {
+        return start(inventory, metrics, DispenseEventSink.none());
+    }
+
+    /**
+     * Creates a pipeline that publishes the outcome of each withdrawal and starts its writer thread. The writer
+     * publishes before it completes the withdrawal's future; if the sink throws, the future completes exceptionally
+     * although the notes were dispensed, as a synchronous withdrawal would throw to its caller.
+     *
+     * @param inventory The inventory the writer withdraws from.
+     * @param metrics   The metrics that record each withdrawal, with its latency measured from submission.
+     * @param events    The sink that receives the outcome of each withdrawal, on the writer thread.
+     * @return The running pipeline.
+     */
+    public static WithdrawalPipeline start(NoteInventory inventory, AtmMetrics metrics, DispenseEventSink events) {
+        WithdrawalPipeline pipeline = new WithdrawalPipeline(inventory, metrics, events);
+        pipeline.writer.start();
+        return pipeline;
+    }
+
+    /**
+     * Queues a withdrawal for the writer thread.
+     *
+     * @param amount The amount to withdraw.
+     * @return A future completed with the outcome once the writer has applied the withdrawal.
+     * @throws IllegalStateException If the pipeline has been closed.
+     */
+    public CompletableFuture<DispenseResult> submit(long amount) {
+        Request request = new Request(amount);
+        // Announce the submission before checking the flag; close() sets the flag and then waits for announced ones.
+        submitting.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Withdrawal pipeline is closed");
+            }
+            Request previous = tail.getAndSet(request);
+            previous.next = request;
+        } finally {
+            submitting.decrementAndGet();
+        }
+        if (parked) {
+            LockSupport.unpark(writer);
+        }
+        return request.future;
+    }
+
+    /**
+     * Tells whether the pipeline has stopped accepting withdrawals, because it was closed or its writer thread failed.
+     *
+     * @return {@code true} if {@link #submit(long)} would throw.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops accepting withdrawals and waits until the writer has applied the ones already submitted. Called on the
+     * writer thread itself, for example from an event sink, it only stops accepting withdrawals; the writer applies
+     * the queued ones before it exits.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        awaitSubmitters();
+        if (Thread.currentThread() == writer) {
+            return;
+        }
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        // The writer may have stopped before the last producers linked their requests.
+        while (applyBatch() > 0) {
+            // keep applying until the queue is empty
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                if (applyBatch() > 0) {
+                    continue;
+                }
+                if (closed) {
+                    break;
+                }
+                parked = true;
+                // Check again after announcing the park, so a producer that missed the flag cannot strand a request.
+                if (head.next == null && !closed) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+            }
+        } catch (Error e) {
+            // The writer cannot go on; refuse new requests and fail the queued ones rather than leave them hanging.
+            closed = true;
+            awaitSubmitters();
+            for (Request next = head.next; next != null; next = next.next) {
+                head = next;
+                next.future.completeExceptionally(e);
+            }
+            throw e;
+        }
+    }
+
+    // Waits for producers that saw the pipeline open to finish linking their requests
+    private void awaitSubmitters() {
+        while (submitting.get() > 0) {
+            Thread.onSpinWait();
+        }
+    }
+
+    // Applies up to one batch of queued requests and returns how many there were
+    private int applyBatch() {
+        int size = 0;
+        Request next;
+        while (size < batch.length && (next = head.next) != null) {
+            head = next;
+            batch[size] = next;
+            amounts[size] = next.amount;
+            results[size] = next.result;
+            size++;
+        }
+        if (size == 0) {
+            return 0;
+        }
+        // The requests have left the queue, so every one of them is completed here whatever is thrown.
+        Throwable failure = null;
+        try {
+            inventory.withdrawAll(amounts, results, size);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        long now = System.nanoTime();
+        DenominationRegistry registry = inventory.getRegistry();
+        for (int i = 0; i < size; i++) {
+            Request request = batch[i];
+            batch[i] = null;
+            results[i] = null;
+            if (failure != null) {
+                request.future.completeExceptionally(failure);
+                continue;
+            }
+            try {
+                complete(request, registry, now);
+            } catch (Throwable e) {
+                request.future.completeExceptionally(e);
+                if (e instanceof Error) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        return size;
+    }
+
+    // Records and publishes an applied withdrawal, then completes its future
+    private void complete(Request request, DenominationRegistry registry, long now) {
+        DispenseResult result = request.result;
+        metrics.recordWithdrawal(result.getStatus(), now - request.submitNanos);
+        events.publish(registry, result.getAmount(), result.getStatus(), result.notes());
+        request.future.complete(result);
+    }
+
+    private static final class Request {
+        private final long amount;
+        private final long submitNanos;
+        private final DispenseResult result;
+        private final CompletableFuture<DispenseResult> future;
+        private volatile Request next;
+
+        Request(long amount) {
+            this.amount = amount;
+            this.submitNanos = System.nanoTime();
+            this.result = new DispenseResult();
+            this.future = new CompletableFuture<>();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.atm;
+
+/**
+ * Represents one withdrawal of a batch submitted to {@link ATM#withdrawAll(java.util.List)}.
+ */
+public class WithdrawalRequest {
+
+    private final long amount;
+
+    /**
+     * Constructs a WithdrawalRequest for the specified amount.
+     *
+     * @param amount The amount to withdraw.
+     */
+    public WithdrawalRequest(long amount) {
+        this.amount = amount;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+}
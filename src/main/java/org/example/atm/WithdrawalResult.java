@@ -0,0 +1,68 @@
+package org.example.atm;
+
+/**
+ * The outcome of one withdrawal: its status and, if it succeeded, the notes that were dispensed.
+ */
+public class WithdrawalResult {
+
+    private static final int[] NO_NOTES = new int[Denomination.values().length];
+
+    private final long amount;
+    private final WithdrawalStatus status;
+    private final int[] dispensedNotes;
+
+    /**
+     * Constructs a WithdrawalResult.
+     *
+     * @param amount         The requested amount.
+     * @param status         The outcome of the withdrawal.
+     * @param dispensedNotes The notes dispensed, indexed like the inventory's {@link DenominationRegistry}, or
+     *                       {@code null} if none.
+     */
+    public WithdrawalResult(long amount, WithdrawalStatus status, int[] dispensedNotes) {
+        this.amount = amount;
+        this.status = status;
+        this.dispensedNotes = dispensedNotes == null ? NO_NOTES : dispensedNotes;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public WithdrawalStatus getStatus() {
+        return status;
+    }
+
+    public boolean isSuccessful() {
+        return status == WithdrawalStatus.SUCCESS;
+    }
+
+    /**
+     * Returns the number of notes of a standard denomination that were dispensed.
+     *
+     * @param denomination The denomination to look up; the inventory must use {@link DenominationRegistry#standard()}.
+     * @return The number of notes dispensed, zero if the withdrawal failed.
+     */
+    public int getCount(Denomination denomination) {
+        return getCount(denomination.ordinal());
+    }
+
+    /**
+     * Returns the number of notes of a denomination that were dispensed.
+     *
+     * @param index The dense index of the denomination in the inventory's {@link DenominationRegistry}.
+     * @return The number of notes dispensed, zero if the withdrawal failed.
+     */
+    public int getCount(int index) {
+        return index < dispensedNotes.length ? dispensedNotes[index] : 0;
+    }
+
+    /**
+     * Returns a copy of the dispensed notes.
+     *
+     * @return The notes dispensed, indexed like the inventory's {@link DenominationRegistry}.
+     */
+    public int[] getDispensedNotes() {
+        return dispensedNotes.clone();
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.atm;
+
+import org.example.constant.ProjectConstants;
+
+/**
+ * Enumerates the possible outcomes of a withdrawal.
+ * <p>
+ * Each failure status corresponds to one of the exceptions thrown by {@link Withdrawal#execute()}, or by
+ * {@link Withdrawal#execute(long, org.example.limit.CardLimitTracker)} for {@link #LIMIT_EXCEEDED}, and carries the
+ * same message.
+ */
+public enum WithdrawalStatus {
+    SUCCESS(ProjectConstants.WITHDRAW_SUCCESS_MESSAGE),
+    AMOUNT_NOT_POSITIVE(ProjectConstants.AMOUNT_POSITIVE_MESSAGE),
+    INSUFFICIENT_FUNDS(ProjectConstants.INSUFFICIENT_FUNDS_MESSAGE),
+    DENOMINATION_UNAVAILABLE(ProjectConstants.DENOMINATION_UNAVAILABLE_MESSAGE),
+    LIMIT_EXCEEDED(ProjectConstants.LIMIT_EXCEEDED_MESSAGE);
+
+    private final String message;
+
+    WithdrawalStatus(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -7,8 +7,73 @@ public class ProjectConstants {
     public static final String DENOMINATION_UNAVAILABLE_MESSAGE = "ATM cannot dispense the exact amount with available denominations.";
 
     public static final String AMOUNT_POSITIVE_MESSAGE="Withdrawal amount must be positive.";
+    public static final String LIMIT_EXCEEDED_MESSAGE = "The withdrawal exceeds the card's transaction or daily limit.";
+    public static final String HOLD_EXPIRED_MESSAGE = "The hold has expired or was released; its notes are back in the ATM.";
     public static final int THREAD_POOL_SIZE = 10;
 
+    // Network server defaults
+    public static final int SERVER_PORT = 8080;
+    public static final int SERVER_BACKLOG = 4096;
+    public static final int SERVER_MAX_IN_FLIGHT_REQUESTS = 1024;
+    public static final long SERVER_PERMIT_WAIT_MILLIS = 100;
+
+    // Commits between two snapshots of the inventory journal
+    public static final long JOURNAL_SNAPSHOT_INTERVAL = 10_000;
+
+    // Number of slots in the ring buffer of an asynchronous dispense event sink
+    public static final int EVENT_BUFFER_CAPACITY = 8192;
+
+    // Currency of the standard denominations
+    public static final String DEFAULT_CURRENCY = "INR";
+
+    // Reserve/commit holds: how long a hold lives and the resolution of the timer wheel that expires it
+    public static final long HOLD_TIMEOUT_MILLIS = 30_000;
+    public static final long TIMER_WHEEL_TICK_MILLIS = 10;
+    public static final int TIMER_WHEEL_SIZE = 512;
+
+    // Largest number of queued withdrawals the writer thread of a withdrawal pipeline applies as one batch
+    public static final int PIPELINE_BATCH_SIZE = 256;
+
+    // Rebalancing planner: notes a cassette holds, extra stock planned on top of forecast usage, ATMs per parallel task
+    public static final int CASSETTE_CAPACITY = 2_500;
+    public static final double REBALANCE_SAFETY_MARGIN = 0.2;
+    public static final int PLANNER_BATCH_SIZE = 256;
+
+    // Transaction history: records per memory-mapped segment file and per block of the sparse time index
+    public static final int HISTORY_SEGMENT_RECORDS = 1 << 20;
+    public static final int HISTORY_INDEX_BLOCK_RECORDS = 4096;
+
+    // Card limits: largest single withdrawal, largest total per day and the number of lock stripes tracking the totals
+    public static final long CARD_TRANSACTION_LIMIT = 20_000;
+    public static final long CARD_DAILY_LIMIT = 50_000;
+    public static final int CARD_LIMIT_STRIPES = 1024;
+
+    // Replication: how long a synchronous commit waits for the backups to acknowledge it, and the socket buffer size
+    public static final long REPLICATION_ACK_TIMEOUT_MILLIS = 1_000;
+    // Replication: how long a missing version may hold up later ones before the primary resynchronizes its backups
+    public static final long REPLICATION_GAP_TIMEOUT_MILLIS = 100;
+    public static final int REPLICATION_BUFFER_SIZE = 1 << 16;
+
+    // Depletion forecaster: half-life of the decayed demand rates, how close a depletion must be to raise an alert and
+    // how often the background thread updates the rates
+    public static final long FORECAST_HALF_LIFE_MILLIS = 15 * 60 * 1000L;
+    public static final long FORECAST_ALERT_HORIZON_MILLIS = 60 * 60 * 1000L;
+    public static final long FORECAST_UPDATE_MILLIS = 1_000;
+
+    // Workload driver defaults
+    public static final int LOAD_ATMS = 64;
+    public static final int LOAD_NOTES_PER_DENOMINATION = 1_000_000;
+    public static final long LOAD_OPERATIONS = 10_000_000;
+    public static final String LOAD_AMOUNT_DISTRIBUTION = "100:10,200:10,500:20,800:20,1000:20,2000:15,5000:5";
+
+    // Reach of the exact-change feasibility table, in multiples of the smallest unit every note value is made of,
+    // and the most entries a table may have
+    public static final int EXACT_CHANGE_TABLE_UNITS = 1_000;
+    public static final int MAX_EXACT_CHANGE_TABLE_SLOTS = 1 << 14;
+
+    // Commit attempts a batch withdrawal makes before it holds off the other writers of the inventory
+    public static final int BATCH_COMMIT_ATTEMPTS = 8;
+
 
     // Number of initial notes
     public static final int INITIAL_HUNDRED_NOTES = 10;
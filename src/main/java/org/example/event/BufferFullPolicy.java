@@ -0,0 +1,18 @@
+package org.example.event;
+
+/**
+ * What a {@link RingBufferEventSink} does with an event when its buffer is full.
+ */
+public enum BufferFullPolicy {
+
+    /**
+     * The withdrawing thread waits until the consumer frees a slot. No event is lost, but a slow consumer slows the
+     * withdrawals down once the buffer has filled.
+     */
+    BLOCK,
+
+    /**
+     * The event is discarded and counted, so withdrawals never wait for the consumer.
+     */
+    DROP
+}
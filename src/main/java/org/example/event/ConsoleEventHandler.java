@@ -0,0 +1,33 @@
+package org.example.event;
+
+import org.example.atm.DenominationRegistry;
+import org.example.constant.ProjectConstants;
+
+/**
+ * Prints successful withdrawals to {@code System.out} the way the ATM always has: one {@code Dispensing} line per
+ * denomination followed by the success message. Failed withdrawals print nothing, because the ATM already reports
+ * them to the user.
+ * <p>
+ * Each event is written with a single {@code print} call, so lines of concurrent withdrawals do not interleave.
+ */
+public class ConsoleEventHandler implements DispenseEventHandler {
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    @Override
+    public void onEvent(DispenseEvent event, boolean endOfBatch) {
+        if (!event.isSuccessful()) {
+            return;
+        }
+        DenominationRegistry denominations = event.getDenominations();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < denominations.size(); i++) {
+            int count = event.getCount(i);
+            if (count > 0) {
+                text.append("Dispensing ").append(count).append(" x ").append(denominations.getValue(i)).append(LINE_SEPARATOR);
+            }
+        }
+        text.append(ProjectConstants.WITHDRAW_SUCCESS_MESSAGE).append(LINE_SEPARATOR);
+        System.out.print(text);
+    }
+}
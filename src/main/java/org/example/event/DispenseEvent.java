@@ -0,0 +1,117 @@
+package org.example.event;
+
+import org.example.atm.Denomination;
+import org.example.atm.DenominationRegistry;
+import org.example.atm.WithdrawalStatus;
+
+/**
+ * Describes one finished withdrawal: when it happened, the requested amount, its outcome and the notes dispensed.
+ * <p>
+ * Events are reused: a {@link RingBufferEventSink} keeps one event per buffer slot and overwrites it once the
+ * consumer has moved on. A {@link DispenseEventHandler} must therefore copy whatever it needs to keep.
+ */
+public class DispenseEvent {
+
+    private DenominationRegistry denominations;
+    private int[] notes;
+    private long timestampMillis;
+    private long amount;
+    private WithdrawalStatus status;
+
+    public DispenseEvent() {
+        this.denominations = DenominationRegistry.standard();
+        this.notes = new int[denominations.size()];
+    }
+
+    /**
+     * Overwrites this event with the outcome of a withdrawal.
+     *
+     * @param timestampMillis The wall-clock time of the withdrawal.
+     * @param denominations   The denominations of the inventory the withdrawal debited.
+     * @param amount          The requested amount.
+     * @param status          The outcome of the withdrawal.
+     * @param dispensedNotes  The notes dispensed, indexed by the registry's dense indices.
+     */
+    void set(long timestampMillis, DenominationRegistry denominations, long amount, WithdrawalStatus status,
+             int[] dispensedNotes) {
+        if (notes.length != dispensedNotes.length) {
+            notes = new int[dispensedNotes.length];
+        }
+        this.denominations = denominations;
+        this.timestampMillis = timestampMillis;
+        this.amount = amount;
+        this.status = status;
+        System.arraycopy(dispensedNotes, 0, notes, 0, notes.length);
+    }
+
+    public DenominationRegistry getDenominations() {
+        return denominations;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public long getAmount() {
+        return amount;
+    }
+
+    public WithdrawalStatus getStatus() {
+        return status;
+    }
+
+    public boolean isSuccessful() {
+        return status == WithdrawalStatus.SUCCESS;
+    }
+
+    /**
+     * Returns the number of notes of a denomination that were dispensed.
+     *
+     * @param denomination The denomination to look up.
+     * @return The number of notes dispensed, zero if the withdrawal failed.
+     */
+    public int getCount(Denomination denomination) {
+        int index = denominations.indexOf(denomination.getValue());
+        return index < 0 ? 0 : notes[index];
+    }
+
+    /**
+     * Returns the number of notes of a denomination that were dispensed.
+     *
+     * @param index The dense index of the denomination in {@link #getDenominations()}.
+     * @return The number of notes dispensed, zero if the withdrawal failed.
+     */
+    public int getCount(int index) {
+        return notes[index];
+    }
+
+    /**
+     * Appends a one-line description of this event, such as {@code amount=700 status=SUCCESS notes=200x1,500x1}.
+     *
+     * @param line The builder to append to.
+     * @return The given builder.
+     */
+    public StringBuilder appendTo(StringBuilder line) {
+        line.append("amount=").append(amount).append(" status=").append(status.name()).append(" notes=");
+        boolean first = true;
+        for (int i = 0; i < notes.length; i++) {
+            int count = notes[i];
+            if (count > 0) {
+                if (!first) {
+                    line.append(',');
+                }
+                line.append(denominations.getValue(i)).append('x').append(count);
+                first = false;
+            }
+        }
+        if (first) {
+            line.append('-');
+        }
+        return line;
+    }
+
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+}
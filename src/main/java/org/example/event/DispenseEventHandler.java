@@ -0,0 +1,26 @@
+package org.example.event;
+
+/**
+ * Consumes dispense events, for example by printing or logging them.
+ * <p>
+ * A handler behind a {@link RingBufferEventSink} is only ever called from the sink's consumer thread. Events arrive
+ * in batches, and {@code endOfBatch} marks the last event that is currently available, which is the natural point
+ * to flush buffered output.
+ */
+@FunctionalInterface
+public interface DispenseEventHandler {
+
+    /**
+     * Handles one event.
+     *
+     * @param event      The event. It is reused after the call returns, so it must not be kept.
+     * @param endOfBatch {@code true} if no further event is waiting right now.
+     */
+    void onEvent(DispenseEvent event, boolean endOfBatch);
+
+    /**
+     * Releases the resources of this handler. Called once, after the last event.
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.event;
+
+import org.example.atm.DenominationRegistry;
+import org.example.atm.WithdrawalStatus;
+
+/**
+ * Receives the outcome of every withdrawal made through a {@link org.example.atm.Withdrawal} or an
+ * {@link org.example.atm.ATM}.
+ * <p>
+ * Publishing happens on the withdrawing thread, so a sink decides how much of the reporting cost that thread pays.
+ * {@link #console()} prints straight away, as withdrawals always did; a {@link RingBufferEventSink} only copies the
+ * event into a buffer and leaves the printing, logging or writing to a background thread.
+ */
+@FunctionalInterface
+public interface DispenseEventSink {
+
+    /**
+     * Publishes the outcome of a withdrawal.
+     *
+     * @param denominations  The denominations of the inventory the withdrawal debited.
+     * @param amount         The requested amount.
+     * @param status         The outcome of the withdrawal.
+     * @param dispensedNotes The notes dispensed, indexed by the registry's dense indices. It is copied before the
+     *                       call returns.
+     */
+    void publish(DenominationRegistry denominations, long amount, WithdrawalStatus status, int[] dispensedNotes);
+
+    /**
+     * Returns a sink that prints each event to {@code System.out} on the withdrawing thread.
+     *
+     * @return The synchronous console sink.
+     */
+    static DispenseEventSink console() {
+        return synchronous(new ConsoleEventHandler());
+    }
+
+    /**
+     * Returns a sink that ignores every event.
+     *
+     * @return The sink that publishes nowhere.
+     */
+    static DispenseEventSink none() {
+        return (denominations, amount, status, dispensedNotes) -> { };
+    }
+
+    /**
+     * Returns a sink that publishes each event to two sinks, first to {@code first}.
+     *
+     * @param first  The sink published to first.
+     * @param second The sink published to second.
+     * @return The combined sink.
+     */
+    static DispenseEventSink tee(DispenseEventSink first, DispenseEventSink second) {
+        return (denominations, amount, status, dispensedNotes) -> {
+            first.publish(denominations, amount, status, dispensedNotes);
+            second.publish(denominations, amount, status, dispensedNotes);
+        };
+    }
+
+    /**
+     * Returns a sink that hands each event to a handler on the withdrawing thread.
+     *
+     * @param handler The handler to call; it must be safe to call from several threads at once.
+     * @return The synchronous sink.
+     */
+    static DispenseEventSink synchronous(DispenseEventHandler handler) {
+        return (denominations, amount, status, dispensedNotes) -> {
+            DispenseEvent event = new DispenseEvent();
+            event.set(System.currentTimeMillis(), denominations, amount, status, dispensedNotes);
+            handler.onEvent(event, true);
+        };
+    }
+}
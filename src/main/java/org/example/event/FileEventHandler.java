@@ -0,0 +1,60 @@
+package org.example.event;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends every withdrawal to a text file, one line per event prefixed with its timestamp in milliseconds.
+ * <p>
+ * Lines are buffered and flushed at the end of each batch, so a busy ATM pays for one write per batch rather than
+ * one per withdrawal. The handler is meant for a {@link RingBufferEventSink}, whose single consumer thread is the
+ * only caller.
+ */
+public class FileEventHandler implements DispenseEventHandler {
+
+    private final Path file;
+    private final BufferedWriter writer;
+    private final StringBuilder line;
+
+    /**
+     * Opens a handler that appends to a file, creating it if needed.
+     *
+     * @param file The file to append to.
+     * @throws IOException If the file cannot be opened.
+     */
+    public FileEventHandler(Path file) throws IOException {
+        this.file = file;
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.line = new StringBuilder();
+    }
+
+    @Override
+    public void onEvent(DispenseEvent event, boolean endOfBatch) {
+        line.setLength(0);
+        line.append(event.getTimestampMillis()).append(' ');
+        event.appendTo(line).append('\n');
+        try {
+            writer.append(line);
+            if (endOfBatch) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write dispense event to " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close dispense event file " + file, e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.example.event;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Logs every withdrawal through Log4j: successes at {@code INFO}, failures at {@code WARN}.
+ */
+public class Log4jEventHandler implements DispenseEventHandler {
+
+    private static final Logger logger = LogManager.getLogger(Log4jEventHandler.class);
+
+    @Override
+    public void onEvent(DispenseEvent event, boolean endOfBatch) {
+        if (event.isSuccessful()) {
+            if (logger.isInfoEnabled()) {
+                logger.info(event.toString());
+            }
+        } else if (logger.isWarnEnabled()) {
+            logger.warn(event.toString());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package org.example.event;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.atm.DenominationRegistry;
+import org.example.atm.WithdrawalStatus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A dispense event sink that hands events to a background thread through a bounded ring buffer.
+ * <p>
+ * The buffer is a fixed array of preallocated {@link DispenseEvent} slots. A publishing thread claims the next
+ * sequence number with one compare-and-set, copies the event into the slot and marks the slot as published with the
+ * sequence, so publishing neither locks nor allocates. A single consumer thread hands the published events to a
+ * {@link DispenseEventHandler} in sequence order and frees their slots. When all slots are taken, the
+ * {@link BufferFullPolicy} decides whether the publisher waits or the event is dropped.
+ * <p>
+ * While the buffer is empty the consumer parks; publishers wake it up when they see it parked. Publishers announce
+ * themselves before checking whether the sink is closed, and the consumer only stops once no announced publisher is
+ * left and every claimed slot has been handled, so an event whose publish call returned is never lost to a close.
+ */
+public class RingBufferEventSink implements DispenseEventSink, AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(RingBufferEventSink.class);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private final DispenseEvent[] slots;
+    private final AtomicLongArray published;
+    private final int mask;
+    private final BufferFullPolicy fullPolicy;
+    private final DispenseEventHandler handler;
+    private final AtomicLong claimed;
+    private final AtomicInteger publishing;
+    private final LongAdder dropped;
+    private final LongAdder handlerFailures;
+    private final Thread consumer;
+    private volatile long consumed;
+    private volatile boolean parked;
+    private volatile boolean closed;
+
+    private RingBufferEventSink(int capacity, BufferFullPolicy fullPolicy, DispenseEventHandler handler) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a positive power of two: " + capacity);
+        }
+        this.slots = new DispenseEvent[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new DispenseEvent();
+            published.set(i, -1);
+        }
+        this.mask = capacity - 1;
+        this.fullPolicy = fullPolicy;
+        this.handler = handler;
+        this.claimed = new AtomicLong();
+        this.publishing = new AtomicInteger();
+        this.dropped = new LongAdder();
+        this.handlerFailures = new LongAdder();
+        this.consumer = new Thread(this::consume, "dispense-events");
+        this.consumer.setDaemon(true);
+    }
+
+    /**
+     * Creates a sink and starts its consumer thread.
+     *
+     * @param capacity   The number of slots, a power of two.
+     * @param fullPolicy What to do with an event when all slots are taken.
+     * @param handler    The handler the consumer thread passes the events to.
+     * @return The running sink.
+     */
+    public static RingBufferEventSink start(int capacity, BufferFullPolicy fullPolicy, DispenseEventHandler handler) {
+        RingBufferEventSink sink = new RingBufferEventSink(capacity, fullPolicy, handler);
+        sink.consumer.start();
+        return sink;
+    }
+
+    /**
+     * Copies an event into the buffer. Depending on the policy this waits for a free slot or drops the event when the
+     * buffer is full.
+     *
+     * @param denominations  The denominations of the inventory the withdrawal debited.
+     * @param amount         The requested amount.
+     * @param status         The outcome of the withdrawal.
+     * @param dispensedNotes The notes dispensed; copied before the call returns.
+     * @throws IllegalStateException If the sink has been closed.
+     */
+    @Override
+    public void publish(DenominationRegistry denominations, long amount, WithdrawalStatus status, int[] dispensedNotes) {
+        // Announce the publish before checking the flag; the consumer does not stop while announced ones are running.
+        publishing.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Dispense event sink is closed");
+            }
+            long sequence = claim();
+            if (sequence < 0) {
+                return;
+            }
+            int index = (int) sequence & mask;
+            slots[index].set(System.currentTimeMillis(), denominations, amount, status, dispensedNotes);
+            published.set(index, sequence);
+        } finally {
+            publishing.decrementAndGet();
+        }
+        if (parked) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Waits until every event published before this call has been handled.
+     *
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public void flush() throws InterruptedException {
+        long target = claimed.get();
+        while (consumed < target && consumer.isAlive()) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of events dropped because the buffer was full.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of events the handler failed on. A failing event is logged and skipped.
+     *
+     * @return The number of failed events.
+     */
+    public long getHandlerFailureCount() {
+        return handlerFailures.sum();
+    }
+
+    /**
+     * Stops accepting events, waits until the consumer has handled the ones already published, including those of
+     * publishers that saw the sink open, and closes the handler.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(consumer);
+        boolean interrupted = false;
+        while (consumer.isAlive()) {
+            try {
+                consumer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Returns the claimed sequence, or -1 if the event is dropped
+    private long claim() {
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                if (fullPolicy == BufferFullPolicy.DROP) {
+                    dropped.increment();
+                    return -1;
+                }
+                if (!consumer.isAlive()) {
+                    throw new IllegalStateException("Dispense event sink is closed");
+                }
+                LockSupport.unpark(consumer);
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+                continue;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    private void consume() {
+        long next = 0;
+        while (true) {
+            long available = next;
+            while (available - next < slots.length && published.get((int) available & mask) == available) {
+                available++;
+            }
+            if (available == next) {
+                // Read the publishers before the claims: once none is left after the flag, no new claim can follow.
+                if (closed && publishing.get() == 0 && claimed.get() == next) {
+                    break;
+                }
+                parked = true;
+                // Check again after announcing the park, so a publisher that missed the flag cannot strand an event.
+                if (published.get((int) next & mask) != next && !closed) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+                continue;
+            }
+            for (long sequence = next; sequence < available; sequence++) {
+                try {
+                    handler.onEvent(slots[(int) sequence & mask], sequence == available - 1);
+                } catch (RuntimeException e) {
+                    handlerFailures.increment();
+                    logger.error("Dispense event handler failed", e);
+                }
+                consumed = sequence + 1;
+            }
+            next = available;
+        }
+        try {
+            handler.close();
+        } catch (RuntimeException e) {
+            logger.error("Failed to close dispense event handler", e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.exception;
+
+/**
+ * The HoldExpiredException class represents an exception that is thrown when a dispense is committed against a hold
+ * whose notes have already gone back to the ATM, because the hold expired or was released.
+ */
+public class HoldExpiredException extends Exception {
+    public HoldExpiredException(String message) {
+        super(message);
+    }
+}
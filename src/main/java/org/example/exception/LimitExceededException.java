@@ -0,0 +1,11 @@
+package org.example.exception;
+
+/**
+ * The LimitExceededException class represents an exception that is thrown when a withdrawal would exceed the
+ * per-transaction or daily withdrawal limit of the card it is made with.
+ */
+public class LimitExceededException extends Exception {
+    public LimitExceededException(String message) {
+        super(message);
+    }
+}
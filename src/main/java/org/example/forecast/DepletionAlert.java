@@ -0,0 +1,68 @@
+package org.example.forecast;
+
+import java.util.Locale;
+
+/**
+ * A forecast that one denomination of an ATM is about to run out.
+ */
+public final class DepletionAlert {
+
+    private final int atmId;
+    private final int denomination;
+    private final int remainingNotes;
+    private final double notesPerHour;
+    private final long millisToDepletion;
+
+    DepletionAlert(int atmId, int denomination, int remainingNotes, double notesPerHour, long millisToDepletion) {
+        this.atmId = atmId;
+        this.denomination = denomination;
+        this.remainingNotes = remainingNotes;
+        this.notesPerHour = notesPerHour;
+        this.millisToDepletion = millisToDepletion;
+    }
+
+    public int getAtmId() {
+        return atmId;
+    }
+
+    /**
+     * Returns the value of the denomination about to run out.
+     *
+     * @return The denomination value.
+     */
+    public int getDenomination() {
+        return denomination;
+    }
+
+    public int getRemainingNotes() {
+        return remainingNotes;
+    }
+
+    /**
+     * Returns the decayed demand rate the forecast is based on.
+     *
+     * @return The notes dispensed per hour.
+     */
+    public double getNotesPerHour() {
+        return notesPerHour;
+    }
+
+    /**
+     * Returns the estimated time until the denomination runs out at the current rate.
+     *
+     * @return The milliseconds to depletion, 0 if it has run out.
+     */
+    public long getMillisToDepletion() {
+        return millisToDepletion;
+    }
+
+    public boolean isDepleted() {
+        return remainingNotes == 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "ATM %d: %d notes of %d left, %.1f per hour, %d min to depletion",
+                atmId, remainingNotes, denomination, notesPerHour, millisToDepletion / 60_000);
+    }
+}
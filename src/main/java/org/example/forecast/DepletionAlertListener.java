@@ -0,0 +1,17 @@
+package org.example.forecast;
+
+/**
+ * Receives the alerts of a {@link DepletionForecaster}.
+ */
+@FunctionalInterface
+public interface DepletionAlertListener {
+
+    /**
+     * Called on the forecaster's update thread when a denomination of an ATM is forecast to run out within the alert
+     * horizon, and once more when it has run out. The same denomination is not reported again until it has been
+     * refilled or its forecast has moved well beyond the horizon.
+     *
+     * @param alert The alert.
+     */
+    void onAlert(DepletionAlert alert);
+}
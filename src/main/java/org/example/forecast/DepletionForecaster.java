@@ -0,0 +1,256 @@
+package org.example.forecast;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.atm.InventoryListener;
+import org.example.atm.NoteInventory;
+import org.example.constant.ProjectConstants;
+
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Forecasts when each denomination of each ATM runs out, from the notes leaving its inventory, and raises alerts
+ * before it happens.
+ * <p>
+ * {@link #track(int, NoteInventory)} registers an {@link InventoryListener}, so every commit that takes notes out
+ * counts as demand, whichever path made it: single, card, batch and asynchronous withdrawals as well as holds, which
+ * count when they are reserved even if they are later released. The commit path only adds the notes to one
+ * {@link LongAdder} per denomination, which takes no lock and does not contend between threads. Everything
+ * else happens on a single update thread: every {@link ProjectConstants#FORECAST_UPDATE_MILLIS} it collects the notes
+ * dispensed since the last update and folds them into an exponentially decayed rate per denomination, with a
+ * half-life of {@link ProjectConstants#FORECAST_HALF_LIFE_MILLIS}, so recent demand counts most and the memory per ATM
+ * stays constant however many withdrawals it serves. Dividing the notes left by the rate gives the time to depletion;
+ * a denomination due to run out within {@link ProjectConstants#FORECAST_ALERT_HORIZON_MILLIS} is reported to the
+ * {@link DepletionAlertListener} once, once more when it actually runs out, and again only after it was refilled or
+ * its forecast moved beyond twice the horizon.
+ */
+public class DepletionForecaster implements AutoCloseable {
+
+    private static final Logger logger = LogManager.getLogger(DepletionForecaster.class);
+
+    private final long halfLifeMillis;
+    private final long horizonMillis;
+    private final Clock clock;
+    private final DepletionAlertListener listener;
+    private final ConcurrentHashMap<Integer, Tracker> byAtm;
+    private final CopyOnWriteArrayList<Tracker> trackers;
+    private ScheduledExecutorService updater;
+
+    /**
+     * Constructs a forecaster with the default half-life and alert horizon.
+     *
+     * @param listener The listener to alert.
+     */
+    public DepletionForecaster(DepletionAlertListener listener) {
+        this(ProjectConstants.FORECAST_HALF_LIFE_MILLIS, ProjectConstants.FORECAST_ALERT_HORIZON_MILLIS,
+                Clock.systemUTC(), listener);
+    }
+
+    /**
+     * Constructs a forecaster. It updates only when {@link #update()} is called until {@link #start()} is.
+     *
+     * @param halfLifeMillis The time after which the weight of past demand has halved.
+     * @param horizonMillis  How close a depletion must be forecast to raise an alert.
+     * @param clock          The clock that times the updates.
+     * @param listener       The listener to alert.
+     */
+    public DepletionForecaster(long halfLifeMillis, long horizonMillis, Clock clock, DepletionAlertListener listener) {
+        if (halfLifeMillis <= 0 || horizonMillis <= 0) {
+            throw new IllegalArgumentException("Half-life and horizon must be positive: " + halfLifeMillis + ", " + horizonMillis);
+        }
+        this.halfLifeMillis = halfLifeMillis;
+        this.horizonMillis = horizonMillis;
+        this.clock = clock;
+        this.listener = listener;
+        this.byAtm = new ConcurrentHashMap<>();
+        this.trackers = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Starts the background thread that updates the forecasts every {@link ProjectConstants#FORECAST_UPDATE_MILLIS}.
+     */
+    public synchronized void start() {
+        if (updater != null) {
+            return;
+        }
+        updater = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "depletion-forecaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        updater.scheduleAtFixedRate(this::update, ProjectConstants.FORECAST_UPDATE_MILLIS,
+                ProjectConstants.FORECAST_UPDATE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts forecasting an ATM by listening to the changes committed to its inventory.
+     *
+     * @param atmId     The id of the ATM.
+     * @param inventory The inventory of the ATM, whose debits are the demand and whose counts are read on every update.
+     * @throws IllegalArgumentException If the ATM is already tracked.
+     */
+    public void track(int atmId, NoteInventory inventory) {
+        Tracker tracker = new Tracker(atmId, inventory, clock.millis());
+        if (byAtm.putIfAbsent(atmId, tracker) != null) {
+            throw new IllegalArgumentException("ATM " + atmId + " is already tracked");
+        }
+        trackers.add(tracker);
+        inventory.addListener(tracker);
+    }
+
+    /**
+     * Folds the notes dispensed since the last update into the rates and raises the alerts that became due. Called by
+     * the background thread, or directly when the forecaster was not started.
+     */
+    public void update() {
+        long now = clock.millis();
+        for (Tracker tracker : trackers) {
+            try {
+                tracker.update(now);
+            } catch (RuntimeException e) {
+                logger.error("Failed to update the depletion forecast of ATM {}", tracker.atmId, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the decayed demand rate of one denomination of an ATM.
+     *
+     * @param atmId The id of the ATM.
+     * @param index The dense index of the denomination.
+     * @return The notes dispensed per hour.
+     */
+    public double getNotesPerHour(int atmId, int index) {
+        Tracker tracker = tracker(atmId);
+        synchronized (tracker) {
+            return tracker.rates[index] * TimeUnit.HOURS.toMillis(1);
+        }
+    }
+
+    /**
+     * Returns the estimated time until one denomination of an ATM runs out at its current rate.
+     *
+     * @param atmId The id of the ATM.
+     * @param index The dense index of the denomination.
+     * @return The milliseconds to depletion, 0 if it has run out and {@link Long#MAX_VALUE} without any demand.
+     */
+    public long getMillisToDepletion(int atmId, int index) {
+        Tracker tracker = tracker(atmId);
+        synchronized (tracker) {
+            return millisToDepletion(tracker.inventory.getCount(index), tracker.rates[index]);
+        }
+    }
+
+    /**
+     * Stops the background thread and stops listening to the tracked inventories.
+     */
+    @Override
+    public synchronized void close() {
+        if (updater != null) {
+            updater.shutdownNow();
+            updater = null;
+        }
+        for (Tracker tracker : trackers) {
+            tracker.inventory.removeListener(tracker);
+        }
+    }
+
+    private Tracker tracker(int atmId) {
+        Tracker tracker = byAtm.get(atmId);
+        if (tracker == null) {
+            throw new IllegalArgumentException("ATM " + atmId + " is not tracked");
+        }
+        return tracker;
+    }
+
+    private static long millisToDepletion(int notes, double notesPerMilli) {
+        if (notes == 0) {
+            return 0;
+        }
+        if (notesPerMilli <= 0) {
+            return Long.MAX_VALUE;
+        }
+        double millis = notes / notesPerMilli;
+        return millis >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) millis;
+    }
+
+    // The demand state of one ATM: notes dispensed since the last update, decayed rates and alert state
+    private final class Tracker implements InventoryListener {
+        private final int atmId;
+        private final NoteInventory inventory;
+        private final LongAdder[] pending;
+        private final double[] rates;
+        private final int[] alertedAt;
+        private long lastUpdateMillis;
+
+        Tracker(int atmId, NoteInventory inventory, long now) {
+            int size = inventory.getRegistry().size();
+            this.atmId = atmId;
+            this.inventory = inventory;
+            this.pending = new LongAdder[size];
+            for (int i = 0; i < size; i++) {
+                pending[i] = new LongAdder();
+            }
+            this.rates = new double[size];
+            this.alertedAt = new int[size];
+            Arrays.fill(alertedAt, -1);
+            this.lastUpdateMillis = now;
+        }
+
+        // The only work done on the commit path; refills and deposits are not demand
+        @Override
+        public void onCommit(long version, int[] delta) {
+            for (int i = 0; i < pending.length; i++) {
+                if (delta[i] < 0) {
+                    pending[i].add(-delta[i]);
+                }
+            }
+        }
+
+        synchronized void update(long now) {
+            long elapsed = now - lastUpdateMillis;
+            if (elapsed <= 0) {
+                return;
+            }
+            lastUpdateMillis = now;
+            // The weight of the latest interval grows with its length, so irregular updates decay at the same speed
+            double weight = 1 - Math.exp(-Math.log(2) * elapsed / halfLifeMillis);
+            int[] counts = inventory.getCounts();
+            for (int i = 0; i < rates.length; i++) {
+                double observed = (double) pending[i].sumThenReset() / elapsed;
+                rates[i] += weight * (observed - rates[i]);
+                checkAlert(i, counts[i]);
+            }
+        }
+
+        private void checkAlert(int index, int notes) {
+            long remaining = millisToDepletion(notes, rates[index]);
+            if (alertedAt[index] >= 0) {
+                boolean refilled = notes > alertedAt[index];
+                boolean recovered = remaining / 2 >= horizonMillis;
+                boolean depleted = notes == 0 && alertedAt[index] > 0;
+                if (!refilled && !recovered && !depleted) {
+                    return;
+                }
+                alertedAt[index] = -1;
+            }
+            if (remaining < horizonMillis) {
+                alertedAt[index] = notes;
+                DepletionAlert alert = new DepletionAlert(atmId, inventory.getRegistry().getValue(index), notes,
+                        rates[index] * TimeUnit.HOURS.toMillis(1), remaining);
+                try {
+                    listener.onAlert(alert);
+                } catch (RuntimeException e) {
+                    logger.error("Depletion alert listener failed for {}", alert, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package org.example.history;
+
+import org.example.atm.DenominationRegistry;
+import org.example.atm.WithdrawalStatus;
+import org.example.constant.ProjectConstants;
+import org.example.event.DispenseEventSink;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * An append-only history of withdrawal outcomes kept in memory-mapped segment files.
+ * <p>
+ * Every outcome is one fixed-width binary record: the timestamp, the amount, the ATM id, the status and the notes
+ * dispensed per denomination, padded to a multiple of eight bytes. Records live in the mapped pages rather than on the
+ * Java heap, so hundreds of millions of them cost the garbage collector nothing. An appending thread claims a record
+ * slot with one atomic increment, writes the fields and then publishes the record by storing its timestamp with
+ * release semantics; readers skip slots whose timestamp is still zero, so appends never lock and readers never see a
+ * half-written record.
+ * <p>
+ * A sparse time index keeps the smallest and largest timestamp of every block of
+ * {@link ProjectConstants#HISTORY_INDEX_BLOCK_RECORDS} records. Range scans skip every block whose timestamps lie
+ * outside the range and read the records of the others in place through a single reused {@link TransactionRecord}
+ * view. The index is a few kilobytes per segment and is rebuilt from the timestamps when the log is opened.
+ * <p>
+ * Mapped pages are written back by the operating system; call {@link #force()} where a point of durability is needed.
+ */
+public class TransactionLog implements Closeable {
+
+    static final int TIMESTAMP_OFFSET = 0;
+    static final int AMOUNT_OFFSET = 8;
+    static final int ATM_ID_OFFSET = 16;
+    static final int STATUS_OFFSET = 20;
+    static final int COUNTS_OFFSET = 24;
+
+    /**
+     * The ATM id that makes {@link #summarize(long, long, int)} include every ATM.
+     */
+    public static final int ANY_ATM = -1;
+
+    private static final String META_FILE = "history.properties";
+    private static final String SEGMENT_RECORDS_PROPERTY = "segmentRecords";
+    private static final String FORMAT_PROPERTY = "recordFormat";
+    // Format 2 widened the amount to a long
+    private static final String FORMAT = "2";
+    private static final String SEGMENT_PREFIX = "history-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final VarHandle TIMESTAMP = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path directory;
+    private final int denominations;
+    private final int recordSize;
+    private final int segmentShift;
+    private final int blockShift;
+    private final AtomicLong claimed;
+    private final ReentrantLock segmentLock;
+    private volatile Segment[] segments;
+    private volatile boolean closed;
+
+    private TransactionLog(Path directory, int denominations, int recordsPerSegment) {
+        this.directory = directory;
+        this.denominations = denominations;
+        this.recordSize = (COUNTS_OFFSET + denominations * Integer.BYTES + Long.BYTES - 1) & -Long.BYTES;
+        if ((long) recordSize * recordsPerSegment > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Segments of " + recordsPerSegment + " records exceed 2 GB");
+        }
+        this.segmentShift = Integer.numberOfTrailingZeros(recordsPerSegment);
+        this.blockShift = Integer.numberOfTrailingZeros(Math.min(recordsPerSegment, ProjectConstants.HISTORY_INDEX_BLOCK_RECORDS));
+        this.claimed = new AtomicLong();
+        this.segmentLock = new ReentrantLock();
+        this.segments = new Segment[0];
+    }
+
+    /**
+     * Opens the history in a directory with segments of {@link ProjectConstants#HISTORY_SEGMENT_RECORDS} records.
+     *
+     * @param directory the directory holding the segment files
+     * @param registry  the denominations the recorded withdrawals dispense
+     * @return the opened log
+     * @throws IOException if the log cannot be read or written, or was written for a different registry
+     */
+    public static TransactionLog open(Path directory, DenominationRegistry registry) throws IOException {
+        return open(directory, registry, ProjectConstants.HISTORY_SEGMENT_RECORDS);
+    }
+
+    /**
+     * Opens the history in a directory, creating it if needed. An existing history keeps the segment size it was
+     * created with.
+     *
+     * @param directory         the directory holding the segment files
+     * @param registry          the denominations the recorded withdrawals dispense
+     * @param recordsPerSegment the number of records per segment file of a new history, a power of two
+     * @return the opened log
+     * @throws IOException if the log cannot be read or written, or was written for a different registry or record format
+     */
+    public static TransactionLog open(Path directory, DenominationRegistry registry, int recordsPerSegment) throws IOException {
+        if (recordsPerSegment <= 0 || Integer.bitCount(recordsPerSegment) != 1) {
+            throw new IllegalArgumentException("Records per segment must be a positive power of two: " + recordsPerSegment);
+        }
+        Files.createDirectories(directory);
+        Path meta = directory.resolve(META_FILE);
+        if (Files.exists(meta)) {
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(meta, StandardCharsets.UTF_8)) {
+                properties.load(reader);
+            }
+            DenominationRegistry written = DenominationRegistry.fromProperties(properties);
+            if (!written.getCurrency().equals(registry.getCurrency()) || !Arrays.equals(written.getValues(), registry.getValues())) {
+                throw new IOException("History in " + directory + " was written for " + written + ", not " + registry);
+            }
+            if (!FORMAT.equals(properties.getProperty(FORMAT_PROPERTY))) {
+                throw new IOException("History in " + directory + " uses an unsupported record format: "
+                        + properties.getProperty(FORMAT_PROPERTY));
+            }
+            recordsPerSegment = Integer.parseInt(properties.getProperty(SEGMENT_RECORDS_PROPERTY));
+        } else {
+            Properties properties = new Properties();
+            properties.setProperty(DenominationRegistry.CURRENCY_PROPERTY, registry.getCurrency());
+            properties.setProperty(DenominationRegistry.DENOMINATIONS_PROPERTY,
+                    Arrays.stream(registry.getValues()).mapToObj(Integer::toString).collect(Collectors.joining(",")));
+            properties.setProperty(SEGMENT_RECORDS_PROPERTY, Integer.toString(recordsPerSegment));
+            properties.setProperty(FORMAT_PROPERTY, FORMAT);
+            try (Writer writer = Files.newBufferedWriter(meta, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Transaction history layout");
+            }
+        }
+        TransactionLog log = new TransactionLog(directory, registry.size(), recordsPerSegment);
+        log.recover();
+        return log;
+    }
+
+    /**
+     * Appends the outcome of a withdrawal, stamped with the current time.
+     *
+     * @param atmId          the id of the ATM that handled the withdrawal
+     * @param amount         the requested amount
+     * @param status         the outcome
+     * @param dispensedNotes the notes dispensed, indexed by the log's registry
+     * @throws IllegalStateException if the log has been closed
+     * @throws UncheckedIOException  if a new segment file cannot be created
+     */
+    public void append(int atmId, long amount, WithdrawalStatus status, int[] dispensedNotes) {
+        if (dispensedNotes.length != denominations) {
+            throw new IllegalArgumentException("Expected " + denominations + " note counts but got " + dispensedNotes.length);
+        }
+        if (closed) {
+            throw new IllegalStateException("Transaction log is closed");
+        }
+        long index = claimed.getAndIncrement();
+        Segment segment = segment((int) (index >>> segmentShift));
+        int slot = (int) (index & ((1L << segmentShift) - 1));
+        int offset = slot * recordSize;
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.putLong(offset + AMOUNT_OFFSET, amount);
+        buffer.putInt(offset + ATM_ID_OFFSET, atmId);
+        buffer.putInt(offset + STATUS_OFFSET, status.ordinal());
+        for (int i = 0; i < denominations; i++) {
+            buffer.putInt(offset + COUNTS_OFFSET + i * Integer.BYTES, dispensedNotes[i]);
+        }
+        long timestamp = System.currentTimeMillis();
+        // Widen the block's time range before publishing, so a scan that sees the record also sees it in the index.
+        segment.include(slot >>> blockShift, timestamp);
+        TIMESTAMP.setRelease(buffer, offset + TIMESTAMP_OFFSET, timestamp);
+    }
+
+    /**
+     * Returns a sink that appends every published withdrawal of one ATM to this log. Combine it with another sink
+     * through {@link DispenseEventSink#tee(DispenseEventSink, DispenseEventSink)} to keep printing as well.
+     *
+     * @param atmId the id of the ATM whose withdrawals the sink receives
+     * @return the sink
+     */
+    public DispenseEventSink sink(int atmId) {
+        return (registry, amount, status, dispensedNotes) -> append(atmId, amount, status, dispensedNotes);
+    }
+
+    /**
+     * Returns the number of record slots claimed so far, including slots whose append is still in progress.
+     *
+     * @return the number of records
+     */
+    public long size() {
+        return claimed.get();
+    }
+
+    /**
+     * Visits every record with a timestamp in {@code [fromMillis, toMillis)}. Records appended while the scan runs
+     * may or may not be visited. Records are visited in append order, which follows their timestamps closely but not
+     * strictly when many threads append at once.
+     *
+     * @param fromMillis the first timestamp to include
+     * @param toMillis   the first timestamp to exclude
+     * @param visitor    the visitor to call
+     * @return the number of records visited
+     */
+    public long scan(long fromMillis, long toMillis, TransactionVisitor visitor) {
+        return scan(fromMillis, toMillis, ANY_ATM, visitor);
+    }
+
+    /**
+     * Adds up the records of one ATM, or of all ATMs, with a timestamp in {@code [fromMillis, toMillis)}.
+     *
+     * @param fromMillis the first timestamp to include
+     * @param toMillis   the first timestamp to exclude
+     * @param atmId      the ATM to include, or {@link #ANY_ATM}
+     * @return the totals
+     */
+    public TransactionSummary summarize(long fromMillis, long toMillis, int atmId) {
+        TransactionSummary summary = new TransactionSummary(denominations);
+        scan(fromMillis, toMillis, atmId, summary);
+        return summary;
+    }
+
+    /**
+     * Adds up the records with a timestamp in {@code [fromMillis, toMillis)} per ATM in one pass. ATM ids are dense
+     * fleet ids; records of ids outside {@code [0, atms)} are left out.
+     *
+     * @param fromMillis the first timestamp to include
+     * @param toMillis   the first timestamp to exclude
+     * @param atms       the number of ATM ids to summarize
+     * @return one summary per ATM id
+     */
+    public TransactionSummary[] summarizeByAtm(long fromMillis, long toMillis, int atms) {
+        TransactionSummary[] summaries = new TransactionSummary[atms];
+        for (int i = 0; i < atms; i++) {
+            summaries[i] = new TransactionSummary(denominations);
+        }
+        scan(fromMillis, toMillis, ANY_ATM, record -> {
+            int atmId = record.getAtmId();
+            if (atmId >= 0 && atmId < atms) {
+                summaries[atmId].visit(record);
+            }
+        });
+        return summaries;
+    }
+
+    /**
+     * Forces the records appended so far to disk.
+     */
+    public void force() {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+    }
+
+    /**
+     * Stops accepting records and forces the ones appended so far to disk.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        force();
+    }
+
+    private long scan(long fromMillis, long toMillis, int atmId, TransactionVisitor visitor) {
+        long limit = claimed.get();
+        Segment[] current = segments;
+        TransactionRecord view = new TransactionRecord(denominations);
+        int blockRecords = 1 << blockShift;
+        long visited = 0;
+        for (int s = 0; s < current.length; s++) {
+            long segmentStart = (long) s << segmentShift;
+            if (segmentStart >= limit) {
+                break;
+            }
+            Segment segment = current[s];
+            MappedByteBuffer buffer = segment.buffer;
+            int records = (int) Math.min(1L << segmentShift, limit - segmentStart);
+            for (int block = 0; block * blockRecords < records; block++) {
+                if (segment.maxTimestamp.get(block) < fromMillis || segment.minTimestamp.get(block) >= toMillis) {
+                    continue;
+                }
+                int end = Math.min(records, (block + 1) * blockRecords);
+                for (int slot = block * blockRecords; slot < end; slot++) {
+                    int offset = slot * recordSize;
+                    long timestamp = (long) TIMESTAMP.getAcquire(buffer, offset + TIMESTAMP_OFFSET);
+                    if (timestamp == 0 || timestamp < fromMillis || timestamp >= toMillis) {
+                        continue;
+                    }
+                    if (atmId != ANY_ATM && buffer.getInt(offset + ATM_ID_OFFSET) != atmId) {
+                        continue;
+                    }
+                    view.moveTo(buffer, offset, timestamp);
+                    visitor.visit(view);
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+
+    // Maps the existing segments and rebuilds the time index from their timestamps
+    private void recover() throws IOException {
+        int count = 0;
+        while (Files.exists(segmentPath(count))) {
+            count++;
+        }
+        if (count == 0) {
+            return;
+        }
+        segment(count - 1);
+        long next = 0;
+        for (int s = 0; s < count; s++) {
+            Segment segment = segments[s];
+            for (int slot = 0; slot < 1 << segmentShift; slot++) {
+                long timestamp = segment.buffer.getLong(slot * recordSize + TIMESTAMP_OFFSET);
+                if (timestamp != 0) {
+                    segment.include(slot >>> blockShift, timestamp);
+                    next = ((long) s << segmentShift) + slot + 1;
+                }
+            }
+        }
+        claimed.set(next);
+    }
+
+    // Returns a segment, mapping it and any missing segments before it first
+    private Segment segment(int number) {
+        Segment[] current = segments;
+        if (number < current.length) {
+            return current[number];
+        }
+        segmentLock.lock();
+        try {
+            current = segments;
+            if (number >= current.length) {
+                Segment[] grown = Arrays.copyOf(current, number + 1);
+                for (int s = current.length; s <= number; s++) {
+                    grown[s] = map(s);
+                }
+                segments = grown;
+                current = grown;
+            }
+            return current[number];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            segmentLock.unlock();
+        }
+    }
+
+    private Segment map(int number) throws IOException {
+        long bytes = (long) recordSize << segmentShift;
+        try (FileChannel channel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new Segment(buffer, 1 << (segmentShift - blockShift));
+        }
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    // A mapped segment file and the time range of each of its blocks
+    private static final class Segment {
+        private final MappedByteBuffer buffer;
+        private final AtomicLongArray minTimestamp;
+        private final AtomicLongArray maxTimestamp;
+
+        Segment(MappedByteBuffer buffer, int blocks) {
+            this.buffer = buffer;
+            this.minTimestamp = new AtomicLongArray(blocks);
+            this.maxTimestamp = new AtomicLongArray(blocks);
+            for (int i = 0; i < blocks; i++) {
+                minTimestamp.set(i, Long.MAX_VALUE);
+                maxTimestamp.set(i, Long.MIN_VALUE);
+            }
+        }
+
+        void include(int block, long timestamp) {
+            if (timestamp < minTimestamp.get(block)) {
+                minTimestamp.accumulateAndGet(block, timestamp, Math::min);
+            }
+            if (timestamp > maxTimestamp.get(block)) {
+                maxTimestamp.accumulateAndGet(block, timestamp, Math::max);
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.history;
+
+import org.example.atm.WithdrawalStatus;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A view of one record of a {@link TransactionLog}.
+ * <p>
+ * A scan moves a single view from record to record instead of creating an object per record, so the view is only
+ * valid inside the {@link TransactionVisitor#visit(TransactionRecord)} call that received it. Copy any field that must
+ * outlive the call.
+ */
+public final class TransactionRecord {
+
+    private static final WithdrawalStatus[] STATUSES = WithdrawalStatus.values();
+
+    private final int denominations;
+    private ByteBuffer buffer;
+    private int offset;
+    private long timestamp;
+
+    TransactionRecord(int denominations) {
+        this.denominations = denominations;
+    }
+
+    void moveTo(ByteBuffer buffer, int offset, long timestamp) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Returns when the withdrawal finished.
+     *
+     * @return The time in milliseconds since the epoch.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public int getAtmId() {
+        return buffer.getInt(offset + TransactionLog.ATM_ID_OFFSET);
+    }
+
+    public long getAmount() {
+        return buffer.getLong(offset + TransactionLog.AMOUNT_OFFSET);
+    }
+
+    public WithdrawalStatus getStatus() {
+        return STATUSES[buffer.getInt(offset + TransactionLog.STATUS_OFFSET)];
+    }
+
+    public boolean isSuccessful() {
+        return buffer.getInt(offset + TransactionLog.STATUS_OFFSET) == WithdrawalStatus.SUCCESS.ordinal();
+    }
+
+    /**
+     * Returns the number of notes of a denomination the withdrawal dispensed.
+     *
+     * @param index The dense index of the denomination in the log's registry.
+     * @return The number of notes, zero if the withdrawal failed.
+     */
+    public int getCount(int index) {
+        if (index < 0 || index >= denominations) {
+            throw new IndexOutOfBoundsException("Denomination index " + index + " out of " + denominations);
+        }
+        return buffer.getInt(offset + TransactionLog.COUNTS_OFFSET + index * Integer.BYTES);
+    }
+}
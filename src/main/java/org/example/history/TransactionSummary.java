@@ -0,0 +1,66 @@
+package org.example.history;
+
+import org.example.atm.WithdrawalStatus;
+
+/**
+ * Totals over the records of a {@link TransactionLog} scan: withdrawals per status, the value dispensed and the notes
+ * dispensed per denomination.
+ */
+public final class TransactionSummary implements TransactionVisitor {
+
+    private final long[] outcomes;
+    private final long[] notes;
+    private long dispensedValue;
+
+    TransactionSummary(int denominations) {
+        this.outcomes = new long[WithdrawalStatus.values().length];
+        this.notes = new long[denominations];
+    }
+
+    @Override
+    public void visit(TransactionRecord record) {
+        outcomes[record.getStatus().ordinal()]++;
+        if (record.isSuccessful()) {
+            dispensedValue += record.getAmount();
+            for (int i = 0; i < notes.length; i++) {
+                notes[i] += record.getCount(i);
+            }
+        }
+    }
+
+    public long getCount(WithdrawalStatus status) {
+        return outcomes[status.ordinal()];
+    }
+
+    /**
+     * Returns the number of withdrawals summarized, whatever their outcome.
+     *
+     * @return The number of records.
+     */
+    public long getWithdrawals() {
+        long total = 0;
+        for (long outcome : outcomes) {
+            total += outcome;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the total value of the successful withdrawals.
+     *
+     * @return The value dispensed.
+     */
+    public long getDispensedValue() {
+        return dispensedValue;
+    }
+
+    /**
+     * Returns the notes dispensed of one denomination.
+     *
+     * @param index The dense index of the denomination in the log's registry.
+     * @return The number of notes.
+     */
+    public long getNotes(int index) {
+        return notes[index];
+    }
+}
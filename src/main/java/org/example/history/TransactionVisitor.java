@@ -0,0 +1,15 @@
+package org.example.history;
+
+/**
+ * Receives the records of a {@link TransactionLog} scan.
+ */
+@FunctionalInterface
+public interface TransactionVisitor {
+
+    /**
+     * Visits one record.
+     *
+     * @param record A view of the record, valid only during this call.
+     */
+    void visit(TransactionRecord record);
+}
@@ -0,0 +1,434 @@
+package org.example.journal;
+
+import org.example.atm.DenominationRegistry;
+import org.example.atm.InventoryLog;
+import org.example.atm.InventorySnapshot;
+import org.example.atm.NoteInventory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * A write-ahead journal that makes the note counts of a {@link NoteInventory} survive a crash.
+ * <p>
+ * The journal is the {@link InventoryLog} of its inventory: every change is appended to a journal segment as a
+ * fixed-size record holding its version, the change per denomination and a checksum before the inventory publishes
+ * it, and the committing thread does not return until its record, and the records of all earlier versions, have been
+ * forced to disk. Forcing uses group commit: the first waiting thread becomes the leader and forces everything
+ * appended so far, while the others wait and are released together, so concurrent withdrawals share the cost of one
+ * fsync. A record that cannot be written fails its commit and every later one, so the inventory never gets ahead of
+ * what the journal can recover.
+ * <p>
+ * Every {@code snapshotInterval} commits a background thread rolls the journal over to a new segment and writes the
+ * full counts to a snapshot file, after which the older segments are deleted; withdrawals never wait for a snapshot.
+ * On startup the journal loads the snapshot and replays the records that follow it in version order, stopping at the
+ * first missing version or damaged record.
+ */
+public class InventoryJournal implements InventoryLog, Closeable {
+
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private final Path directory;
+    private final long snapshotInterval;
+    private final NoteInventory inventory;
+
+    private final ReentrantLock lock;
+    private final ReentrantLock snapshotLock;
+    private final Condition progress;
+    private final ExecutorService snapshotter;
+    private final AtomicBoolean snapshotPending;
+    private FileChannel channel;
+    private long segmentNumber;
+    private long appendedVersion;
+    private long durableVersion;
+    private long commitsSinceSnapshot;
+    private boolean forcing;
+    private IOException failure;
+    private volatile IOException snapshotFailure;
+
+    private InventoryJournal(Path directory, long snapshotInterval, NoteInventory inventory, long segmentNumber) throws IOException {
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+        this.inventory = inventory;
+        this.lock = new ReentrantLock();
+        this.snapshotLock = new ReentrantLock();
+        this.progress = lock.newCondition();
+        this.snapshotter = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "inventory-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.snapshotPending = new AtomicBoolean();
+        this.appendedVersion = inventory.getVersion();
+        this.durableVersion = appendedVersion;
+        this.segmentNumber = segmentNumber;
+        this.channel = openSegment(segmentNumber);
+    }
+
+    /**
+     * Opens the journal in a directory, recovering the inventory it describes.
+     * <p>
+     * If the directory holds no journal yet, the inventory starts with the given counts. The recovered state is
+     * written to a fresh snapshot straight away, and the returned journal is already the inventory's log.
+     *
+     * @param directory        the directory holding the snapshot and journal segments
+     * @param initialCounts    the counts to start with when there is nothing to recover
+     * @param snapshotInterval the number of commits between two snapshots
+     * @return the opened journal
+     * @throws IOException if the journal cannot be read or written
+     */
+    public static InventoryJournal open(Path directory, int[] initialCounts, long snapshotInterval) throws IOException {
+        return open(directory, DenominationRegistry.standard(), initialCounts, snapshotInterval);
+    }
+
+    /**
+     * Opens the journal of an inventory with the denominations of a registry, recovering the inventory it describes.
+     *
+     * @param directory        the directory holding the snapshot and journal segments
+     * @param registry         the denominations the inventory stocks
+     * @param initialCounts    the counts to start with when there is nothing to recover
+     * @param snapshotInterval the number of commits between two snapshots
+     * @return the opened journal
+     * @throws IOException if the journal cannot be read or written, or was written for a different registry
+     * @see #open(Path, int[], long)
+     */
+    public static InventoryJournal open(Path directory, DenominationRegistry registry, int[] initialCounts,
+                                        long snapshotInterval) throws IOException {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("Snapshot interval must be positive: " + snapshotInterval);
+        }
+        Files.createDirectories(directory);
+        int[] counts = initialCounts.clone();
+        long version = readSnapshot(directory.resolve(SNAPSHOT_FILE), counts);
+        List<Path> segments = listSegments(directory);
+        version = replay(segments, counts, version);
+
+        long nextSegment = segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+        NoteInventory inventory = new NoteInventory(registry, counts, version);
+        InventoryJournal journal = new InventoryJournal(directory, snapshotInterval, inventory, nextSegment);
+        journal.writeSnapshot(counts, version);
+        for (Path segment : segments) {
+            Files.deleteIfExists(segment);
+        }
+        journal.inventory.setLog(journal);
+        return journal;
+    }
+
+    public NoteInventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Appends a change before the inventory publishes it, and schedules a background snapshot every
+     * {@code snapshotInterval} changes.
+     *
+     * @param version the version the change produces
+     * @param delta   the change per denomination
+     * @throws IOException if the record cannot be written, now or after an earlier failure
+     */
+    @Override
+    public void append(long version, int[] delta) throws IOException {
+        ByteBuffer record = encode(version, delta);
+        boolean snapshotDue;
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new IOException("Journal failed earlier", failure);
+            }
+            if (version != appendedVersion + 1) {
+                throw new IOException("Journal expected version " + (appendedVersion + 1) + " but got " + version);
+            }
+            try {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            } catch (IOException e) {
+                // A torn record would hide every record after it from recovery, so nothing more may be appended.
+                failure = e;
+                throw e;
+            }
+            appendedVersion = version;
+            snapshotDue = ++commitsSinceSnapshot >= snapshotInterval;
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (snapshotDue && snapshotPending.compareAndSet(false, true)) {
+            try {
+                snapshotter.execute(this::backgroundSnapshot);
+            } catch (RejectedExecutionException e) {
+                // The journal is closing; the segments still hold the change.
+                snapshotPending.set(false);
+            }
+        }
+    }
+
+    /**
+     * Waits until a change, and every change before it, has been forced to disk. The first waiting thread forces
+     * everything appended so far on behalf of all of them.
+     *
+     * @param version the version to wait for
+     * @throws IOException if the journal cannot be forced or the wait is interrupted
+     */
+    @Override
+    public void awaitDurable(long version) throws IOException {
+        lock.lock();
+        try {
+            while (durableVersion < version) {
+                if (failure != null) {
+                    throw new IOException("Journal failed earlier", failure);
+                }
+                if (forcing || appendedVersion < version) {
+                    progress.await();
+                    continue;
+                }
+                forcing = true;
+                long target = appendedVersion;
+                FileChannel forced = channel;
+                lock.unlock();
+                IOException forceFailure = null;
+                try {
+                    forced.force(false);
+                } catch (IOException e) {
+                    forceFailure = e;
+                }
+                lock.lock();
+                forcing = false;
+                progress.signalAll();
+                if (forceFailure != null) {
+                    failure = forceFailure;
+                    throw forceFailure;
+                }
+                durableVersion = Math.max(durableVersion, target);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for inventory version " + version);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rolls the journal over to a new segment and writes a snapshot of the current counts, then deletes the older
+     * segments. Withdrawals keep committing while the snapshot is written. The journal calls this on its own
+     * background thread every {@code snapshotInterval} commits.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            List<Path> obsolete;
+            long rolledOver;
+            lock.lock();
+            try {
+                while (forcing) {
+                    progress.awaitUninterruptibly();
+                }
+                // Everything in the old segment becomes durable before the segment is replaced by the snapshot.
+                channel.force(false);
+                channel.close();
+                durableVersion = Math.max(durableVersion, appendedVersion);
+                progress.signalAll();
+                obsolete = listSegments(directory);
+                segmentNumber++;
+                channel = openSegment(segmentNumber);
+                rolledOver = appendedVersion;
+                commitsSinceSnapshot = 0;
+            } finally {
+                lock.unlock();
+            }
+            // Records are appended just before their state is published, so the old segments may end with a version
+            // the inventory has not published yet. The snapshot must cover it before those segments are deleted.
+            InventorySnapshot state = inventory.snapshot();
+            while (state.getVersion() < rolledOver) {
+                Thread.onSpinWait();
+                state = inventory.snapshot();
+            }
+            // Only snapshot changes that are durable, so the snapshot never contains notes that were not dispensed.
+            awaitDurable(state.getVersion());
+            writeSnapshot(state.getCounts(), state.getVersion());
+            for (Path segment : obsolete) {
+                Files.deleteIfExists(segment);
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Waits for a background snapshot in progress, then forces and closes the journal. Commits to the inventory
+     * fail from now on.
+     *
+     * @throws IOException if the journal cannot be forced, or the last background snapshot failed
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            channel.force(false);
+            channel.close();
+            if (failure == null) {
+                failure = new IOException("Journal is closed");
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (snapshotFailure != null) {
+            throw snapshotFailure;
+        }
+    }
+
+    // Runs a scheduled snapshot; a failure is kept for close, as the journal segments still hold every change
+    private void backgroundSnapshot() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            snapshotFailure = e;
+        } finally {
+            snapshotPending.set(false);
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        Path segment = directory.resolve(SEGMENT_PREFIX + String.format("%019d", number) + SEGMENT_SUFFIX);
+        FileChannel opened = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            // Forcing the records is not enough if the file itself can vanish: make its directory entry durable first.
+            forceDirectory();
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        return opened;
+    }
+
+    // Makes the creations, renames and deletions in the journal directory durable
+    private void forceDirectory() throws IOException {
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+    }
+
+    private void writeSnapshot(int[] counts, long version) throws IOException {
+        ByteBuffer buffer = encode(version, counts);
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // The rename must be durable before the segments it replaces are deleted.
+        forceDirectory();
+    }
+
+    private static long readSnapshot(Path snapshot, int[] counts) throws IOException {
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+        if (buffer.remaining() != recordSize(counts.length) || !checksumMatches(buffer, 0, counts.length)) {
+            throw new IOException("Corrupt inventory snapshot: " + snapshot);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buffer.getInt(Long.BYTES + i * Integer.BYTES);
+        }
+        return buffer.getLong(0);
+    }
+
+    // Applies the records that directly follow the snapshot version, in version order, and returns the last version applied
+    private static long replay(List<Path> segments, int[] counts, long version) throws IOException {
+        int recordSize = recordSize(counts.length);
+        TreeMap<Long, int[]> deltas = new TreeMap<>();
+        for (Path segment : segments) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+            for (int offset = 0; offset + recordSize <= buffer.limit(); offset += recordSize) {
+                if (!checksumMatches(buffer, offset, counts.length)) {
+                    break;
+                }
+                int[] delta = new int[counts.length];
+                for (int i = 0; i < delta.length; i++) {
+                    delta[i] = buffer.getInt(offset + Long.BYTES + i * Integer.BYTES);
+                }
+                deltas.put(buffer.getLong(offset), delta);
+            }
+        }
+        for (int[] delta = deltas.get(version + 1); delta != null; delta = deltas.get(version + 1)) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += delta[i];
+            }
+            version++;
+        }
+        return version;
+    }
+
+    // A record holds the version, one int per denomination and a CRC32 of both
+    private static int recordSize(int denominationCount) {
+        return Long.BYTES + denominationCount * Integer.BYTES + Integer.BYTES;
+    }
+
+    private static ByteBuffer encode(long version, int[] values) {
+        int recordSize = recordSize(values.length);
+        ByteBuffer buffer = ByteBuffer.allocate(recordSize);
+        buffer.putLong(version);
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, recordSize - Integer.BYTES);
+        buffer.putInt((int) crc.getValue());
+        return buffer.flip();
+    }
+
+    private static boolean checksumMatches(ByteBuffer buffer, int offset, int denominationCount) {
+        int recordSize = recordSize(denominationCount);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), offset, recordSize - Integer.BYTES);
+        return (int) crc.getValue() == buffer.getInt(offset + recordSize - Integer.BYTES);
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(segments::add);
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,397 @@
+package org.example.limit;
+
+import org.example.constant.ProjectConstants;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Enforces per-card withdrawal limits across all ATMs of this JVM: a limit per transaction and a limit on the total
+ * withdrawn per calendar day.
+ * <p>
+ * The amounts withdrawn today are kept in {@link ProjectConstants#CARD_LIMIT_STRIPES} independent stripes, chosen by
+ * the hash of the card number. Each stripe is a small open-addressing table of primitive card numbers and amounts
+ * guarded by its own lock, so withdrawals on different cards almost never meet, and checking and adding an amount is
+ * one short critical section without any per-card objects. Because the check and the add happen under the same lock,
+ * two withdrawals racing on one card can never both pass a limit that only one of them fits under.
+ * <p>
+ * Expiry is bucketed by day: every stripe remembers the day its amounts belong to, and the first access on a later
+ * day drops the whole table at once. No timer runs and no entry is ever expired one by one.
+ * <p>
+ * Cards given their own limits by {@link #setLimits(long, long, long)} are kept in a second primitive table of the
+ * same stripe, which survives the change of day and is read under the same lock as the amounts.
+ */
+public class CardLimitTracker {
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int INITIAL_STRIPE_CAPACITY = 16;
+    private static final ConcurrentHashMap<String, CardLimitTracker> SHARED = new ConcurrentHashMap<>();
+
+    private final long transactionLimit;
+    private final long dailyLimit;
+    private final Clock clock;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private volatile Day today;
+
+    /**
+     * Constructs a tracker with the limits of {@link ProjectConstants#CARD_TRANSACTION_LIMIT} and
+     * {@link ProjectConstants#CARD_DAILY_LIMIT}, whose days follow the system time zone.
+     */
+    public CardLimitTracker() {
+        this(ProjectConstants.CARD_TRANSACTION_LIMIT, ProjectConstants.CARD_DAILY_LIMIT, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructs a tracker.
+     *
+     * @param transactionLimit The largest amount of a single withdrawal.
+     * @param dailyLimit       The largest total a card may withdraw per day.
+     * @param clock            The clock whose time zone decides where a day ends.
+     */
+    public CardLimitTracker(long transactionLimit, long dailyLimit, Clock clock) {
+        if (transactionLimit <= 0 || dailyLimit <= 0) {
+            throw new IllegalArgumentException("Limits must be positive: " + transactionLimit + ", " + dailyLimit);
+        }
+        this.transactionLimit = transactionLimit;
+        this.dailyLimit = dailyLimit;
+        this.clock = clock;
+        this.stripes = new Stripe[ProjectConstants.CARD_LIMIT_STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeMask = stripes.length - 1;
+        this.today = dayOf(clock.millis());
+    }
+
+    /**
+     * Returns the tracker shared by all ATMs of this JVM that dispense the {@link ProjectConstants#DEFAULT_CURRENCY},
+     * so that a card's limit covers every machine.
+     *
+     * @return The shared tracker.
+     */
+    public static CardLimitTracker shared() {
+        return shared(ProjectConstants.DEFAULT_CURRENCY);
+    }
+
+    /**
+     * Returns the tracker shared by all ATMs of this JVM that dispense a currency. Amounts of different currencies
+     * cannot be added up, so every currency has its own tracker and its own locks. A currency whose limits were not
+     * set through {@link #shared(String, long, long)} first gets {@link ProjectConstants#CARD_TRANSACTION_LIMIT} and
+     * {@link ProjectConstants#CARD_DAILY_LIMIT}, which are meant for whole rupees.
+     *
+     * @param currency The currency code.
+     * @return The shared tracker of the currency.
+     */
+    public static CardLimitTracker shared(String currency) {
+        return SHARED.computeIfAbsent(currency, code -> new CardLimitTracker());
+    }
+
+    /**
+     * Returns the tracker shared by all ATMs of this JVM that dispense a currency, creating it with the given limits.
+     * Limits are in the units the currency's inventories count in, for example cents.
+     *
+     * @param currency         The currency code.
+     * @param transactionLimit The largest amount of a single withdrawal.
+     * @param dailyLimit       The largest total a card may withdraw per day.
+     * @return The shared tracker of the currency.
+     * @throws IllegalStateException If the currency's tracker already exists with other limits.
+     */
+    public static CardLimitTracker shared(String currency, long transactionLimit, long dailyLimit) {
+        CardLimitTracker tracker = SHARED.computeIfAbsent(currency,
+                code -> new CardLimitTracker(transactionLimit, dailyLimit, Clock.systemDefaultZone()));
+        if (tracker.transactionLimit != transactionLimit || tracker.dailyLimit != dailyLimit) {
+            throw new IllegalStateException("Card limits of " + currency + " are already " + tracker.transactionLimit
+                    + " per transaction and " + tracker.dailyLimit + " per day");
+        }
+        return tracker;
+    }
+
+    public long getTransactionLimit() {
+        return transactionLimit;
+    }
+
+    public long getDailyLimit() {
+        return dailyLimit;
+    }
+
+    /**
+     * Gives one card its own limits instead of the defaults.
+     *
+     * @param cardId           The card number.
+     * @param transactionLimit The largest amount of a single withdrawal.
+     * @param dailyLimit       The largest total the card may withdraw per day.
+     */
+    public void setLimits(long cardId, long transactionLimit, long dailyLimit) {
+        if (transactionLimit <= 0 || dailyLimit <= 0) {
+            throw new IllegalArgumentException("Limits must be positive: " + transactionLimit + ", " + dailyLimit);
+        }
+        Stripe stripe = stripe(cardId);
+        stripe.lock.lock();
+        try {
+            stripe.putLimits(cardId, transactionLimit, dailyLimit);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Reserves an amount against a card's limits. Call {@link #release(long, long)} if the withdrawal then fails.
+     *
+     * @param cardId The card number.
+     * @param amount The amount about to be withdrawn; amounts that are not positive are let through unrecorded.
+     * @return {@code true} if the amount fits under both limits and was added to today's total.
+     */
+    public boolean tryAcquire(long cardId, long amount) {
+        if (amount <= 0) {
+            return true;
+        }
+        long day = currentDay();
+        Stripe stripe = stripe(cardId);
+        stripe.lock.lock();
+        try {
+            long perTransaction = transactionLimit;
+            long perDay = dailyLimit;
+            if (stripe.limitCount > 0) {
+                int limitSlot = stripe.limitSlotFor(cardId);
+                if (stripe.limitKeys[limitSlot] == cardId) {
+                    perTransaction = stripe.transactionLimits[limitSlot];
+                    perDay = stripe.dailyLimits[limitSlot];
+                }
+            }
+            if (amount > perTransaction || amount > perDay) {
+                return false;
+            }
+            stripe.roll(day);
+            int slot = stripe.slotFor(cardId);
+            long used = stripe.keys[slot] == cardId ? stripe.used[slot] : 0;
+            if (used + amount > perDay) {
+                return false;
+            }
+            stripe.put(slot, cardId, used + amount);
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back an amount reserved today by {@link #tryAcquire(long, long)}. Amounts reserved on an earlier day
+     * expired with that day and are not given back.
+     *
+     * @param cardId The card number.
+     * @param amount The amount to give back.
+     */
+    public void release(long cardId, long amount) {
+        if (amount <= 0) {
+            return;
+        }
+        long day = currentDay();
+        Stripe stripe = stripe(cardId);
+        stripe.lock.lock();
+        try {
+            stripe.roll(day);
+            int slot = stripe.slotFor(cardId);
+            if (stripe.keys[slot] == cardId) {
+                stripe.used[slot] = Math.max(0, stripe.used[slot] - amount);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the total a card has withdrawn today.
+     *
+     * @param cardId The card number.
+     * @return The amount withdrawn today.
+     */
+    public long getUsedToday(long cardId) {
+        long day = currentDay();
+        Stripe stripe = stripe(cardId);
+        stripe.lock.lock();
+        try {
+            stripe.roll(day);
+            int slot = stripe.slotFor(cardId);
+            return stripe.keys[slot] == cardId ? stripe.used[slot] : 0;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of cards with an amount recorded today.
+     *
+     * @return The number of tracked cards.
+     */
+    public long getTrackedCards() {
+        long day = currentDay();
+        long cards = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.roll(day);
+                cards += stripe.size;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return cards;
+    }
+
+    private Stripe stripe(long cardId) {
+        if (cardId == EMPTY) {
+            throw new IllegalArgumentException("Invalid card number: " + cardId);
+        }
+        return stripes[(int) (mix(cardId) >>> 32) & stripeMask];
+    }
+
+    // Returns the current day number, recomputing the day boundaries only when the clock has left the cached day
+    private long currentDay() {
+        long now = clock.millis();
+        Day day = today;
+        if (now < day.startMillis || now >= day.endMillis) {
+            day = dayOf(now);
+            today = day;
+        }
+        return day.number;
+    }
+
+    private Day dayOf(long millis) {
+        ZoneId zone = clock.getZone();
+        LocalDate date = Instant.ofEpochMilli(millis).atZone(zone).toLocalDate();
+        long start = date.atStartOfDay(zone).toInstant().toEpochMilli();
+        long end = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        return new Day(date.toEpochDay(), start, end);
+    }
+
+    private static long mix(long key) {
+        key = (key ^ (key >>> 33)) * 0xff51afd7ed558ccdL;
+        key = (key ^ (key >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return key ^ (key >>> 33);
+    }
+
+    // The day number and its bounds in epoch milliseconds
+    private static final class Day {
+        private final long number;
+        private final long startMillis;
+        private final long endMillis;
+
+        Day(long number, long startMillis, long endMillis) {
+            this.number = number;
+            this.startMillis = startMillis;
+            this.endMillis = endMillis;
+        }
+    }
+
+    // One lock and the open-addressing tables of the cards whose hash falls into it: today's amounts, which are
+    // dropped with the day, and the cards' own limits, which are kept
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long day = Long.MIN_VALUE;
+        private long[] keys = emptyKeys(INITIAL_STRIPE_CAPACITY);
+        private long[] used = new long[INITIAL_STRIPE_CAPACITY];
+        private int size;
+        private long[] limitKeys = emptyKeys(INITIAL_STRIPE_CAPACITY);
+        private long[] transactionLimits = new long[INITIAL_STRIPE_CAPACITY];
+        private long[] dailyLimits = new long[INITIAL_STRIPE_CAPACITY];
+        private int limitCount;
+
+        // Drops the amounts of an earlier day; a clock that steps back stays in the later day
+        void roll(long today) {
+            if (today > day) {
+                day = today;
+                if (size > 0) {
+                    keys = emptyKeys(INITIAL_STRIPE_CAPACITY);
+                    used = new long[INITIAL_STRIPE_CAPACITY];
+                    size = 0;
+                }
+            }
+        }
+
+        // Returns the slot holding the card, or the empty slot where it belongs
+        int slotFor(long cardId) {
+            int mask = keys.length - 1;
+            int slot = (int) mix(cardId) & mask;
+            while (keys[slot] != cardId && keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        void put(int slot, long cardId, long amount) {
+            if (keys[slot] == cardId) {
+                used[slot] = amount;
+                return;
+            }
+            keys[slot] = cardId;
+            used[slot] = amount;
+            if (++size * 4 > keys.length * 3) {
+                grow();
+            }
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            long[] oldUsed = used;
+            keys = emptyKeys(oldKeys.length * 2);
+            used = new long[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slotFor(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    used[slot] = oldUsed[i];
+                }
+            }
+        }
+
+        // Returns the slot holding the card's own limits, or the empty slot where they belong
+        int limitSlotFor(long cardId) {
+            int mask = limitKeys.length - 1;
+            int slot = (int) mix(cardId) & mask;
+            while (limitKeys[slot] != cardId && limitKeys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        void putLimits(long cardId, long transactionLimit, long dailyLimit) {
+            int slot = limitSlotFor(cardId);
+            boolean added = limitKeys[slot] != cardId;
+            limitKeys[slot] = cardId;
+            transactionLimits[slot] = transactionLimit;
+            dailyLimits[slot] = dailyLimit;
+            if (added && ++limitCount * 4 > limitKeys.length * 3) {
+                growLimits();
+            }
+        }
+
+        private void growLimits() {
+            long[] oldKeys = limitKeys;
+            long[] oldTransaction = transactionLimits;
+            long[] oldDaily = dailyLimits;
+            limitKeys = emptyKeys(oldKeys.length * 2);
+            transactionLimits = new long[oldKeys.length * 2];
+            dailyLimits = new long[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = limitSlotFor(oldKeys[i]);
+                    limitKeys[slot] = oldKeys[i];
+                    transactionLimits[slot] = oldTransaction[i];
+                    dailyLimits[slot] = oldDaily[i];
+                }
+            }
+        }
+
+        private static long[] emptyKeys(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+    }
+}
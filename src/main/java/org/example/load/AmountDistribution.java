@@ -0,0 +1,81 @@
+package org.example.load;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * A discrete distribution of withdrawal amounts, each drawn with a given relative weight.
+ * <p>
+ * Written as a comma-separated list of {@code amount:weight} pairs, for example
+ * {@code 100:10,500:30,2000:60} draws 2000 six times as often as 100. Sampling is a binary search over the
+ * cumulative weights and allocates nothing.
+ */
+public final class AmountDistribution {
+
+    private final long[] amounts;
+    private final long[] cumulativeWeights;
+
+    private AmountDistribution(long[] amounts, long[] cumulativeWeights) {
+        this.amounts = amounts;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    /**
+     * Parses a distribution from its {@code amount:weight,...} form.
+     *
+     * @param spec The distribution.
+     * @return The parsed distribution.
+     * @throws IllegalArgumentException If the text is malformed or a weight is not positive.
+     */
+    public static AmountDistribution parse(String spec) {
+        String[] pairs = spec.split(",");
+        long[] amounts = new long[pairs.length];
+        long[] cumulative = new long[pairs.length];
+        long total = 0;
+        for (int i = 0; i < pairs.length; i++) {
+            String[] parts = pairs[i].trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected amount:weight but got: " + pairs[i].trim());
+            }
+            try {
+                amounts[i] = Long.parseLong(parts[0].trim());
+                long weight = Long.parseLong(parts[1].trim());
+                if (weight <= 0) {
+                    throw new IllegalArgumentException("Weights must be positive: " + pairs[i].trim());
+                }
+                total += weight;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Expected amount:weight but got: " + pairs[i].trim());
+            }
+            cumulative[i] = total;
+        }
+        return new AmountDistribution(amounts, cumulative);
+    }
+
+    /**
+     * Draws an amount.
+     *
+     * @param random The random source of the calling thread.
+     * @return The amount.
+     */
+    public long sample(SplittableRandom random) {
+        long target = random.nextLong(cumulativeWeights[cumulativeWeights.length - 1]);
+        int index = Arrays.binarySearch(cumulativeWeights, target + 1);
+        return amounts[index >= 0 ? index : -index - 1];
+    }
+
+    /**
+     * Returns the mean amount drawn.
+     *
+     * @return The weighted mean.
+     */
+    public double getMean() {
+        double sum = 0;
+        long previous = 0;
+        for (int i = 0; i < amounts.length; i++) {
+            sum += (double) amounts[i] * (cumulativeWeights[i] - previous);
+            previous = cumulativeWeights[i];
+        }
+        return sum / previous;
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.load;
+
+/**
+ * Describes generated load: how many withdrawals, from how many threads, at what rate and for which amounts.
+ * <p>
+ * With a rate of zero every thread withdraws as fast as it can (closed loop). With a positive rate each thread
+ * issues its share of withdrawals on a fixed schedule (open loop) and latency is measured from the scheduled start,
+ * so time spent waiting behind a slow withdrawal counts against the engine rather than being hidden.
+ */
+public final class SyntheticWorkload {
+
+    private final long operations;
+    private final int threads;
+    private final long ratePerSecond;
+    private final AmountDistribution amounts;
+    private final long seed;
+
+    /**
+     * Constructs a workload description.
+     *
+     * @param operations    The total number of withdrawals.
+     * @param threads       The number of threads issuing them.
+     * @param ratePerSecond The total arrival rate over all threads, or 0 for as fast as possible.
+     * @param amounts       The distribution the amounts are drawn from.
+     * @param seed          The seed of the random amounts and ATM choices, so runs can be repeated.
+     */
+    public SyntheticWorkload(long operations, int threads, long ratePerSecond, AmountDistribution amounts, long seed) {
+        if (operations < 0 || threads <= 0 || ratePerSecond < 0) {
+            throw new IllegalArgumentException("Operations and rate must not be negative and threads must be positive");
+        }
+        this.operations = operations;
+        this.threads = threads;
+        this.ratePerSecond = ratePerSecond;
+        this.amounts = amounts;
+        this.seed = seed;
+    }
+
+    public long getOperations() {
+        return operations;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public AmountDistribution getAmounts() {
+        return amounts;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
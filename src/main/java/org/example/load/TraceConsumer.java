@@ -0,0 +1,16 @@
+package org.example.load;
+
+/**
+ * Receives the withdrawals of a trace as {@link TraceReader} parses them.
+ */
+@FunctionalInterface
+public interface TraceConsumer {
+
+    /**
+     * Called once per withdrawal line.
+     *
+     * @param atmId  The ATM the withdrawal was recorded on, or -1 if the line names no ATM.
+     * @param amount The amount withdrawn.
+     */
+    void accept(int atmId, long amount);
+}
@@ -0,0 +1,200 @@
+package org.example.load;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams withdrawals out of a recorded trace file without per-line objects.
+ * <p>
+ * A trace has one withdrawal per line: either just the amount, or the ATM id and the amount separated by a comma or
+ * whitespace. Blank lines and lines starting with {@code #} are skipped, and both {@code \n} and {@code \r\n} line
+ * ends are accepted:
+ * <pre>
+ * # atm,amount
+ * 17,2500
+ * 3,800
+ * 1500
+ * </pre>
+ * The file is memory-mapped in windows and parsed byte by byte with a small state machine, so no strings, scanners or
+ * line buffers are created however large the trace is. A trace can be {@link #split(Path, int) split} at line
+ * boundaries so that several threads parse their own part of it.
+ */
+public final class TraceReader {
+
+    private static final long WINDOW_SIZE = 1L << 28;
+
+    private TraceReader() {
+    }
+
+    /**
+     * Splits a trace into parts of roughly equal size that start and end at line boundaries.
+     *
+     * @param trace The trace file.
+     * @param parts The number of parts wanted.
+     * @return The boundaries: part {@code i} covers the bytes from {@code bounds[i]} up to {@code bounds[i + 1]}.
+     * @throws IOException If the file cannot be read.
+     */
+    public static long[] split(Path trace, int parts) throws IOException {
+        if (parts <= 0) {
+            throw new IllegalArgumentException("Number of parts must be positive: " + parts);
+        }
+        try (FileChannel channel = FileChannel.open(trace, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = new long[parts + 1];
+            bounds[parts] = size;
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            for (int i = 1; i < parts; i++) {
+                long position = Math.max(bounds[i - 1], size * i / parts);
+                bounds[i] = position == 0 ? 0 : nextLineStart(channel, position - 1, size, buffer);
+            }
+            return bounds;
+        }
+    }
+
+    /**
+     * Parses the whole trace.
+     *
+     * @param trace    The trace file.
+     * @param consumer Receives each withdrawal.
+     * @return The number of withdrawals read.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If a line is malformed.
+     */
+    public static long read(Path trace, TraceConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(trace, StandardOpenOption.READ)) {
+            return read(channel, 0, channel.size(), consumer);
+        }
+    }
+
+    /**
+     * Parses the part of a trace between two line boundaries, as returned by {@link #split(Path, int)}.
+     *
+     * @param trace    The trace file.
+     * @param start    The offset of the first byte to parse.
+     * @param end      The offset after the last byte to parse.
+     * @param consumer Receives each withdrawal.
+     * @return The number of withdrawals read.
+     * @throws IOException If the file cannot be read.
+     * @throws IllegalArgumentException If a line is malformed.
+     */
+    public static long read(Path trace, long start, long end, TraceConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(trace, StandardOpenOption.READ)) {
+            return read(channel, start, end, consumer);
+        }
+    }
+
+    private static long read(FileChannel channel, long start, long end, TraceConsumer consumer) throws IOException {
+        Parser parser = new Parser(consumer, start);
+        for (long window = start; window < end; window += WINDOW_SIZE) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, window, Math.min(WINDOW_SIZE, end - window));
+            while (bytes.hasRemaining()) {
+                parser.accept(bytes.get());
+            }
+        }
+        parser.accept((byte) '\n');
+        return parser.lines;
+    }
+
+    // Returns the offset just after the first line end at or after a position
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer) throws IOException {
+        long offset = position;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    /**
+     * Turns bytes into withdrawals. Lines may span mapping windows, so all state lives here between bytes.
+     */
+    private static final class Parser {
+        private final TraceConsumer consumer;
+        private long offset;
+        private long lineStart;
+        private long lines;
+        private long value;
+        private boolean inNumber;
+        private boolean inComment;
+        private int fields;
+        private long firstField;
+        private long secondField;
+
+        private Parser(TraceConsumer consumer, long offset) {
+            this.consumer = consumer;
+            this.offset = offset;
+            this.lineStart = offset;
+        }
+
+        private void accept(byte b) {
+            if (b == '\n') {
+                endLine();
+            } else if (!inComment) {
+                if (b >= '0' && b <= '9') {
+                    if (value > (Long.MAX_VALUE - (b - '0')) / 10) {
+                        throw malformed("number out of range");
+                    }
+                    value = value * 10 + (b - '0');
+                    inNumber = true;
+                } else if (b == ',' || b == ' ' || b == '\t' || b == '\r') {
+                    endField();
+                } else if (b == '#' && fields == 0 && !inNumber) {
+                    inComment = true;
+                } else {
+                    throw malformed("unexpected character '" + (char) b + "'");
+                }
+            }
+            offset++;
+        }
+
+        private void endField() {
+            if (!inNumber) {
+                return;
+            }
+            if (fields == 0) {
+                firstField = value;
+            } else if (fields == 1) {
+                secondField = value;
+            } else {
+                throw malformed("too many fields");
+            }
+            fields++;
+            value = 0;
+            inNumber = false;
+        }
+
+        private void endLine() {
+            endField();
+            if (fields == 1) {
+                consumer.accept(-1, firstField);
+                lines++;
+            } else if (fields == 2) {
+                if (firstField > Integer.MAX_VALUE) {
+                    throw malformed("ATM id out of range");
+                }
+                consumer.accept((int) firstField, secondField);
+                lines++;
+            }
+            fields = 0;
+            inComment = false;
+            lineStart = offset + 1;
+        }
+
+        private IllegalArgumentException malformed(String reason) {
+            return new IllegalArgumentException("Malformed trace line at byte " + lineStart + ": " + reason);
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.load;
+
+import org.example.atm.ATM;
+import org.example.atm.AtmFleet;
+import org.example.atm.DispenseResult;
+import org.example.atm.NoteInventory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pushes large numbers of withdrawals through a fleet of ATMs for capacity planning, either replayed from a trace
+ * or generated from an {@link AmountDistribution}.
+ * <p>
+ * Withdrawals go through {@link ATM#withdraw(long, DispenseResult)} with one reused result per thread, so the
+ * driver adds no garbage of its own and measures the engine. Trace lines that name an ATM go to that ATM, modulo the fleet size; the
+ * others and all synthetic withdrawals are spread over the fleet. A long run would drain the ATMs and turn into a
+ * test of the failure path, so ATMs whose balance drops below a threshold can be topped up again outside the timed
+ * part of a withdrawal.
+ */
+public class WorkloadDriver {
+
+    private final AtmFleet fleet;
+    private final int[] fullCounts;
+    private final long replenishBelow;
+
+    /**
+     * Constructs a driver.
+     *
+     * @param fleet          The ATMs to withdraw from.
+     * @param fullCounts     The counts an ATM is topped up to, indexed by its registry's dense indices.
+     * @param replenishBelow The balance below which an ATM is topped up, or 0 to never top up.
+     */
+    public WorkloadDriver(AtmFleet fleet, int[] fullCounts, long replenishBelow) {
+        if (fleet.size() == 0) {
+            throw new IllegalArgumentException("The fleet has no ATMs");
+        }
+        this.fleet = fleet;
+        this.fullCounts = fullCounts.clone();
+        this.replenishBelow = replenishBelow;
+    }
+
+    /**
+     * Creates a fleet of identical ATMs with the standard denominations.
+     *
+     * @param atms   The number of ATMs.
+     * @param counts The initial note counts of each ATM.
+     * @return The fleet.
+     */
+    public static AtmFleet newFleet(int atms, int[] counts) {
+        AtmFleet fleet = new AtmFleet();
+        for (int i = 0; i < atms; i++) {
+            fleet.register(new ATM(new NoteInventory(counts)));
+        }
+        return fleet;
+    }
+
+    /**
+     * Replays a trace file. The file is split at line boundaries and each thread replays its own part, so
+     * withdrawals keep their recorded order only within a part.
+     *
+     * @param trace   The trace file, in the format described by {@link TraceReader}.
+     * @param threads The number of replay threads.
+     * @return The report of the run.
+     * @throws IOException If the trace cannot be read.
+     */
+    public WorkloadReport replay(Path trace, int threads) throws IOException {
+        long[] bounds = TraceReader.split(trace, threads);
+        WorkloadReport report = new WorkloadReport();
+        List<Runnable> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long start = bounds[t];
+            final long end = bounds[t + 1];
+            workers.add(() -> {
+                DispenseResult result = new DispenseResult();
+                long[] sequence = {0};
+                try {
+                    TraceReader.read(trace, start, end, (atmId, amount) -> {
+                        int target = atmId >= 0 ? atmId : (int) (sequence[0]++ % fleet.size());
+                        execute(target, amount, result, report, System.nanoTime());
+                    });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        try {
+            run(workers, report);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return report;
+    }
+
+    /**
+     * Generates and runs a synthetic workload.
+     *
+     * @param workload The workload description.
+     * @return The report of the run.
+     */
+    public WorkloadReport run(SyntheticWorkload workload) {
+        WorkloadReport report = new WorkloadReport();
+        int threads = workload.getThreads();
+        long intervalNanos = workload.getRatePerSecond() == 0 ? 0 : 1_000_000_000L * threads / workload.getRatePerSecond();
+        SplittableRandom seeds = new SplittableRandom(workload.getSeed());
+        List<Runnable> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long operations = workload.getOperations() / threads + (t < workload.getOperations() % threads ? 1 : 0);
+            SplittableRandom random = seeds.split();
+            workers.add(() -> {
+                DispenseResult result = new DispenseResult();
+                long scheduleStart = System.nanoTime();
+                for (long i = 0; i < operations; i++) {
+                    long amount = workload.getAmounts().sample(random);
+                    int atmId = random.nextInt(fleet.size());
+                    long begin;
+                    if (intervalNanos == 0) {
+                        begin = System.nanoTime();
+                    } else {
+                        begin = scheduleStart + i * intervalNanos;
+                        long wait;
+                        while ((wait = begin - System.nanoTime()) > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                    }
+                    execute(atmId, amount, result, report, begin);
+                }
+            });
+        }
+        run(workers, report);
+        return report;
+    }
+
+    private void execute(int atmId, long amount, DispenseResult result, WorkloadReport report, long begin) {
+        ATM atm = fleet.get(Math.floorMod(atmId, fleet.size()));
+        atm.withdraw(amount, result);
+        report.record(result.getStatus(), System.nanoTime() - begin);
+        if (replenishBelow > 0) {
+            NoteInventory inventory = atm.getInventory();
+            if (inventory.getTotalBalance() < replenishBelow) {
+                for (int i = 0; i < fullCounts.length; i++) {
+                    int missing = fullCounts[i] - inventory.getCount(i);
+                    if (missing > 0) {
+                        inventory.refill(i, missing);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void run(List<Runnable> workers, WorkloadReport report) {
+        ExecutorService executor = Executors.newFixedThreadPool(workers.size());
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Runnable worker : workers) {
+                futures.add(executor.submit(worker));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the workload", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException || e.getCause() instanceof IllegalArgumentException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Workload thread failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        report.setElapsedNanos(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,120 @@
+package org.example.load;
+
+import org.example.atm.WithdrawalStatus;
+import org.example.exception.AmountNegativeException;
+import org.example.exception.DenominationUnavailableException;
+import org.example.exception.InsufficientFundsException;
+import org.example.exception.LimitExceededException;
+import org.example.metrics.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The result of a workload run: throughput, latency percentiles and the mix of outcomes.
+ * <p>
+ * Failures are reported under the exception that {@link org.example.atm.ATM#withdraw(long)} would have thrown for them,
+ * so the mix reads the same as the errors callers of the exception-based API see.
+ */
+public class WorkloadReport {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final LatencyHistogram latency;
+    private final LongAdder[] outcomes;
+    private long elapsedNanos;
+
+    public WorkloadReport() {
+        this.latency = new LatencyHistogram();
+        this.outcomes = new LongAdder[WithdrawalStatus.values().length];
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one withdrawal.
+     *
+     * @param status       The outcome.
+     * @param latencyNanos The time from its (scheduled) start to its end.
+     */
+    void record(WithdrawalStatus status, long latencyNanos) {
+        outcomes[status.ordinal()].increment();
+        latency.record(latencyNanos);
+    }
+
+    void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getOperations() {
+        long total = 0;
+        for (LongAdder outcome : outcomes) {
+            total += outcome.sum();
+        }
+        return total;
+    }
+
+    public long getCount(WithdrawalStatus status) {
+        return outcomes[status.ordinal()].sum();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Returns the number of withdrawals completed per second of wall-clock time.
+     *
+     * @return The throughput.
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0 : getOperations() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Renders the report as text.
+     *
+     * @return The report.
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "operations=%d elapsed=%.3fs throughput=%.0f/s%n",
+                getOperations(), elapsedNanos / 1e9, getThroughput()));
+        out.append("latency_us");
+        for (double quantile : QUANTILES) {
+            out.append(String.format(Locale.ROOT, " p%s=%.1f", trim(quantile * 100), latency.getPercentile(quantile) / 1e3));
+        }
+        out.append(String.format(Locale.ROOT, " max=%.1f mean=%.1f%n", latency.getMax() / 1e3, latency.getMean() / 1e3));
+        long operations = getOperations();
+        for (WithdrawalStatus status : WithdrawalStatus.values()) {
+            long count = getCount(status);
+            out.append(String.format(Locale.ROOT, "%s=%d (%.2f%%)%n", outcomeName(status), count,
+                    operations == 0 ? 0.0 : count * 100.0 / operations));
+        }
+        return out.toString();
+    }
+
+    private static String outcomeName(WithdrawalStatus status) {
+        switch (status) {
+            case AMOUNT_NOT_POSITIVE:
+                return AmountNegativeException.class.getSimpleName();
+            case INSUFFICIENT_FUNDS:
+                return InsufficientFundsException.class.getSimpleName();
+            case DENOMINATION_UNAVAILABLE:
+                return DenominationUnavailableException.class.getSimpleName();
+            case LIMIT_EXCEEDED:
+                return LimitExceededException.class.getSimpleName();
+            default:
+                return "success";
+        }
+    }
+
+    private static String trim(double percent) {
+        return percent == Math.rint(percent) ? String.valueOf((long) percent) : String.valueOf(percent);
+    }
+}
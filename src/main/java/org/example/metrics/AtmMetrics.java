@@ -0,0 +1,240 @@
+package org.example.metrics;
+
+import org.example.atm.DenominationRegistry;
+import org.example.atm.InventoryListener;
+import org.example.atm.NoteInventory;
+import org.example.atm.WithdrawalStatus;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the operational metrics of one ATM.
+ * <p>
+ * Outcome counts and note flows are kept in {@link LongAdder}s and withdrawal latencies in a {@link LatencyHistogram},
+ * so recording costs a few uncontended atomic increments and never takes a lock. The note flow per denomination is
+ * taken from the commits of the inventory, which makes it include refills and batched withdrawals too. Contention is
+ * reported as the number of commits the inventory had to retry because another thread committed first.
+ * <p>
+ * The metrics can be read through JMX after {@link #registerMBean(String)} or pulled as text with {@link #dump()}.
+ */
+public class AtmMetrics implements AtmMetricsMBean {
+
+    private final NoteInventory inventory;
+    private final LongAdder[] outcomes;
+    private final LongAdder[] notesDispensed;
+    private final LongAdder[] notesRefilled;
+    private final LatencyHistogram latency;
+
+    /**
+     * Constructs the metrics of an ATM and starts following the commits of its inventory.
+     *
+     * @param inventory the inventory of the ATM
+     */
+    public AtmMetrics(NoteInventory inventory) {
+        this.inventory = inventory;
+        this.outcomes = newAdders(WithdrawalStatus.values().length);
+        this.notesDispensed = newAdders(inventory.getRegistry().size());
+        this.notesRefilled = newAdders(inventory.getRegistry().size());
+        this.latency = new LatencyHistogram();
+        // The listener holds only the adders, so no reference to the metrics escapes before construction ends.
+        inventory.addListener(new NoteFlow(notesDispensed, notesRefilled));
+    }
+
+    /**
+     * Records the outcome and duration of one withdrawal.
+     *
+     * @param status       the outcome
+     * @param latencyNanos the time the withdrawal took
+     */
+    public void recordWithdrawal(WithdrawalStatus status, long latencyNanos) {
+        outcomes[status.ordinal()].increment();
+        latency.record(latencyNanos);
+    }
+
+    /**
+     * Records the outcome of a withdrawal whose duration was not measured on its own, such as one of a batch.
+     *
+     * @param status the outcome
+     */
+    public void recordOutcome(WithdrawalStatus status) {
+        outcomes[status.ordinal()].increment();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server as
+     * {@code org.example.atm:type=AtmMetrics,name=<name>}, replacing an earlier registration under the same name.
+     *
+     * @param name the name of the ATM
+     * @return the object name the metrics were registered under
+     * @throws JMException if the name is invalid or registration fails
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("org.example.atm:type=AtmMetrics,name=" + ObjectName.quote(name));
+        try {
+            server.registerMBean(this, objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            server.unregisterMBean(objectName);
+            server.registerMBean(this, objectName);
+        }
+        return objectName;
+    }
+
+    public LatencyHistogram getLatencyHistogram() {
+        return latency;
+    }
+
+    public long getOutcomeCount(WithdrawalStatus status) {
+        return outcomes[status.ordinal()].sum();
+    }
+
+    @Override
+    public long getWithdrawals() {
+        long total = 0;
+        for (LongAdder outcome : outcomes) {
+            total += outcome.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getSuccessfulWithdrawals() {
+        return getOutcomeCount(WithdrawalStatus.SUCCESS);
+    }
+
+    @Override
+    public long getInsufficientFundsFailures() {
+        return getOutcomeCount(WithdrawalStatus.INSUFFICIENT_FUNDS);
+    }
+
+    @Override
+    public long getDenominationUnavailableFailures() {
+        return getOutcomeCount(WithdrawalStatus.DENOMINATION_UNAVAILABLE);
+    }
+
+    @Override
+    public long getAmountNotPositiveFailures() {
+        return getOutcomeCount(WithdrawalStatus.AMOUNT_NOT_POSITIVE);
+    }
+
+    @Override
+    public long getLimitExceededFailures() {
+        return getOutcomeCount(WithdrawalStatus.LIMIT_EXCEEDED);
+    }
+
+    @Override
+    public long getCommitConflicts() {
+        return inventory.getCommitConflicts();
+    }
+
+    @Override
+    public long getLatencyP50Micros() {
+        return latency.getPercentile(0.5) / 1_000;
+    }
+
+    @Override
+    public long getLatencyP99Micros() {
+        return latency.getPercentile(0.99) / 1_000;
+    }
+
+    @Override
+    public long getLatencyP999Micros() {
+        return latency.getPercentile(0.999) / 1_000;
+    }
+
+    @Override
+    public long getLatencyMaxMicros() {
+        return latency.getMax() / 1_000;
+    }
+
+    @Override
+    public double getLatencyMeanMicros() {
+        return latency.getMean() / 1_000;
+    }
+
+    @Override
+    public long[] getNotesDispensed() {
+        return sums(notesDispensed);
+    }
+
+    @Override
+    public long[] getNotesRefilled() {
+        return sums(notesRefilled);
+    }
+
+    /**
+     * Renders all metrics as text, one {@code name{labels} value} line per value.
+     *
+     * @return the metrics text
+     */
+    @Override
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        for (WithdrawalStatus status : WithdrawalStatus.values()) {
+            out.append("atm_withdrawals_total{status=\"").append(status.name()).append("\"} ")
+                    .append(getOutcomeCount(status)).append('\n');
+        }
+        out.append("atm_commit_conflicts_total ").append(getCommitConflicts()).append('\n');
+        double[] quantiles = {0.5, 0.9, 0.99, 0.999};
+        for (double quantile : quantiles) {
+            out.append("atm_withdrawal_latency_nanos{quantile=\"").append(quantile).append("\"} ")
+                    .append(latency.getPercentile(quantile)).append('\n');
+        }
+        out.append("atm_withdrawal_latency_nanos_max ").append(latency.getMax()).append('\n');
+        out.append("atm_withdrawal_latency_nanos_count ").append(latency.getCount()).append('\n');
+        DenominationRegistry registry = inventory.getRegistry();
+        for (int i = 0; i < registry.size(); i++) {
+            out.append("atm_notes_dispensed_total{denomination=\"").append(registry.getValue(i)).append("\"} ")
+                    .append(notesDispensed[i].sum()).append('\n');
+        }
+        for (int i = 0; i < registry.size(); i++) {
+            out.append("atm_notes_refilled_total{denomination=\"").append(registry.getValue(i)).append("\"} ")
+                    .append(notesRefilled[i].sum()).append('\n');
+        }
+        return out.toString();
+    }
+
+    // Splits each committed change into the notes that left the ATM and the notes that were put in
+    private static final class NoteFlow implements InventoryListener {
+
+        private final LongAdder[] dispensed;
+        private final LongAdder[] refilled;
+
+        private NoteFlow(LongAdder[] dispensed, LongAdder[] refilled) {
+            this.dispensed = dispensed;
+            this.refilled = refilled;
+        }
+
+        @Override
+        public void onCommit(long version, int[] delta) {
+            for (int i = 0; i < delta.length; i++) {
+                if (delta[i] < 0) {
+                    dispensed[i].add(-delta[i]);
+                } else if (delta[i] > 0) {
+                    refilled[i].add(delta[i]);
+                }
+            }
+        }
+    }
+
+    private static LongAdder[] newAdders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+}
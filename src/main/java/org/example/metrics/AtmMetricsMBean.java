@@ -0,0 +1,37 @@
+package org.example.metrics;
+
+/**
+ * The JMX management interface of {@link AtmMetrics}. Durations are reported in microseconds.
+ */
+public interface AtmMetricsMBean {
+
+    long getWithdrawals();
+
+    long getSuccessfulWithdrawals();
+
+    long getInsufficientFundsFailures();
+
+    long getDenominationUnavailableFailures();
+
+    long getAmountNotPositiveFailures();
+
+    long getLimitExceededFailures();
+
+    long getCommitConflicts();
+
+    long getLatencyP50Micros();
+
+    long getLatencyP99Micros();
+
+    long getLatencyP999Micros();
+
+    long getLatencyMaxMicros();
+
+    double getLatencyMeanMicros();
+
+    long[] getNotesDispensed();
+
+    long[] getNotesRefilled();
+
+    String dump();
+}
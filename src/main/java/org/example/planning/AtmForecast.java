@@ -0,0 +1,69 @@
+package org.example.planning;
+
+import org.example.atm.AtmFleet;
+
+/**
+ * The planning input for one ATM: where it is, what it holds now and what it is expected to pay out.
+ * <p>
+ * Notes are only moved between ATMs of the same region, since one cash van serves a region per night.
+ */
+public final class AtmForecast {
+
+    private final int atmId;
+    private final int region;
+    private final int[] counts;
+    private final WithdrawalDemand demand;
+
+    /**
+     * Constructs a forecast.
+     *
+     * @param atmId  The id of the ATM in its fleet.
+     * @param region The region the ATM belongs to.
+     * @param counts The current note counts, indexed by the planner's registry.
+     * @param demand The expected withdrawals.
+     */
+    public AtmForecast(int atmId, int region, int[] counts, WithdrawalDemand demand) {
+        this.atmId = atmId;
+        this.region = region;
+        this.counts = counts.clone();
+        this.demand = demand;
+    }
+
+    /**
+     * Creates a forecast from the current snapshot of an ATM in a fleet.
+     *
+     * @param fleet  The fleet.
+     * @param atmId  The id of the ATM.
+     * @param region The region the ATM belongs to.
+     * @param demand The expected withdrawals.
+     * @return A new forecast.
+     */
+    public static AtmForecast of(AtmFleet fleet, int atmId, int region, WithdrawalDemand demand) {
+        return new AtmForecast(atmId, region, fleet.get(atmId).getSnapshot().getCounts(), demand);
+    }
+
+    public int getAtmId() {
+        return atmId;
+    }
+
+    public int getRegion() {
+        return region;
+    }
+
+    /**
+     * Returns the current note counts.
+     *
+     * @return A copy of the counts.
+     */
+    public int[] getCounts() {
+        return counts.clone();
+    }
+
+    int getCount(int index) {
+        return counts[index];
+    }
+
+    public WithdrawalDemand getDemand() {
+        return demand;
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.planning;
+
+import java.util.Arrays;
+
+/**
+ * Replays a demand forecast against note counts on plain arrays to predict the failures an ATM would see.
+ * <p>
+ * The expected withdrawals are interleaved with a smooth weighted round robin, so every amount is spread evenly over
+ * the run instead of arriving in one block. Each withdrawal is planned by a depth-first search over the denominations
+ * from the largest down, trying the most notes first, which picks the same combination as
+ * {@link org.example.atm.ExactChangeSolver} for every amount within its table range without building the table. A
+ * simulator keeps working space and is used by one thread at a time.
+ */
+final class DispenseSimulator {
+
+    private final int[] values;
+    private final int[] counts;
+    private final int[] dispensed;
+    private final long[] valueBelow;
+    private final int[] used;
+    private long[] credits;
+    private long insufficientFunds;
+    private long denominationUnavailable;
+
+    /**
+     * Constructs a simulator.
+     *
+     * @param values The note values in ascending order, as a registry lists them.
+     */
+    DispenseSimulator(int[] values) {
+        this.values = values;
+        this.counts = new int[values.length];
+        this.dispensed = new int[values.length];
+        this.valueBelow = new long[values.length];
+        this.used = new int[values.length];
+        this.credits = new long[0];
+    }
+
+    /**
+     * Serves a demand from the given counts and tallies the outcomes.
+     *
+     * @param initial The note counts to start from; not modified.
+     * @param demand  The withdrawals to serve.
+     */
+    void run(int[] initial, WithdrawalDemand demand) {
+        System.arraycopy(initial, 0, counts, 0, counts.length);
+        Arrays.fill(used, 0);
+        insufficientFunds = 0;
+        denominationUnavailable = 0;
+        long balance = 0;
+        for (int i = 0; i < counts.length; i++) {
+            balance += (long) counts[i] * values[i];
+        }
+
+        int size = demand.size();
+        if (credits.length < size) {
+            credits = new long[size];
+        }
+        Arrays.fill(credits, 0, size, 0);
+        long total = demand.getTotalWithdrawals();
+        for (long step = 0; step < total; step++) {
+            int next = 0;
+            for (int j = 0; j < size; j++) {
+                credits[j] += demand.getCount(j);
+                if (credits[j] > credits[next]) {
+                    next = j;
+                }
+            }
+            credits[next] -= total;
+
+            long amount = demand.getAmount(next);
+            if (amount > balance) {
+                insufficientFunds++;
+            } else if (dispense(amount)) {
+                balance -= amount;
+            } else {
+                denominationUnavailable++;
+            }
+        }
+    }
+
+    long getInsufficientFunds() {
+        return insufficientFunds;
+    }
+
+    long getDenominationUnavailable() {
+        return denominationUnavailable;
+    }
+
+    long getFailures() {
+        return insufficientFunds + denominationUnavailable;
+    }
+
+    /**
+     * Returns the notes dispensed per denomination by the last run.
+     *
+     * @return The live array of used notes.
+     */
+    int[] getUsed() {
+        return used;
+    }
+
+    private boolean dispense(long amount) {
+        long below = 0;
+        for (int i = 0; i < counts.length; i++) {
+            valueBelow[i] = below;
+            below += (long) counts[i] * values[i];
+            dispensed[i] = 0;
+        }
+        if (!solve(counts.length - 1, amount)) {
+            return false;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] -= dispensed[i];
+            used[i] += dispensed[i];
+        }
+        return true;
+    }
+
+    private boolean solve(int index, long remaining) {
+        if (remaining == 0) {
+            return true;
+        }
+        if (index < 0) {
+            return false;
+        }
+        int value = values[index];
+        for (int notes = (int) Math.min(counts[index], remaining / value); notes >= 0; notes--) {
+            long rest = remaining - (long) notes * value;
+            if (rest > valueBelow[index]) {
+                // Fewer notes of this value only leave more for the smaller notes, which already cannot cover it.
+                break;
+            }
+            dispensed[index] = notes;
+            if (solve(index - 1, rest)) {
+                return true;
+            }
+        }
+        dispensed[index] = 0;
+        return false;
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.planning;
+
+/**
+ * One action of a rebalancing plan: notes of one denomination loaded into an ATM, either taken from another ATM or
+ * from the depot.
+ */
+public final class NoteMove {
+
+    /**
+     * The source id of notes that come from the depot rather than from another ATM.
+     */
+    public static final int DEPOT = -1;
+
+    private final int fromAtmId;
+    private final int toAtmId;
+    private final int denominationIndex;
+    private final int notes;
+
+    NoteMove(int fromAtmId, int toAtmId, int denominationIndex, int notes) {
+        this.fromAtmId = fromAtmId;
+        this.toAtmId = toAtmId;
+        this.denominationIndex = denominationIndex;
+        this.notes = notes;
+    }
+
+    /**
+     * Returns the ATM the notes are taken from.
+     *
+     * @return The source ATM id, or {@link #DEPOT} for a refill.
+     */
+    public int getFromAtmId() {
+        return fromAtmId;
+    }
+
+    public int getToAtmId() {
+        return toAtmId;
+    }
+
+    public int getDenominationIndex() {
+        return denominationIndex;
+    }
+
+    public int getNotes() {
+        return notes;
+    }
+
+    public boolean isRefill() {
+        return fromAtmId == DEPOT;
+    }
+}
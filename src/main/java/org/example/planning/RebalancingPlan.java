@@ -0,0 +1,112 @@
+package org.example.planning;
+
+import org.example.atm.DenominationRegistry;
+import org.example.atm.WithdrawalStatus;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The outcome of a rebalancing run: the note moves to carry out and the failures predicted with and without them.
+ * <p>
+ * Planned counts are listed in the order of the forecasts the plan was made from.
+ */
+public final class RebalancingPlan {
+
+    private final DenominationRegistry registry;
+    private final List<NoteMove> moves;
+    private final int[][] plannedCounts;
+    private final long[] failuresBefore;
+    private final long[] failuresAfter;
+    private final long elapsedNanos;
+
+    RebalancingPlan(DenominationRegistry registry, List<NoteMove> moves, int[][] plannedCounts,
+                    long[] failuresBefore, long[] failuresAfter, long elapsedNanos) {
+        this.registry = registry;
+        this.moves = Collections.unmodifiableList(moves);
+        this.plannedCounts = plannedCounts;
+        this.failuresBefore = failuresBefore;
+        this.failuresAfter = failuresAfter;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public List<NoteMove> getMoves() {
+        return moves;
+    }
+
+    /**
+     * Returns the note counts of an ATM once the plan has been carried out.
+     *
+     * @param position The position of the ATM's forecast in the planner input.
+     * @return A copy of the planned counts.
+     */
+    public int[] getPlannedCounts(int position) {
+        return plannedCounts[position].clone();
+    }
+
+    /**
+     * Returns the number of withdrawals predicted to fail with a status if nothing is moved.
+     *
+     * @param status The failure status.
+     * @return The predicted failures across the fleet.
+     */
+    public long getFailuresBefore(WithdrawalStatus status) {
+        return failuresBefore[status.ordinal()];
+    }
+
+    /**
+     * Returns the number of withdrawals predicted to fail with a status once the plan has been carried out.
+     *
+     * @param status The failure status.
+     * @return The predicted failures across the fleet.
+     */
+    public long getFailuresAfter(WithdrawalStatus status) {
+        return failuresAfter[status.ordinal()];
+    }
+
+    /**
+     * Returns the number of notes the plan moves, split into notes from the depot and notes between ATMs.
+     *
+     * @param refills {@code true} to count depot refills, {@code false} to count transfers between ATMs.
+     * @return The number of notes.
+     */
+    public long getNotesMoved(boolean refills) {
+        long notes = 0;
+        for (NoteMove move : moves) {
+            if (move.isRefill() == refills) {
+                notes += move.getNotes();
+            }
+        }
+        return notes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Renders a summary of the plan as text.
+     *
+     * @return The summary, one figure per line.
+     */
+    public String format() {
+        long[] refilled = new long[registry.size()];
+        long[] transferred = new long[registry.size()];
+        for (NoteMove move : moves) {
+            (move.isRefill() ? refilled : transferred)[move.getDenominationIndex()] += move.getNotes();
+        }
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "planned %d ATMs in %.1f ms, %d moves%n",
+                plannedCounts.length, elapsedNanos / 1e6, moves.size()));
+        for (int i = 0; i < registry.size(); i++) {
+            text.append(String.format(Locale.ROOT, "  %d: refill %d, transfer %d%n",
+                    registry.getValue(i), refilled[i], transferred[i]));
+        }
+        for (WithdrawalStatus status : new WithdrawalStatus[]{WithdrawalStatus.INSUFFICIENT_FUNDS, WithdrawalStatus.DENOMINATION_UNAVAILABLE}) {
+            text.append(String.format(Locale.ROOT, "predicted %s: %d -> %d%n",
+                    status, getFailuresBefore(status), getFailuresAfter(status)));
+        }
+        return text.toString();
+    }
+}
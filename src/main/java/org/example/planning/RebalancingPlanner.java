@@ -0,0 +1,310 @@
+package org.example.planning;
+
+import org.example.atm.DenominationRegistry;
+import org.example.atm.WithdrawalStatus;
+import org.example.constant.ProjectConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plans the nightly cash moves for a fleet of ATMs: which notes to take from one ATM to another in the same region
+ * and which cassettes to refill from the depot.
+ * <p>
+ * Planning runs in four phases:
+ * <ol>
+ *     <li>Every ATM's forecast demand is replayed against its current notes to predict its failures, and against full
+ *     cassettes to learn how many notes of each denomination the demand really uses. That usage plus a safety margin,
+ *     capped at the cassette capacity, is the ATM's target stock.</li>
+ *     <li>Within each region, ATMs that are predicted to fail receive notes from ATMs holding more than their target,
+ *     the ATMs with the most predicted failures first.</li>
+ *     <li>What is still missing comes from the depot, again in order of predicted failures, as far as its stock
+ *     allows.</li>
+ *     <li>Every ATM's demand is replayed against its planned notes to predict the failures left.</li>
+ * </ol>
+ * The replays dominate the cost and are independent per ATM, so phases one and four split the fleet into batches of
+ * {@link ProjectConstants#PLANNER_BATCH_SIZE} ATMs on a {@link ForkJoinPool}; phase two runs one task per region.
+ */
+public class RebalancingPlanner {
+
+    private final DenominationRegistry registry;
+    private final int[] capacity;
+    private final double safetyMargin;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a planner with cassettes of {@link ProjectConstants#CASSETTE_CAPACITY} notes, a safety margin of
+     * {@link ProjectConstants#REBALANCE_SAFETY_MARGIN} and the common fork/join pool.
+     *
+     * @param registry The denominations every forecast is indexed by.
+     */
+    public RebalancingPlanner(DenominationRegistry registry) {
+        this(registry, filled(registry.size(), ProjectConstants.CASSETTE_CAPACITY),
+                ProjectConstants.REBALANCE_SAFETY_MARGIN, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a planner.
+     *
+     * @param registry     The denominations every forecast is indexed by.
+     * @param capacity     The number of notes a cassette of each denomination holds.
+     * @param safetyMargin The share of forecast usage stocked on top of it, for example 0.2 for 20 percent.
+     * @param pool         The pool the planning phases run on.
+     */
+    public RebalancingPlanner(DenominationRegistry registry, int[] capacity, double safetyMargin, ForkJoinPool pool) {
+        if (capacity.length != registry.size()) {
+            throw new IllegalArgumentException("Expected one cassette capacity per denomination");
+        }
+        if (safetyMargin < 0) {
+            throw new IllegalArgumentException("Safety margin must not be negative: " + safetyMargin);
+        }
+        this.registry = registry;
+        this.capacity = capacity.clone();
+        this.safetyMargin = safetyMargin;
+        this.pool = pool;
+    }
+
+    /**
+     * Plans with an unlimited depot.
+     *
+     * @param forecasts One forecast per ATM.
+     * @return The plan.
+     */
+    public RebalancingPlan plan(List<AtmForecast> forecasts) {
+        return plan(forecasts, filled(registry.size(), Long.MAX_VALUE));
+    }
+
+    /**
+     * Plans with the given depot stock.
+     *
+     * @param forecasts  One forecast per ATM.
+     * @param depotStock The notes of each denomination the depot can hand out.
+     * @return The plan.
+     * @throws IllegalArgumentException If a forecast or the depot stock is not indexed by the planner's registry.
+     */
+    public RebalancingPlan plan(List<AtmForecast> forecasts, long[] depotStock) {
+        if (depotStock.length != registry.size()) {
+            throw new IllegalArgumentException("Expected depot stock for each denomination");
+        }
+        long start = System.nanoTime();
+        AtmForecast[] atms = forecasts.toArray(new AtmForecast[0]);
+        Work work = new Work(atms.length);
+
+        pool.invoke(new RangeTask(0, atms.length, ProjectConstants.PLANNER_BATCH_SIZE, (from, to) -> assess(atms, work, from, to)));
+
+        int[][] regions = groupByRegion(atms);
+        @SuppressWarnings("unchecked")
+        List<NoteMove>[] regionMoves = (List<NoteMove>[]) new List<?>[regions.length];
+        pool.invoke(new RangeTask(0, regions.length, 1, (from, to) -> {
+            for (int r = from; r < to; r++) {
+                regionMoves[r] = transfer(atms, work, regions[r]);
+            }
+        }));
+        List<NoteMove> moves = new ArrayList<>();
+        for (List<NoteMove> regionMove : regionMoves) {
+            moves.addAll(regionMove);
+        }
+        refillFromDepot(atms, work, depotStock.clone(), moves);
+
+        pool.invoke(new RangeTask(0, atms.length, ProjectConstants.PLANNER_BATCH_SIZE, (from, to) -> evaluate(atms, work, from, to)));
+
+        long[] before = new long[WithdrawalStatus.values().length];
+        long[] after = new long[before.length];
+        for (int i = 0; i < atms.length; i++) {
+            before[WithdrawalStatus.INSUFFICIENT_FUNDS.ordinal()] += work.insufficientBefore[i];
+            before[WithdrawalStatus.DENOMINATION_UNAVAILABLE.ordinal()] += work.unavailableBefore[i];
+            after[WithdrawalStatus.INSUFFICIENT_FUNDS.ordinal()] += work.insufficientAfter[i];
+            after[WithdrawalStatus.DENOMINATION_UNAVAILABLE.ordinal()] += work.unavailableAfter[i];
+        }
+        return new RebalancingPlan(registry, moves, work.planned, before, after, System.nanoTime() - start);
+    }
+
+    // Phase one: predict current failures and derive the target stock, deficit and surplus of each ATM
+    private void assess(AtmForecast[] atms, Work work, int from, int to) {
+        DispenseSimulator simulator = new DispenseSimulator(registry.getValues());
+        for (int i = from; i < to; i++) {
+            AtmForecast atm = atms[i];
+            int[] counts = atm.getCounts();
+            if (counts.length != registry.size()) {
+                throw new IllegalArgumentException("Counts of ATM " + atm.getAtmId() + " do not match " + registry);
+            }
+            work.planned[i] = counts;
+            simulator.run(counts, atm.getDemand());
+            work.insufficientBefore[i] = simulator.getInsufficientFunds();
+            work.unavailableBefore[i] = simulator.getDenominationUnavailable();
+            boolean failing = simulator.getFailures() > 0;
+
+            simulator.run(capacity, atm.getDemand());
+            int[] used = simulator.getUsed();
+            int[] deficit = new int[counts.length];
+            int[] surplus = new int[counts.length];
+            for (int d = 0; d < counts.length; d++) {
+                int target = (int) Math.min(capacity[d], (long) Math.ceil(used[d] * (1 + safetyMargin)));
+                if (failing) {
+                    deficit[d] = Math.max(0, target - counts[d]);
+                }
+                surplus[d] = Math.max(0, counts[d] - target);
+            }
+            work.deficit[i] = deficit;
+            work.surplus[i] = surplus;
+        }
+    }
+
+    // Phase two: move surplus notes to failing ATMs of one region
+    private List<NoteMove> transfer(AtmForecast[] atms, Work work, int[] region) {
+        List<NoteMove> moves = new ArrayList<>();
+        Integer[] receivers = byPriority(work, region);
+        Integer[] donors = new Integer[region.length];
+        for (int d = 0; d < registry.size(); d++) {
+            final int denomination = d;
+            for (int k = 0; k < region.length; k++) {
+                donors[k] = region[k];
+            }
+            Arrays.sort(donors, Comparator.comparingInt((Integer i) -> -work.surplus[i][denomination]).thenComparingInt(i -> i));
+            int donor = 0;
+            for (int receiver : receivers) {
+                while (work.deficit[receiver][d] > 0 && donor < donors.length && work.surplus[donors[donor]][d] > 0) {
+                    // A receiver never has a surplus of the denomination it lacks, so it is never its own donor.
+                    int from = donors[donor];
+                    int notes = Math.min(work.deficit[receiver][d], work.surplus[from][d]);
+                    work.deficit[receiver][d] -= notes;
+                    work.surplus[from][d] -= notes;
+                    work.planned[receiver][d] += notes;
+                    work.planned[from][d] -= notes;
+                    moves.add(new NoteMove(atms[from].getAtmId(), atms[receiver].getAtmId(), d, notes));
+                    if (work.surplus[from][d] == 0) {
+                        donor++;
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    // Phase three: fill the remaining deficits from the depot, most predicted failures first
+    private void refillFromDepot(AtmForecast[] atms, Work work, long[] stock, List<NoteMove> moves) {
+        int[] all = new int[atms.length];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        for (int receiver : byPriority(work, all)) {
+            for (int d = 0; d < registry.size(); d++) {
+                int notes = (int) Math.min(work.deficit[receiver][d], stock[d]);
+                if (notes > 0) {
+                    stock[d] -= notes;
+                    work.deficit[receiver][d] -= notes;
+                    work.planned[receiver][d] += notes;
+                    moves.add(new NoteMove(NoteMove.DEPOT, atms[receiver].getAtmId(), d, notes));
+                }
+            }
+        }
+    }
+
+    // Phase four: predict the failures left with the planned notes
+    private void evaluate(AtmForecast[] atms, Work work, int from, int to) {
+        DispenseSimulator simulator = new DispenseSimulator(registry.getValues());
+        for (int i = from; i < to; i++) {
+            simulator.run(work.planned[i], atms[i].getDemand());
+            work.insufficientAfter[i] = simulator.getInsufficientFunds();
+            work.unavailableAfter[i] = simulator.getDenominationUnavailable();
+        }
+    }
+
+    // Returns the positions with a deficit, the most predicted failures first
+    private static Integer[] byPriority(Work work, int[] positions) {
+        List<Integer> receivers = new ArrayList<>();
+        for (int i : positions) {
+            for (int shortfall : work.deficit[i]) {
+                if (shortfall > 0) {
+                    receivers.add(i);
+                    break;
+                }
+            }
+        }
+        receivers.sort(Comparator.comparingLong((Integer i) -> -(work.insufficientBefore[i] + work.unavailableBefore[i]))
+                .thenComparingInt(i -> i));
+        return receivers.toArray(new Integer[0]);
+    }
+
+    private static int[][] groupByRegion(AtmForecast[] atms) {
+        Map<Integer, List<Integer>> regions = new TreeMap<>();
+        for (int i = 0; i < atms.length; i++) {
+            regions.computeIfAbsent(atms[i].getRegion(), region -> new ArrayList<>()).add(i);
+        }
+        int[][] groups = new int[regions.size()][];
+        int r = 0;
+        for (List<Integer> positions : regions.values()) {
+            groups[r++] = positions.stream().mapToInt(Integer::intValue).toArray();
+        }
+        return groups;
+    }
+
+    private static int[] filled(int size, int value) {
+        int[] array = new int[size];
+        Arrays.fill(array, value);
+        return array;
+    }
+
+    private static long[] filled(int size, long value) {
+        long[] array = new long[size];
+        Arrays.fill(array, value);
+        return array;
+    }
+
+    // Per-ATM planning state, indexed by the position of the forecast
+    private static final class Work {
+        final int[][] planned;
+        final int[][] deficit;
+        final int[][] surplus;
+        final long[] insufficientBefore;
+        final long[] unavailableBefore;
+        final long[] insufficientAfter;
+        final long[] unavailableAfter;
+
+        Work(int atms) {
+            planned = new int[atms][];
+            deficit = new int[atms][];
+            surplus = new int[atms][];
+            insufficientBefore = new long[atms];
+            unavailableBefore = new long[atms];
+            insufficientAfter = new long[atms];
+            unavailableAfter = new long[atms];
+        }
+    }
+
+    @FunctionalInterface
+    private interface RangeBody {
+        void run(int from, int to);
+    }
+
+    // Splits a range of positions in halves until it is no larger than the threshold
+    private static final class RangeTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final RangeBody body;
+
+        RangeTask(int from, int to, int threshold, RangeBody body) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                body.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, threshold, body), new RangeTask(middle, to, threshold, body));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.planning;
+
+/**
+ * The withdrawals one ATM is expected to serve until its next replenishment: a list of amounts, each with an expected
+ * number of withdrawals.
+ */
+public final class WithdrawalDemand {
+
+    private final long[] amounts;
+    private final int[] counts;
+    private final long total;
+
+    /**
+     * Constructs a demand forecast.
+     *
+     * @param amounts The distinct amounts customers are expected to withdraw.
+     * @param counts  The expected number of withdrawals of each amount.
+     * @throws IllegalArgumentException If the arrays differ in length or hold a non-positive amount or a negative count.
+     */
+    public WithdrawalDemand(long[] amounts, int[] counts) {
+        if (amounts.length != counts.length) {
+            throw new IllegalArgumentException("Expected one count per amount");
+        }
+        long sum = 0;
+        for (int i = 0; i < amounts.length; i++) {
+            if (amounts[i] <= 0 || counts[i] < 0) {
+                throw new IllegalArgumentException("Invalid demand: " + counts[i] + " x " + amounts[i]);
+            }
+            sum += counts[i];
+        }
+        this.amounts = amounts.clone();
+        this.counts = counts.clone();
+        this.total = sum;
+    }
+
+    public int size() {
+        return amounts.length;
+    }
+
+    public long getAmount(int i) {
+        return amounts[i];
+    }
+
+    public int getCount(int i) {
+        return counts[i];
+    }
+
+    /**
+     * Returns the expected number of withdrawals across all amounts.
+     *
+     * @return The number of withdrawals.
+     */
+    public long getTotalWithdrawals() {
+        return total;
+    }
+
+    /**
+     * Returns the expected value withdrawn across all amounts.
+     *
+     * @return The total value.
+     */
+    public long getTotalValue() {
+        long value = 0;
+        for (int i = 0; i < amounts.length; i++) {
+            value += amounts[i] * counts[i];
+        }
+        return value;
+    }
+}
@@ -0,0 +1,284 @@
+package org.example.replication;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.atm.DenominationRegistry;
+import org.example.atm.NoteInventory;
+import org.example.constant.ProjectConstants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A standby copy of the note counts of an inventory replicated by a {@link ReplicationPrimary}.
+ * <p>
+ * A receiver thread reads each batch of changes in full, checks that the versions follow on without a gap, applies
+ * the batch in one step and acknowledges its last version. A batch cut off by a failing primary is never applied,
+ * so the counts always equal those of some committed version of the primary. A new handshake from the primary
+ * replaces the counts outright. When the primary is gone,
+ * {@link #promote()} turns the counts into a live inventory at exactly that version.
+ */
+public class ReplicationBackup implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(ReplicationBackup.class);
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final DenominationRegistry registry;
+    private final ReentrantLock lock;
+    private final Condition progress;
+    private final int[] counts;
+    private final Thread receiver;
+    private long version;
+    private boolean connected;
+    private volatile boolean stopping;
+
+    private ReplicationBackup(Socket socket, DataInputStream in, DataOutputStream out, DenominationRegistry registry,
+                              int[] counts, long version) {
+        this.socket = socket;
+        this.in = in;
+        this.out = out;
+        this.registry = registry;
+        this.lock = new ReentrantLock();
+        this.progress = lock.newCondition();
+        this.counts = counts;
+        this.version = version;
+        this.connected = true;
+        this.receiver = new Thread(this::receive, "replication-backup");
+        receiver.setDaemon(true);
+    }
+
+    /**
+     * Connects to a primary and starts following it.
+     *
+     * @param host The host of the primary.
+     * @param port The replication port of the primary.
+     * @return The backup, holding the primary's counts as of the handshake.
+     * @throws IOException If the primary cannot be reached or does not speak the replication protocol.
+     */
+    public static ReplicationBackup connect(String host, int port) throws IOException {
+        Socket socket = new Socket(host, port);
+        try {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(),
+                    ProjectConstants.REPLICATION_BUFFER_SIZE));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DenominationRegistry registry = ReplicationProtocol.readRegistry(in);
+            long version = in.readLong();
+            int[] counts = new int[registry.size()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = in.readInt();
+            }
+            ReplicationBackup backup = new ReplicationBackup(socket, in, out, registry, counts, version);
+            backup.acknowledge(version);
+            backup.receiver.start();
+            return backup;
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    public DenominationRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Returns the version of the primary that the counts reflect.
+     *
+     * @return The last applied version.
+     */
+    public long getVersion() {
+        lock.lock();
+        try {
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the replicated note counts.
+     *
+     * @return The note counts, indexed by the registry's dense indices.
+     */
+    public int[] getCounts() {
+        lock.lock();
+        try {
+            return counts.clone();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether the backup is still receiving changes from the primary.
+     *
+     * @return {@code false} once the connection to the primary is lost.
+     */
+    public boolean isConnected() {
+        lock.lock();
+        try {
+            return connected;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a version of the primary has been applied.
+     *
+     * @param target  The version to wait for.
+     * @param timeout The longest time to wait.
+     * @param unit    The unit of the timeout.
+     * @return {@code true} if the version was applied, {@code false} if the timeout elapsed or the primary was lost.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public boolean awaitVersion(long target, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (version < target) {
+                if (!connected || nanos <= 0) {
+                    return false;
+                }
+                nanos = progress.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops following the primary and returns a live inventory with exactly the replicated counts and version, ready
+     * to take withdrawals or to be replicated by a new {@link ReplicationPrimary}.
+     *
+     * @return The promoted inventory.
+     * @throws IllegalStateException If the backup was already promoted or closed.
+     */
+    public NoteInventory promote() {
+        if (stopping) {
+            throw new IllegalStateException("Backup was already promoted or closed");
+        }
+        close();
+        lock.lock();
+        try {
+            logger.info("Promoted backup to primary at version {}", version);
+            return new NoteInventory(registry, counts.clone(), version);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Disconnects from the primary and waits for the receiver thread to stop.
+     */
+    @Override
+    public void close() {
+        stopping = true;
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // The receiver stops on the closed socket either way
+        }
+        try {
+            receiver.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void receive() {
+        int[] batch = new int[counts.length];
+        try {
+            while (true) {
+                int records = in.readInt();
+                if (records == ReplicationProtocol.MAGIC) {
+                    acknowledge(resynchronize());
+                    continue;
+                }
+                long first = getVersion() + 1;
+                for (int r = 0; r < records; r++) {
+                    long recordVersion = in.readLong();
+                    if (recordVersion != first + r) {
+                        throw new IOException("Expected version " + (first + r) + " but received " + recordVersion);
+                    }
+                    for (int i = 0; i < batch.length; i++) {
+                        batch[i] += in.readInt();
+                    }
+                }
+                long applied = apply(batch, first + records - 1);
+                acknowledge(applied);
+            }
+        } catch (IOException e) {
+            if (!stopping) {
+                logger.warn("Lost connection to primary: {}", e.getMessage());
+            }
+        } finally {
+            lock.lock();
+            try {
+                connected = false;
+                progress.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Replaces the counts with those of a new handshake from the primary
+    private long resynchronize() throws IOException {
+        DenominationRegistry resent = ReplicationProtocol.readRegistryAfterMagic(in);
+        boolean same = resent.getCurrency().equals(registry.getCurrency()) && resent.size() == registry.size();
+        for (int i = 0; same && i < registry.size(); i++) {
+            same = resent.getValue(i) == registry.getValue(i);
+        }
+        if (!same) {
+            throw new IOException("Primary changed its denominations to " + resent);
+        }
+        long resentVersion = in.readLong();
+        int[] resentCounts = new int[counts.length];
+        for (int i = 0; i < resentCounts.length; i++) {
+            resentCounts[i] = in.readInt();
+        }
+        lock.lock();
+        try {
+            System.arraycopy(resentCounts, 0, counts, 0, counts.length);
+            version = resentVersion;
+            progress.signalAll();
+            return resentVersion;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Applies the summed changes of one batch in one step and clears them for the next batch
+    private long apply(int[] batch, long last) {
+        lock.lock();
+        try {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += batch[i];
+                batch[i] = 0;
+            }
+            version = last;
+            progress.signalAll();
+            return last;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acknowledge(long applied) throws IOException {
+        out.writeLong(applied);
+        out.flush();
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.replication;
+
+/**
+ * Decides whether a commit on the primary waits for the backups.
+ */
+public enum ReplicationMode {
+
+    /**
+     * Every commit returns only after all connected backups have applied it, so an acknowledged withdrawal survives
+     * the loss of the primary.
+     */
+    SYNC,
+
+    /**
+     * Commits return straight away and are shipped in the background. A withdrawal that needs the guarantee can
+     * still wait for it with {@link ReplicationPrimary#awaitLastCommit(long, java.util.concurrent.TimeUnit)}.
+     */
+    ASYNC
+}
@@ -0,0 +1,531 @@
+package org.example.replication;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.example.atm.InventoryListener;
+import org.example.atm.InventorySnapshot;
+import org.example.atm.NoteInventory;
+import org.example.constant.ProjectConstants;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Streams every change committed to a {@link NoteInventory} to one or more {@link ReplicationBackup}s over TCP.
+ * <p>
+ * Changes are put into version order as they are committed and handed to a single shipper thread. The shipper takes
+ * everything queued since its last pass and writes it to each backup as one batch with one flush, without waiting
+ * for the previous batch to be acknowledged, so under load many commits share one round of network writes and the
+ * backups trail the primary by about one batch. Each backup acknowledges the last version it applied after every
+ * batch.
+ * <p>
+ * A backup that connects first receives the full counts at the current version and then the changes that follow it,
+ * so backups can join at any time. In {@link ReplicationMode#SYNC} a commit returns only once every connected backup
+ * has acknowledged it; a backup that does not answer within {@link ProjectConstants#REPLICATION_ACK_TIMEOUT_MILLIS}
+ * is disconnected, so a dead backup never stalls withdrawals for longer than that.
+ * <p>
+ * If a committed version never reaches the primary, for example because its commit failed between publishing the
+ * state and notifying the listeners, the versions after it cannot be shipped in order. Once such a gap has lasted
+ * {@link ProjectConstants#REPLICATION_GAP_TIMEOUT_MILLIS} the primary logs an error and sends every backup a new
+ * handshake with the current counts, then ships the changes after them as usual.
+ */
+public class ReplicationPrimary implements InventoryListener, Closeable {
+
+    private static final Logger logger = LogManager.getLogger(ReplicationPrimary.class);
+
+    private final NoteInventory inventory;
+    private final ReplicationMode mode;
+    private final long ackTimeoutNanos;
+    private final long gapTimeoutNanos;
+    private final ServerSocket server;
+    private final ReentrantLock lock;
+    private final Condition progress;
+    private final TreeMap<Long, int[]> outOfOrder;
+    private final List<Record> outbox;
+    private final List<Connection> connections;
+    private final ThreadLocal<long[]> lastCommits;
+    private final Thread acceptor;
+    private final Thread shipper;
+    private long sequencedVersion;
+    private long gapSince;
+    private boolean handshakesDue;
+    private volatile boolean closed;
+
+    private ReplicationPrimary(NoteInventory inventory, ReplicationMode mode, ServerSocket server) {
+        this.inventory = inventory;
+        this.mode = mode;
+        this.ackTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(ProjectConstants.REPLICATION_ACK_TIMEOUT_MILLIS);
+        this.gapTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(ProjectConstants.REPLICATION_GAP_TIMEOUT_MILLIS);
+        this.server = server;
+        this.lock = new ReentrantLock();
+        this.progress = lock.newCondition();
+        this.outOfOrder = new TreeMap<>();
+        this.outbox = new ArrayList<>();
+        this.connections = new ArrayList<>();
+        this.lastCommits = ThreadLocal.withInitial(() -> new long[1]);
+        this.acceptor = new Thread(this::acceptBackups, "replication-acceptor");
+        this.shipper = new Thread(this::shipChanges, "replication-shipper");
+        acceptor.setDaemon(true);
+        shipper.setDaemon(true);
+    }
+
+    /**
+     * Starts replicating an inventory to the backups that connect to a port on the loopback interface.
+     *
+     * @param inventory The inventory to replicate.
+     * @param port      The port to listen on, or 0 for any free port.
+     * @param mode      Whether commits wait for the backups.
+     * @return The running primary.
+     * @throws IOException If the port cannot be bound.
+     */
+    public static ReplicationPrimary start(NoteInventory inventory, int port, ReplicationMode mode) throws IOException {
+        return start(inventory, new ServerSocket(port, 50, InetAddress.getLoopbackAddress()), mode);
+    }
+
+    /**
+     * Starts replicating an inventory to the backups that connect to a bound server socket.
+     *
+     * @param inventory The inventory to replicate.
+     * @param server    The bound socket to accept backups on. It is closed with the primary.
+     * @param mode      Whether commits wait for the backups.
+     * @return The running primary.
+     */
+    public static ReplicationPrimary start(NoteInventory inventory, ServerSocket server, ReplicationMode mode) {
+        ReplicationPrimary primary = new ReplicationPrimary(inventory, mode, server);
+        primary.lock.lock();
+        try {
+            // Commits before this version are covered by the handshake of every backup; later ones reach the listener
+            inventory.addListener(primary);
+            primary.sequencedVersion = inventory.getVersion();
+        } finally {
+            primary.lock.unlock();
+        }
+        primary.acceptor.start();
+        primary.shipper.start();
+        return primary;
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public ReplicationMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns the number of backups currently connected.
+     *
+     * @return The number of backups.
+     */
+    public int getBackupCount() {
+        lock.lock();
+        try {
+            return connections.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns how many versions the slowest connected backup has not acknowledged yet.
+     *
+     * @return The replication lag in commits, or 0 without backups.
+     */
+    public long getReplicationLag() {
+        lock.lock();
+        try {
+            long lag = 0;
+            for (Connection connection : connections) {
+                lag = Math.max(lag, sequencedVersion - connection.acked);
+            }
+            return lag;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues a committed change for shipping and, in {@link ReplicationMode#SYNC}, waits until the backups have it.
+     *
+     * @param version The version the change produced.
+     * @param delta   The change per denomination.
+     */
+    @Override
+    public void onCommit(long version, int[] delta) {
+        int[] copy = delta.clone();
+        lock.lock();
+        try {
+            if (closed || version <= sequencedVersion) {
+                return;
+            }
+            outOfOrder.put(version, copy);
+            sequence();
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        lastCommits.get()[0] = version;
+        if (mode == ReplicationMode.SYNC) {
+            try {
+                if (!awaitReplicated(version, ackTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                    disconnectLagging(version);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Waits until every connected backup has applied a version. Backups that disconnect stop being waited for.
+     *
+     * @param version The version to wait for.
+     * @param timeout The longest time to wait.
+     * @param unit    The unit of the timeout.
+     * @return {@code true} if all backups have the version, {@code false} if the timeout elapsed first.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public boolean awaitReplicated(long version, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!isReplicated(version)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = progress.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the backups have applied the last change committed by the calling thread, which lets a single
+     * withdrawal be acknowledged synchronously while the primary replicates asynchronously.
+     * <p>
+     * Only commits made on the calling thread count. A withdrawal queued through
+     * {@link org.example.atm.ATM#withdrawAsync(long)} is committed by the ATM's writer thread, so after its future
+     * completes wait with {@link #awaitReplicated(long, long, TimeUnit)} for the inventory's version at that point,
+     * which covers the withdrawal.
+     *
+     * @param timeout The longest time to wait.
+     * @param unit    The unit of the timeout.
+     * @return {@code true} if all backups have the change, {@code false} if the timeout elapsed first.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public boolean awaitLastCommit(long timeout, TimeUnit unit) throws InterruptedException {
+        return awaitReplicated(lastCommits.get()[0], timeout, unit);
+    }
+
+    /**
+     * Stops accepting backups and disconnects the connected ones. Changes not yet shipped are not sent.
+     *
+     * @throws IOException If the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        List<Connection> open;
+        lock.lock();
+        try {
+            closed = true;
+            open = new ArrayList<>(connections);
+            connections.clear();
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        inventory.removeListener(this);
+        server.close();
+        for (Connection connection : open) {
+            connection.close();
+        }
+        try {
+            acceptor.join();
+            shipper.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean isReplicated(long version) {
+        for (Connection connection : connections) {
+            if (connection.acked < version) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void acceptBackups() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    logger.error("Stopped accepting backups", e);
+                }
+                return;
+            }
+            try {
+                socket.setTcpNoDelay(true);
+                register(new Connection(socket));
+            } catch (IOException e) {
+                logger.warn("Failed to set up backup connection from {}", socket.getRemoteSocketAddress(), e);
+                closeQuietly(socket);
+            }
+        }
+    }
+
+    // Takes the handshake state and adds the backup under the lock, so no change after its version can be missed
+    private void register(Connection connection) throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                connection.close();
+                return;
+            }
+            InventorySnapshot snapshot = inventory.snapshot();
+            ByteArrayOutputStream handshake = new ByteArrayOutputStream();
+            ReplicationProtocol.writeHandshake(new DataOutputStream(handshake), inventory.getRegistry(),
+                    snapshot.getVersion(), snapshot.getCounts());
+            connection.startVersion = snapshot.getVersion();
+            connection.acked = snapshot.getVersion();
+            connection.handshake = handshake.toByteArray();
+            connections.add(connection);
+            handshakesDue = true;
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        Thread reader = new Thread(() -> readAcks(connection), "replication-acks-" + connection.socket.getPort());
+        reader.setDaemon(true);
+        reader.start();
+        logger.info("Backup {} joined at version {}", connection.socket.getRemoteSocketAddress(), connection.startVersion);
+    }
+
+    private void shipChanges() {
+        List<Record> batch = new ArrayList<>();
+        List<Connection> targets = new ArrayList<>();
+        while (true) {
+            lock.lock();
+            try {
+                while (!closed && outbox.isEmpty() && !handshakesDue) {
+                    if (gapSince == 0) {
+                        progress.awaitUninterruptibly();
+                    } else if (System.nanoTime() - gapSince >= gapTimeoutNanos) {
+                        resynchronize();
+                    } else {
+                        awaitGap();
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                batch.addAll(outbox);
+                outbox.clear();
+                handshakesDue = false;
+                targets.addAll(connections);
+            } finally {
+                lock.unlock();
+            }
+            for (Connection connection : targets) {
+                try {
+                    connection.send(batch);
+                } catch (IOException e) {
+                    disconnect(connection, e);
+                }
+            }
+            batch.clear();
+            targets.clear();
+        }
+    }
+
+    // Moves the changes that follow on from the last sequenced version to the outbox, and times any gap left behind
+    private void sequence() {
+        while (!outOfOrder.isEmpty() && outOfOrder.firstKey() == sequencedVersion + 1) {
+            Map.Entry<Long, int[]> next = outOfOrder.pollFirstEntry();
+            sequencedVersion = next.getKey();
+            outbox.add(new Record(next.getKey(), next.getValue()));
+        }
+        if (outOfOrder.isEmpty()) {
+            gapSince = 0;
+        } else if (gapSince == 0) {
+            gapSince = System.nanoTime();
+        }
+    }
+
+    // Waits under the lock until the current gap is due for a resynchronization or something else happens
+    private void awaitGap() {
+        try {
+            progress.awaitNanos(gapTimeoutNanos - (System.nanoTime() - gapSince));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Skips a version that never arrived: every backup gets a new handshake at the current state, which covers it
+    private void resynchronize() {
+        InventorySnapshot snapshot = inventory.snapshot();
+        long version = snapshot.getVersion();
+        logger.error("Version {} was committed but never reached replication; resynchronizing {} backups at version {}",
+                sequencedVersion + 1, connections.size(), version);
+        byte[] handshake;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ReplicationProtocol.writeHandshake(new DataOutputStream(out), inventory.getRegistry(), version,
+                    snapshot.getCounts());
+            handshake = out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        outOfOrder.headMap(version, true).clear();
+        sequencedVersion = Math.max(sequencedVersion, version);
+        gapSince = 0;
+        sequence();
+        for (Connection connection : connections) {
+            connection.startVersion = version;
+            connection.handshake = handshake;
+        }
+        handshakesDue = !connections.isEmpty();
+    }
+
+    private void readAcks(Connection connection) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.socket.getInputStream()));
+            while (true) {
+                long version = in.readLong();
+                lock.lock();
+                try {
+                    connection.acked = Math.max(connection.acked, version);
+                    progress.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (IOException e) {
+            disconnect(connection, e);
+        }
+    }
+
+    private void disconnectLagging(long version) {
+        List<Connection> lagging = new ArrayList<>();
+        lock.lock();
+        try {
+            for (Connection connection : connections) {
+                if (connection.acked < version) {
+                    lagging.add(connection);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (Connection connection : lagging) {
+            disconnect(connection, new IOException("No acknowledgment of version " + version + " within "
+                    + ProjectConstants.REPLICATION_ACK_TIMEOUT_MILLIS + " ms"));
+        }
+    }
+
+    private void disconnect(Connection connection, IOException cause) {
+        boolean removed;
+        lock.lock();
+        try {
+            removed = connections.remove(connection);
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (removed) {
+            logger.warn("Disconnected backup {}: {}", connection.socket.getRemoteSocketAddress(), cause.getMessage());
+        }
+        connection.close();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // The connection is abandoned either way
+        }
+    }
+
+    // One committed change in version order
+    private static final class Record {
+        private final long version;
+        private final int[] delta;
+
+        Record(long version, int[] delta) {
+            this.version = version;
+            this.delta = delta;
+        }
+    }
+
+    // A connected backup; its stream is written only by the shipper thread, its acknowledgments change under the lock
+    private static final class Connection {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private long startVersion;
+        private long acked;
+        private byte[] handshake;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+                    ProjectConstants.REPLICATION_BUFFER_SIZE));
+        }
+
+        // Writes the handshake if it is still due and the changes after the backup's starting version, then flushes once
+        void send(List<Record> batch) throws IOException {
+            boolean written = false;
+            if (handshake != null) {
+                out.write(handshake);
+                handshake = null;
+                written = true;
+            }
+            int count = 0;
+            for (Record record : batch) {
+                if (record.version > startVersion) {
+                    count++;
+                }
+            }
+            if (count > 0) {
+                out.writeInt(count);
+                for (Record record : batch) {
+                    if (record.version > startVersion) {
+                        out.writeLong(record.version);
+                        for (int change : record.delta) {
+                            out.writeInt(change);
+                        }
+                    }
+                }
+                written = true;
+            }
+            if (written) {
+                out.flush();
+            }
+        }
+
+        void close() {
+            closeQuietly(socket);
+        }
+    }
+}
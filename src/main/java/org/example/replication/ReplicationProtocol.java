@@ -0,0 +1,54 @@
+package org.example.replication;
+
+import org.example.atm.DenominationRegistry;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * The wire format between a {@link ReplicationPrimary} and its backups.
+ * <p>
+ * The primary opens with a handshake holding the registry and the full counts at one version. After that it sends
+ * batches, each a record count followed by that many records of a version and the change per denomination, in
+ * version order. The backup answers every handshake and batch with the last version it has applied.
+ * <p>
+ * A primary that has to resynchronize its backups sends a new handshake in place of a batch. The handshake starts
+ * with {@link #MAGIC}, which no batch's record count ever reaches, so the backup can tell the two apart.
+ */
+final class ReplicationProtocol {
+
+    static final int MAGIC = 0x41544d52;
+
+    private ReplicationProtocol() {
+    }
+
+    static void writeHandshake(DataOutputStream out, DenominationRegistry registry, long version, int[] counts) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeUTF(registry.getCurrency());
+        out.writeInt(registry.size());
+        for (int i = 0; i < registry.size(); i++) {
+            out.writeInt(registry.getValue(i));
+        }
+        out.writeLong(version);
+        for (int count : counts) {
+            out.writeInt(count);
+        }
+    }
+
+    static DenominationRegistry readRegistry(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a replication stream");
+        }
+        return readRegistryAfterMagic(in);
+    }
+
+    static DenominationRegistry readRegistryAfterMagic(DataInputStream in) throws IOException {
+        String currency = in.readUTF();
+        int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return DenominationRegistry.of(currency, values);
+    }
+}
@@ -0,0 +1,248 @@
+package org.example.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.example.atm.ATM;
+import org.example.atm.DenominationRegistry;
+import org.example.atm.DispenseResult;
+import org.example.atm.InventorySnapshot;
+import org.example.atm.NoteInventory;
+import org.example.atm.WithdrawalResult;
+import org.example.constant.ProjectConstants;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes an {@link ATM} over HTTP using the JDK's built-in HTTP server.
+ * <p>
+ * Every request runs on its own virtual thread, so thousands of slow clients cost little more than their sockets.
+ * A semaphore bounds the number of requests that may work on the ATM at the same time; a request that cannot get
+ * a permit within the configured wait is answered with {@code 503 Service Unavailable} instead of queueing forever.
+ * <p>
+ * The server offers these plain-text endpoints:
+ * <ul>
+ *     <li>{@code POST /withdraw?amount=700[&card=1234]} dispenses the amount and lists the notes; with a card, the
+ *     card's limits are enforced</li>
+ *     <li>{@code GET /balance} reports the total balance and the count per denomination</li>
+ *     <li>{@code POST /refill?denomination=500&count=10} adds notes of one denomination</li>
+ *     <li>{@code POST /deposit?500=10&200=4} adds notes of several denominations in one atomic step</li>
+ *     <li>{@code GET /metrics} dumps the ATM's metrics as text</li>
+ * </ul>
+ */
+public class AtmServer {
+
+    private final ATM atm;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final long permitWaitMillis;
+
+    /**
+     * Constructs a server for an ATM with the default connection backlog. The server does not accept connections
+     * until {@link #start()} is called.
+     *
+     * @param atm              the ATM to expose
+     * @param port             the port to listen on, or 0 for an ephemeral port
+     * @param maxInFlight      the maximum number of requests allowed to work on the ATM at once
+     * @param permitWaitMillis how long a request may wait for a permit before it is rejected
+     * @throws IOException if the server socket cannot be bound
+     */
+    public AtmServer(ATM atm, int port, int maxInFlight, long permitWaitMillis) throws IOException {
+        this(atm, port, ProjectConstants.SERVER_BACKLOG, maxInFlight, permitWaitMillis);
+    }
+
+    /**
+     * Constructs a server for an ATM. The server does not accept connections until {@link #start()} is called.
+     *
+     * @param atm              the ATM to expose
+     * @param port             the port to listen on, or 0 for an ephemeral port
+     * @param backlog          the number of pending connections the socket queues before refusing new ones
+     * @param maxInFlight      the maximum number of requests allowed to work on the ATM at once
+     * @param permitWaitMillis how long a request may wait for a permit before it is rejected
+     * @throws IOException if the server socket cannot be bound
+     */
+    public AtmServer(ATM atm, int port, int backlog, int maxInFlight, long permitWaitMillis) throws IOException {
+        this.atm = atm;
+        this.permits = new Semaphore(maxInFlight);
+        this.permitWaitMillis = permitWaitMillis;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(port), backlog);
+        this.server.setExecutor(executor);
+        this.server.createContext("/withdraw", exchange -> handle(exchange, "POST", this::withdraw));
+        this.server.createContext("/balance", exchange -> handle(exchange, "GET", this::balance));
+        this.server.createContext("/refill", exchange -> handle(exchange, "POST", this::refill));
+        this.server.createContext("/deposit", exchange -> handle(exchange, "POST", this::deposit));
+        this.server.createContext("/metrics", exchange -> handle(exchange, "GET",
+                (ignored, query) -> respond(exchange, 200, atm.getMetrics().dump())));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and waits up to the given delay for requests in progress to finish.
+     *
+     * @param delaySeconds the maximum time to wait for requests in progress
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange, String method, Handler handler) throws IOException {
+        try (exchange) {
+            if (!method.equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, "Method not allowed\n");
+                return;
+            }
+            if (!acquirePermit()) {
+                respond(exchange, 503, "Server busy\n");
+                return;
+            }
+            try {
+                handler.handle(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+            } catch (ArithmeticException e) {
+                // Math.addExact overflowed: the request would push a note count or the balance out of range.
+                respond(exchange, 400, "Amount out of range: " + e.getMessage() + "\n");
+            } catch (UncheckedIOException e) {
+                // The inventory's journal failed; the message tells whether the change was applied but not made durable.
+                respond(exchange, 500, e.getMessage() + "\n");
+            } finally {
+                permits.release();
+            }
+        }
+    }
+
+    // Waits for a permit; an interrupted wait, as during shutdown, counts as busy and keeps the interrupt flag
+    private boolean acquirePermit() {
+        try {
+            return permits.tryAcquire(permitWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void withdraw(HttpExchange exchange, Map<String, String> query) throws IOException {
+        long amount = longParameter(query, "amount");
+        WithdrawalResult result = query.containsKey("card")
+                ? atm.withdraw(longParameter(query, "card"), amount, new DispenseResult()).toWithdrawalResult()
+                : atm.tryWithdraw(amount);
+        DenominationRegistry registry = atm.getInventory().getRegistry();
+        StringBuilder body = new StringBuilder(result.getStatus().name()).append('\n');
+        for (int i = 0; i < registry.size(); i++) {
+            int count = result.getCount(i);
+            if (count > 0) {
+                body.append(registry.getValue(i)).append('=').append(count).append('\n');
+            }
+        }
+        respond(exchange, result.isSuccessful() ? 200 : 409, body.toString());
+    }
+
+    private void balance(HttpExchange exchange, Map<String, String> query) throws IOException {
+        InventorySnapshot snapshot = atm.getSnapshot();
+        DenominationRegistry registry = snapshot.getRegistry();
+        StringBuilder notes = new StringBuilder();
+        for (int i = 0; i < registry.size(); i++) {
+            notes.append(registry.getValue(i)).append('=').append(snapshot.getCount(i)).append('\n');
+        }
+        respond(exchange, 200, "balance=" + snapshot.getTotalBalance() + "\n" + notes);
+    }
+
+    private void refill(HttpExchange exchange, Map<String, String> query) throws IOException {
+        NoteInventory inventory = atm.getInventory();
+        int index = inventory.getRegistry().indexOf(intParameter(query, "denomination"));
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown denomination: " + query.get("denomination"));
+        }
+        inventory.refill(index, intParameter(query, "count"));
+        respond(exchange, 200, "OK\n");
+    }
+
+    private void deposit(HttpExchange exchange, Map<String, String> query) throws IOException {
+        DenominationRegistry registry = atm.getInventory().getRegistry();
+        int[] notes = new int[registry.size()];
+        for (String denomination : query.keySet()) {
+            int index;
+            try {
+                index = registry.indexOf(Integer.parseInt(denomination));
+            } catch (NumberFormatException e) {
+                index = -1;
+            }
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown denomination: " + denomination);
+            }
+            notes[index] = intParameter(query, denomination);
+        }
+        respond(exchange, 200, "version=" + atm.deposit(notes) + "\n");
+    }
+
+    private static int intParameter(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " must be an integer: " + value);
+        }
+    }
+
+    private static long longParameter(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + name + " must be an integer: " + value);
+        }
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(pair.substring(0, separator), pair.substring(separator + 1));
+            }
+        }
+        return parameters;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange, Map<String, String> query) throws IOException;
+    }
+}
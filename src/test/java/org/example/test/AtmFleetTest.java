@@ -0,0 +1,91 @@
+package org.example.test;
+
+import org.example.atm.ATM;
+import org.example.atm.AtmFleet;
+import org.example.atm.NoteInventory;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * The AtmFleetTest class verifies that the fleet hands out dense ids under concurrent registration, that lookups
+ * return the registered machine across shard boundaries and that unknown ids are rejected.
+ */
+public class AtmFleetTest {
+
+    /**
+     * Tests that concurrent registrations get distinct, dense ids and that every id resolves to its own ATM.
+     */
+    @Test
+    public void testConcurrentRegistration() throws InterruptedException {
+        AtmFleet fleet = new AtmFleet();
+        int threads = 8;
+        int perThread = 1_000;
+        AtomicReferenceArray<ATM> registered = new AtomicReferenceArray<>(threads * perThread);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    ATM atm = new ATM(new NoteInventory(new int[]{1, 1, 1}));
+                    int id = fleet.register(atm);
+                    if (!registered.compareAndSet(id, null, atm)) {
+                        throw new AssertionError("Id handed out twice: " + id);
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(threads * perThread, fleet.size());
+        for (int id = 0; id < registered.length(); id++) {
+            assertSame(registered.get(id), fleet.get(id));
+        }
+    }
+
+    /**
+     * Tests that ids keep resolving as the fleet grows past several shards and that ids outside it are rejected.
+     */
+    @Test
+    public void testGrowsAcrossShards() {
+        AtmFleet fleet = new AtmFleet();
+        int count = 3 * 1024 + 1;
+        ATM[] atms = new ATM[count];
+        for (int i = 0; i < count; i++) {
+            atms[i] = new ATM(new NoteInventory(new int[]{0, 0, i}));
+            assertEquals(i, fleet.register(atms[i]));
+        }
+
+        assertEquals(count, fleet.size());
+        for (int id : new int[]{0, 1023, 1024, 2047, 2048, 3072, count - 1}) {
+            assertSame(atms[id], fleet.get(id));
+        }
+        assertEquals(1, fleet.getEmptyAtmIds().size());
+        assertUnknown(fleet, -1);
+        assertUnknown(fleet, count);
+    }
+
+    private static void assertUnknown(AtmFleet fleet, int atmId) {
+        try {
+            fleet.get(atmId);
+            fail("Expected id " + atmId + " to be unknown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Unknown ATM id: " + atmId, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.test;
+
+import org.example.atm.Denomination;
+import org.example.atm.NoteInventory;
+import org.example.atm.WithdrawalStatus;
+import org.example.metrics.AtmMetrics;
+import org.example.metrics.LatencyHistogram;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The AtmMetricsTest class verifies the bucket and percentile math of {@link LatencyHistogram} and that the metrics
+ * of an ATM are reported correctly through JMX.
+ */
+public class AtmMetricsTest {
+
+    /**
+     * Tests that an empty histogram reports zero for every statistic.
+     */
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0.0, histogram.getMean(), 0.0);
+        assertEquals(0, histogram.getPercentile(0.5));
+        assertEquals(0, histogram.getPercentile(1.0));
+    }
+
+    /**
+     * Tests that small values are counted exactly, negative ones as zero, and that max and mean are exact.
+     */
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 0; value < 8; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+
+        assertEquals(9, histogram.getCount());
+        assertEquals(7, histogram.getMax());
+        assertEquals(28.0 / 9, histogram.getMean(), 1e-9);
+        assertEquals(0, histogram.getPercentile(0.1));
+        assertEquals(3, histogram.getPercentile(0.5));
+        assertEquals(7, histogram.getPercentile(1.0));
+    }
+
+    /**
+     * Tests that every percentile lies at or above the true value and at most 12.5% above it, and never above the
+     * largest recorded value.
+     */
+    @Test
+    public void testPercentilesWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int count = 10_000;
+        for (int i = 1; i <= count; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        assertEquals(count, histogram.getCount());
+        assertEquals(count * 1_000L, histogram.getMax());
+        assertEquals((count + 1) * 500.0, histogram.getMean(), 1e-6);
+        for (double quantile : new double[]{0.01, 0.25, 0.5, 0.9, 0.99, 0.999, 1.0}) {
+            long exact = (long) Math.ceil(quantile * count) * 1_000L;
+            long reported = histogram.getPercentile(quantile);
+            assertTrue(quantile + ": " + reported + " < " + exact, reported >= exact);
+            assertTrue(quantile + ": " + reported + " > " + exact, reported <= exact * 1.125);
+        }
+        assertEquals(count * 1_000L, histogram.getPercentile(1.0));
+    }
+
+    /**
+     * Tests that the JMX attributes and the dump operation report the recorded outcomes, latencies and note flows.
+     */
+    @Test
+    public void testMBeanAttributes() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{10, 10, 10});
+        AtmMetrics metrics = new AtmMetrics(inventory);
+        metrics.recordWithdrawal(WithdrawalStatus.SUCCESS, 2_000_000);
+        metrics.recordWithdrawal(WithdrawalStatus.INSUFFICIENT_FUNDS, 4_000_000);
+        metrics.recordOutcome(WithdrawalStatus.LIMIT_EXCEEDED);
+        inventory.withdraw(700);
+        inventory.refill(Denomination.HUNDRED, 3);
+
+        ObjectName name = metrics.registerMBean("metrics-test");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(3L, server.getAttribute(name, "Withdrawals"));
+            assertEquals(1L, server.getAttribute(name, "SuccessfulWithdrawals"));
+            assertEquals(1L, server.getAttribute(name, "InsufficientFundsFailures"));
+            assertEquals(0L, server.getAttribute(name, "DenominationUnavailableFailures"));
+            assertEquals(1L, server.getAttribute(name, "LimitExceededFailures"));
+            assertEquals(4_000L, server.getAttribute(name, "LatencyMaxMicros"));
+            assertEquals(3_000.0, (Double) server.getAttribute(name, "LatencyMeanMicros"), 1e-9);
+            long p50 = (Long) server.getAttribute(name, "LatencyP50Micros");
+            assertTrue(p50 >= 2_000 && p50 <= 2_250);
+            assertArrayEquals(new long[]{0, 1, 1}, (long[]) server.getAttribute(name, "NotesDispensed"));
+            assertArrayEquals(new long[]{3, 0, 0}, (long[]) server.getAttribute(name, "NotesRefilled"));
+            assertTrue(((String) server.invoke(name, "dump", new Object[0], new String[0])).contains("atm_withdrawals_total{status=\"SUCCESS\"} 1\n"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
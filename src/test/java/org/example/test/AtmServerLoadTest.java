@@ -0,0 +1,158 @@
+package org.example.test;
+
+import org.example.atm.ATM;
+import org.example.atm.InventoryLog;
+import org.example.atm.NoteInventory;
+import org.example.server.AtmServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The AtmServerLoadTest class drives the HTTP front-end of the ATM with thousands of concurrent clients on localhost
+ * and reports the requests per second and p99 latency it sustains. It verifies that every dispensed note is accounted
+ * for and that bad requests are answered with {@code 400}.
+ */
+public class AtmServerLoadTest {
+
+    private static final int CLIENTS = 2000;
+    private static final int REQUESTS_PER_CLIENT = 2;
+    private static final int NOTES_PER_DENOMINATION = 1_000_000;
+
+    private ATM atm;
+    private AtmServer server;
+    private HttpClient client;
+
+    @Before
+    public void startServer() throws Exception {
+        atm = new ATM(new NoteInventory(new int[]{NOTES_PER_DENOMINATION, NOTES_PER_DENOMINATION, NOTES_PER_DENOMINATION}));
+        server = new AtmServer(atm, 0, 1024, 256, 5_000);
+        server.start();
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    /**
+     * Tests the withdraw, balance and refill endpoints once each.
+     */
+    @Test
+    public void testEndpoints() throws Exception {
+        HttpResponse<String> withdraw = send("POST", "/withdraw?amount=700");
+        assertEquals(200, withdraw.statusCode());
+        assertEquals("SUCCESS\n200=1\n500=1\n", withdraw.body());
+
+        assertEquals(409, send("POST", "/withdraw?amount=250").statusCode());
+        assertEquals(400, send("POST", "/withdraw?amount=abc").statusCode());
+        assertEquals(200, send("POST", "/refill?denomination=500&count=1").statusCode());
+        assertEquals(400, send("POST", "/refill?denomination=500&count=" + Integer.MAX_VALUE).statusCode());
+
+        HttpResponse<String> balance = send("GET", "/balance");
+        assertEquals(200, balance.statusCode());
+        assertTrue(balance.body().startsWith("balance=" + (800L * NOTES_PER_DENOMINATION - 200) + "\n"));
+    }
+
+    /**
+     * Tests the server under thousands of concurrent clients, each on its own virtual thread, and reports the
+     * requests per second and the 99th percentile latency of the run.
+     */
+    @Test
+    public void testConcurrentClients() throws Exception {
+        int totalRequests = CLIENTS * REQUESTS_PER_CLIENT;
+        long[] latencies = new long[totalRequests];
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger failures = new AtomicInteger();
+
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < CLIENTS; c++) {
+                final int clientIndex = c;
+                clients.submit(() -> {
+                    for (int r = 0; r < REQUESTS_PER_CLIENT; r++) {
+                        long requestStart = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = send("POST", "/withdraw?amount=800");
+                            if (response.statusCode() == 200) {
+                                successes.incrementAndGet();
+                            } else {
+                                failures.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        }
+                        latencies[clientIndex * REQUESTS_PER_CLIENT + r] = System.nanoTime() - requestStart;
+                    }
+                });
+            }
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        long p99Micros = latencies[(int) (totalRequests * 0.99) - 1] / 1_000;
+        long requestsPerSecond = totalRequests * 1_000_000_000L / elapsedNanos;
+        System.out.printf("AtmServer: %d clients, %d requests, %,d requests/s, p99 %,d us, %d failed%n",
+                CLIENTS, totalRequests, requestsPerSecond, p99Micros, failures.get());
+        assertTrue(requestsPerSecond > 0);
+        assertTrue(latencies[0] > 0);
+
+        assertEquals(totalRequests, successes.get() + failures.get());
+        int expectedBalance = 800 * (NOTES_PER_DENOMINATION - successes.get());
+        assertEquals(expectedBalance, atm.getInventory().getTotalBalance());
+        assertTrue("Too many failed requests: " + failures.get(), failures.get() < totalRequests / 100);
+    }
+
+    /**
+     * Tests that a failing journal is answered with {@code 500} on every endpoint that changes the inventory.
+     */
+    @Test
+    public void testJournalFailureAnswers500() throws Exception {
+        server.stop(0);
+        NoteInventory inventory = new NoteInventory(new int[]{10, 10, 10});
+        inventory.setLog(new InventoryLog() {
+            @Override
+            public void append(long version, int[] delta) throws IOException {
+                throw new IOException("Disk full");
+            }
+
+            @Override
+            public void awaitDurable(long version) {
+            }
+        });
+        atm = new ATM(inventory);
+        server = new AtmServer(atm, 0, 16, 16, 5_000);
+        server.start();
+
+        HttpResponse<String> withdraw = send("POST", "/withdraw?amount=700");
+        assertEquals(500, withdraw.statusCode());
+        assertTrue(withdraw.body().contains("Failed to log inventory version"));
+        assertEquals(500, send("POST", "/refill?denomination=500&count=1").statusCode());
+        assertEquals(500, send("POST", "/deposit?500=1").statusCode());
+        assertEquals(8_000, inventory.getTotalBalance());
+    }
+
+    private HttpResponse<String> send(String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,225 @@
+package org.example.test;
+
+import org.example.atm.ATM;
+import org.example.atm.DispenseResult;
+import org.example.atm.NoteInventory;
+import org.example.atm.Withdrawal;
+import org.example.atm.WithdrawalStatus;
+import org.example.event.DispenseEventSink;
+import org.example.exception.InsufficientFundsException;
+import org.example.exception.LimitExceededException;
+import org.example.limit.CardLimitTracker;
+import org.example.metrics.AtmMetrics;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The CardLimitTrackerTest class verifies that per-card transaction and daily limits hold under concurrent
+ * withdrawals, that failed withdrawals give their amount back and that the daily totals expire at midnight.
+ */
+public class CardLimitTrackerTest {
+
+    private static final long CARD = 4_000_123_456_789L;
+    private static final DispenseEventSink NO_EVENTS = (denominations, amount, status, notes) -> { };
+
+    /**
+     * Tests the transaction limit, the daily limit, per-card overrides and the day rollover.
+     */
+    @Test
+    public void testLimitsAndDayRollover() {
+        MutableClock clock = new MutableClock(Instant.parse("2024-03-01T10:00:00Z"));
+        CardLimitTracker limits = new CardLimitTracker(20_000, 50_000, clock);
+
+        assertFalse(limits.tryAcquire(CARD, 20_001));
+        assertTrue(limits.tryAcquire(CARD, 20_000));
+        assertTrue(limits.tryAcquire(CARD, 20_000));
+        assertFalse(limits.tryAcquire(CARD, 10_001));
+        assertTrue(limits.tryAcquire(CARD, 10_000));
+        assertEquals(50_000, limits.getUsedToday(CARD));
+        assertTrue(limits.tryAcquire(CARD + 1, 20_000));
+
+        limits.release(CARD, 5_000);
+        assertEquals(45_000, limits.getUsedToday(CARD));
+
+        limits.setLimits(CARD + 2, 1_000, 1_500);
+        assertFalse(limits.tryAcquire(CARD + 2, 1_100));
+        assertTrue(limits.tryAcquire(CARD + 2, 1_000));
+        assertFalse(limits.tryAcquire(CARD + 2, 600));
+
+        clock.set(Instant.parse("2024-03-01T23:59:59Z"));
+        assertFalse(limits.tryAcquire(CARD, 10_000));
+        clock.set(Instant.parse("2024-03-02T00:00:00Z"));
+        assertEquals(0, limits.getUsedToday(CARD));
+        assertTrue(limits.tryAcquire(CARD, 20_000));
+        assertEquals(1, limits.getTrackedCards());
+    }
+
+    /**
+     * Tests that cards' own limits outlast the day they were set on and stay intact while many cards get their own.
+     */
+    @Test
+    public void testOwnLimitsSurviveRolloverAndGrowth() {
+        MutableClock clock = new MutableClock(Instant.parse("2024-03-01T10:00:00Z"));
+        CardLimitTracker limits = new CardLimitTracker(20_000, 50_000, clock);
+        int cards = 1_000;
+        for (int i = 0; i < cards; i++) {
+            limits.setLimits(CARD + i, 1_000 + i, 2_000 + i);
+        }
+        limits.setLimits(CARD, 500, 700);
+
+        clock.set(Instant.parse("2024-03-02T10:00:00Z"));
+        assertFalse(limits.tryAcquire(CARD, 501));
+        assertTrue(limits.tryAcquire(CARD, 500));
+        assertFalse(limits.tryAcquire(CARD, 201));
+        for (int i = 1; i < cards; i++) {
+            assertFalse(limits.tryAcquire(CARD + i, 1_001 + i));
+            assertTrue(limits.tryAcquire(CARD + i, 1_000 + i));
+            assertFalse(limits.tryAcquire(CARD + i, 1_001));
+        }
+        assertTrue(limits.tryAcquire(CARD + cards, 20_000));
+    }
+
+    /**
+     * Tests that threads racing on one card through an ATM never withdraw more than the daily limit in total.
+     */
+    @Test
+    public void testConcurrentWithdrawalsRespectDailyLimit() throws InterruptedException {
+        CardLimitTracker limits = new CardLimitTracker(20_000, 50_000, Clock.systemUTC());
+        ATM atm = new ATM(new NoteInventory(new int[]{1_000, 1_000, 1_000}), NO_EVENTS, limits);
+        int threads = 16;
+        int perThread = 20;
+        AtomicInteger successes = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                DispenseResult result = new DispenseResult();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    if (atm.withdraw(CARD, 1_000, result).isSuccessful()) {
+                        successes.incrementAndGet();
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(50, successes.get());
+        assertEquals(50_000, limits.getUsedToday(CARD));
+        assertEquals(threads * perThread - 50, atm.getMetrics().getLimitExceededFailures());
+    }
+
+    /**
+     * Tests that a withdrawal over the limit throws, and that a withdrawal the ATM cannot dispense gives its amount
+     * back to the card.
+     */
+    @Test
+    public void testFailedWithdrawalReleasesLimit() throws Exception {
+        CardLimitTracker limits = new CardLimitTracker(20_000, 50_000, Clock.systemUTC());
+        NoteInventory inventory = new NoteInventory(new int[]{1, 1, 1});
+        AtmMetrics metrics = new AtmMetrics(inventory);
+
+        try {
+            new Withdrawal(5_000, inventory, metrics, NO_EVENTS).execute(CARD, limits);
+            fail("The ATM holds only 800");
+        } catch (InsufficientFundsException e) {
+            assertEquals(0, limits.getUsedToday(CARD));
+        }
+
+        new Withdrawal(700, inventory, metrics, NO_EVENTS).execute(CARD, limits);
+        assertEquals(700, limits.getUsedToday(CARD));
+
+        try {
+            new Withdrawal(25_000, inventory, metrics, NO_EVENTS).execute(CARD, limits);
+            fail("The amount is over the transaction limit");
+        } catch (LimitExceededException e) {
+            assertEquals(1, metrics.getLimitExceededFailures());
+            assertEquals(WithdrawalStatus.LIMIT_EXCEEDED.getMessage(), e.getMessage());
+        }
+    }
+
+    /**
+     * Tests that a withdrawal whose event sink fails after the debit keeps the card charged for the dispensed notes.
+     */
+    @Test
+    public void testFailingSinkKeepsLimitCharged() throws Exception {
+        CardLimitTracker limits = new CardLimitTracker(20_000, 50_000, Clock.systemUTC());
+        NoteInventory inventory = new NoteInventory(new int[]{1, 1, 1});
+        DispenseEventSink closed = (denominations, amount, status, notes) -> {
+            throw new IllegalStateException("Transaction log is closed");
+        };
+
+        try {
+            new Withdrawal(700, inventory, null, closed).execute(CARD, limits);
+            fail("The sink should have thrown");
+        } catch (IllegalStateException e) {
+            assertEquals(100, inventory.getTotalBalance());
+            assertEquals(700, limits.getUsedToday(CARD));
+        }
+    }
+
+    /**
+     * Tests that each currency's shared tracker keeps the limits it was created with, in that currency's units.
+     */
+    @Test
+    public void testSharedLimitsPerCurrency() {
+        CardLimitTracker francs = CardLimitTracker.shared("CHF", 30_000, 100_000);
+        assertSame(francs, CardLimitTracker.shared("CHF"));
+        assertSame(francs, CardLimitTracker.shared("CHF", 30_000, 100_000));
+        assertEquals(30_000, francs.getTransactionLimit());
+        assertEquals(100_000, francs.getDailyLimit());
+        try {
+            CardLimitTracker.shared("CHF", 20_000, 50_000);
+            fail("The limits of CHF are already set");
+        } catch (IllegalStateException e) {
+            assertSame(francs, CardLimitTracker.shared("CHF"));
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+        private volatile Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void set(Instant now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
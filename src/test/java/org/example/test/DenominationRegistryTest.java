@@ -0,0 +1,118 @@
+package org.example.test;
+
+import org.example.atm.Denomination;
+import org.example.atm.DenominationRegistry;
+import org.example.atm.DispenseResult;
+import org.example.atm.NoteInventory;
+import org.example.atm.WithdrawalStatus;
+import org.junit.Test;
+
+import java.util.Properties;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The DenominationRegistryTest class verifies that denominations loaded from configuration get dense indices and
+ * constant-time lookups, and that inventories dispense from them.
+ */
+public class DenominationRegistryTest {
+
+    /**
+     * Tests that configured values are indexed in ascending order and looked up by value.
+     */
+    @Test
+    public void testLoadsFromProperties() {
+        Properties properties = new Properties();
+        properties.setProperty(DenominationRegistry.CURRENCY_PROPERTY, "INR");
+        properties.setProperty(DenominationRegistry.DENOMINATIONS_PROPERTY, "2000, 500,50,200,100");
+
+        DenominationRegistry registry = DenominationRegistry.fromProperties(properties);
+
+        assertEquals("INR", registry.getCurrency());
+        assertArrayEquals(new int[]{50, 100, 200, 500, 2000}, registry.getValues());
+        assertEquals(0, registry.indexOf(50));
+        assertEquals(4, registry.indexOf(2000));
+        assertEquals(-1, registry.indexOf(1000));
+        assertEquals(-1, registry.indexOf(75));
+        assertEquals(-1, registry.indexOf(5000));
+        assertEquals(-1, registry.indexOf(0));
+        assertEquals(2, registry.indexOf(Denomination.TWO_HUNDRED));
+    }
+
+    /**
+     * Tests that duplicate or non-positive values are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsDuplicates() {
+        DenominationRegistry.of("INR", 100, 200, 100);
+    }
+
+    /**
+     * Tests that the standard registry matches the enum and that enum lookups by value need no map.
+     */
+    @Test
+    public void testStandardRegistryMatchesEnum() {
+        DenominationRegistry standard = DenominationRegistry.standard();
+        for (Denomination denomination : Denomination.values()) {
+            assertEquals(denomination.ordinal(), standard.indexOf(denomination.getValue()));
+            assertSame(denomination, Denomination.fromValue(denomination.getValue()));
+        }
+        assertNull(Denomination.fromValue(50));
+    }
+
+    /**
+     * Tests that the enum constants are declared in ascending order of value, which the standard registry relies on to
+     * make each ordinal the denomination's index.
+     */
+    @Test
+    public void testEnumDeclaredInAscendingOrder() {
+        Denomination[] denominations = Denomination.values();
+        int[] values = DenominationRegistry.standard().getValues();
+        for (int i = 0; i < denominations.length; i++) {
+            assertEquals(denominations[i].getValue(), values[i]);
+            if (i > 0) {
+                assertTrue(denominations[i - 1].getValue() < denominations[i].getValue());
+            }
+        }
+    }
+
+    /**
+     * Tests that a registry counted in cents plans amounts far above 100,000 of its units exactly, which takes a
+     * table sized to its own note values.
+     */
+    @Test
+    public void testMinorUnitRegistryPlansExactly() {
+        DenominationRegistry euroCents = DenominationRegistry.of("EUR", 500, 1000, 2000, 5000, 10000, 20000, 50000);
+        NoteInventory inventory = new NoteInventory(euroCents, new int[]{0, 0, 0, 0, 0, 100, 1});
+
+        assertTrue(inventory.canDispense(260_000));
+        DispenseResult result = inventory.withdraw(260_000, new DispenseResult());
+
+        assertEquals(WithdrawalStatus.SUCCESS, result.getStatus());
+        assertEquals(13, result.getCount(euroCents.indexOf(20000)));
+        assertEquals(0, result.getCount(euroCents.indexOf(50000)));
+    }
+
+    /**
+     * Tests withdrawing and refilling an inventory of five configured denominations.
+     */
+    @Test
+    public void testInventoryWithConfiguredDenominations() {
+        DenominationRegistry registry = DenominationRegistry.of("INR", 50, 100, 200, 500, 2000);
+        NoteInventory inventory = new NoteInventory(registry, new int[]{1, 0, 3, 0, 1});
+
+        DispenseResult result = inventory.withdraw(2650, new DispenseResult());
+        assertEquals(WithdrawalStatus.SUCCESS, result.getStatus());
+        assertArrayEquals(new int[]{1, 0, 3, 0, 1}, result.notes());
+
+        inventory.refill(registry.indexOf(500), 2);
+        assertEquals(WithdrawalStatus.DENOMINATION_UNAVAILABLE, inventory.withdraw(650, result).getStatus());
+        assertEquals(WithdrawalStatus.SUCCESS, inventory.withdraw(500, result).getStatus());
+        assertEquals(1, result.getCount(registry.indexOf(500)));
+        assertEquals(500, inventory.getTotalBalance());
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.test;
+
+import org.example.atm.ATM;
+import org.example.atm.NoteInventory;
+import org.example.event.DispenseEventSink;
+import org.example.forecast.DepletionAlert;
+import org.example.forecast.DepletionForecaster;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The DepletionForecasterTest class verifies that decayed demand rates follow the withdrawal stream on every withdrawal
+ * path, that the time to depletion is estimated from them and that low-cash alerts are raised once per denomination
+ * until a refill.
+ */
+public class DepletionForecasterTest {
+
+    private static final long MINUTE = 60_000;
+
+    /**
+     * Tests that a steady demand converges to its rate and yields the matching time to depletion.
+     */
+    @Test
+    public void testRateConvergesToSteadyDemand() {
+        MutableClock clock = new MutableClock();
+        List<DepletionAlert> alerts = new ArrayList<>();
+        DepletionForecaster forecaster = new DepletionForecaster(10 * MINUTE, 60 * MINUTE, clock, alerts::add);
+        NoteInventory inventory = new NoteInventory(new int[]{1_000, 1_000, 1_000});
+        forecaster.track(1, inventory);
+        ATM atm = new ATM(inventory, DispenseEventSink.none());
+
+        // One 500 note and one 200 note a minute for five hours
+        for (int minute = 0; minute < 300; minute++) {
+            atm.withdraw(700);
+            clock.advance(MINUTE);
+            forecaster.update();
+        }
+
+        assertEquals(60, forecaster.getNotesPerHour(1, 2), 0.5);
+        assertEquals(60, forecaster.getNotesPerHour(1, 1), 0.5);
+        assertEquals(0, forecaster.getNotesPerHour(1, 0), 0.0);
+        assertEquals(700 * MINUTE, forecaster.getMillisToDepletion(1, 2), 10 * MINUTE);
+        assertEquals(Long.MAX_VALUE, forecaster.getMillisToDepletion(1, 0));
+        assertTrue(alerts.isEmpty());
+    }
+
+    /**
+     * Tests that an alert is raised once when depletion comes within the horizon, once more when the notes run out,
+     * and again only after a refill.
+     */
+    @Test
+    public void testAlertsOncePerDenominationUntilRefill() {
+        MutableClock clock = new MutableClock();
+        List<DepletionAlert> alerts = new ArrayList<>();
+        DepletionForecaster forecaster = new DepletionForecaster(10 * MINUTE, 30 * MINUTE, clock, alerts::add);
+        NoteInventory inventory = new NoteInventory(new int[]{1_000, 1_000, 60});
+        forecaster.track(7, inventory);
+        ATM atm = new ATM(inventory, DispenseEventSink.none());
+
+        for (int minute = 0; minute < 60; minute++) {
+            atm.withdraw(500);
+            clock.advance(MINUTE);
+            forecaster.update();
+        }
+
+        assertEquals(2, alerts.size());
+        DepletionAlert warning = alerts.get(0);
+        assertEquals(7, warning.getAtmId());
+        assertEquals(500, warning.getDenomination());
+        assertTrue(warning.getMillisToDepletion() < 30 * MINUTE);
+        assertTrue(warning.getRemainingNotes() > 0);
+        assertTrue(alerts.get(1).isDepleted());
+
+        inventory.refill(2, 10);
+        clock.advance(MINUTE);
+        forecaster.update();
+        assertEquals(3, alerts.size());
+        assertEquals(10, alerts.get(2).getRemainingNotes());
+    }
+
+    /**
+     * Tests that demand decays once withdrawals stop.
+     */
+    @Test
+    public void testRateDecaysWithoutDemand() {
+        MutableClock clock = new MutableClock();
+        DepletionForecaster forecaster = new DepletionForecaster(10 * MINUTE, 60 * MINUTE, clock, alert -> { });
+        NoteInventory inventory = new NoteInventory(new int[]{1_000, 1_000, 1_000});
+        forecaster.track(3, inventory);
+        ATM atm = new ATM(inventory, DispenseEventSink.none());
+        for (int minute = 0; minute < 120; minute++) {
+            atm.withdraw(100);
+            clock.advance(MINUTE);
+            forecaster.update();
+        }
+        double busy = forecaster.getNotesPerHour(3, 0);
+
+        clock.advance(10 * MINUTE);
+        forecaster.update();
+        assertEquals(busy / 2, forecaster.getNotesPerHour(3, 0), 0.01);
+    }
+
+    /**
+     * Tests that batch and asynchronous withdrawals count as demand like single ones, and that refills do not.
+     */
+    @Test
+    public void testCountsEveryWithdrawalPath() throws Exception {
+        MutableClock clock = new MutableClock();
+        DepletionForecaster forecaster = new DepletionForecaster(10 * MINUTE, 60 * MINUTE, clock, alert -> { });
+        NoteInventory inventory = new NoteInventory(new int[]{1_000, 1_000, 1_000});
+        forecaster.track(5, inventory);
+        ATM atm = new ATM(inventory, DispenseEventSink.none());
+
+        atm.withdrawAll(new long[]{500, 500});
+        atm.withdrawAsync(500).get(10, TimeUnit.SECONDS);
+        atm.closePipeline();
+        atm.tryWithdraw(500);
+        inventory.refill(2, 100);
+        clock.advance(10 * MINUTE);
+        forecaster.update();
+
+        // Four 500 notes in ten minutes, weighted by half for one half-life
+        assertEquals(12, forecaster.getNotesPerHour(5, 2), 0.01);
+        assertEquals(0, forecaster.getNotesPerHour(5, 0), 0.0);
+        forecaster.close();
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis = Instant.parse("2024-03-01T08:00:00Z").toEpochMilli();
+
+        void advance(long delta) {
+            millis += delta;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package org.example.test;
+
+import org.example.atm.DispenseResult;
+import org.example.atm.InventorySnapshot;
+import org.example.atm.NoteInventory;
+import org.example.atm.WithdrawalStatus;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The DepositTest class verifies that deposits are applied atomically while withdrawals run, and that waiting
+ * withdrawals dispense deposited notes as soon as they arrive.
+ */
+public class DepositTest {
+
+    /**
+     * Tests that readers never see part of a batched deposit and that no note is lost while deposits and withdrawals
+     * run concurrently.
+     */
+    @Test
+    public void testDepositsAreAtomicAlongsideWithdrawals() throws InterruptedException {
+        NoteInventory inventory = new NoteInventory(new int[]{0, 0, 0});
+        int deposits = 5_000;
+        AtomicBoolean torn = new AtomicBoolean();
+        AtomicLong withdrawn = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(1);
+
+        // Every deposit holds one 100, one 200 and one 500 note, and withdrawals always take 800, so all counts stay equal
+        Thread depositor = new Thread(() -> {
+            for (int i = 0; i < deposits; i++) {
+                inventory.deposit(new int[]{1, 1, 1});
+            }
+            done.countDown();
+        });
+        Thread withdrawer = new Thread(() -> {
+            DispenseResult result = new DispenseResult();
+            while (done.getCount() > 0 || inventory.getTotalBalance() > 0) {
+                if (inventory.withdraw(800, result).isSuccessful()) {
+                    withdrawn.addAndGet(800);
+                }
+            }
+        });
+        Thread reader = new Thread(() -> {
+            while (done.getCount() > 0) {
+                InventorySnapshot snapshot = inventory.snapshot();
+                if (snapshot.getCount(0) != snapshot.getCount(1) || snapshot.getCount(1) != snapshot.getCount(2)) {
+                    torn.set(true);
+                }
+            }
+        });
+        depositor.start();
+        withdrawer.start();
+        reader.start();
+        depositor.join();
+        withdrawer.join();
+        reader.join();
+
+        assertFalse(torn.get());
+        assertEquals(800L * deposits, withdrawn.get());
+        assertEquals(0, inventory.getTotalBalance());
+    }
+
+    /**
+     * Tests that withdrawals waiting for a denomination dispense the notes of a deposit straight away.
+     */
+    @Test
+    public void testWaitingWithdrawalsSeeDeposits() throws InterruptedException {
+        NoteInventory inventory = new NoteInventory(new int[]{0, 10, 0});
+        int waiters = 4;
+        AtomicInteger successes = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(waiters);
+        Thread[] threads = new Thread[waiters];
+        for (int t = 0; t < waiters; t++) {
+            threads[t] = new Thread(() -> {
+                started.countDown();
+                try {
+                    DispenseResult result = inventory.withdraw(500, new DispenseResult(), 10, TimeUnit.SECONDS);
+                    if (result.isSuccessful()) {
+                        successes.incrementAndGet();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads[t].start();
+        }
+        started.await();
+        Thread.sleep(50);
+        assertEquals(0, successes.get());
+
+        long version = inventory.getVersion();
+        assertEquals(version + 1, inventory.deposit(new int[]{0, 0, waiters}));
+        for (Thread thread : threads) {
+            thread.join(10_000);
+        }
+        assertEquals(waiters, successes.get());
+        assertEquals(10, inventory.getCount(1));
+        assertEquals(0, inventory.getCount(2));
+    }
+
+    /**
+     * Tests that a waiting withdrawal gives up after its timeout and that invalid deposits are rejected unapplied.
+     */
+    @Test
+    public void testTimeoutAndInvalidDeposits() throws InterruptedException {
+        NoteInventory inventory = new NoteInventory(new int[]{1, 1, 1});
+        long start = System.nanoTime();
+        DispenseResult result = inventory.withdraw(5_000, new DispenseResult(), 50, TimeUnit.MILLISECONDS);
+        assertEquals(WithdrawalStatus.INSUFFICIENT_FUNDS, result.getStatus());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+
+        assertRejected(inventory, new int[]{1, 1});
+        assertRejected(inventory, new int[]{1, -1, 1});
+        assertRejected(inventory, new int[]{0, 0, 0});
+        assertEquals(800, inventory.getTotalBalance());
+    }
+
+    private static void assertRejected(NoteInventory inventory, int[] notes) {
+        try {
+            inventory.deposit(notes);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        throw new AssertionError("Deposit should have been rejected");
+    }
+}
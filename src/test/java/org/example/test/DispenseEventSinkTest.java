@@ -0,0 +1,147 @@
+package org.example.test;
+
+import org.example.atm.ATM;
+import org.example.atm.DenominationRegistry;
+import org.example.atm.NoteInventory;
+import org.example.atm.WithdrawalStatus;
+import org.example.event.BufferFullPolicy;
+import org.example.event.FileEventHandler;
+import org.example.event.RingBufferEventSink;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The DispenseEventSinkTest class verifies that the ring buffer sink delivers every event exactly once under the
+ * blocking policy, drops instead of waiting under the dropping policy, loses no accepted event to a racing close, and
+ * feeds the file handler.
+ */
+public class DispenseEventSinkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that events from many threads all reach the handler when publishers wait for free slots.
+     */
+    @Test
+    public void testBlockingPolicyDeliversEveryEvent() throws Exception {
+        int threads = 8;
+        int eventsPerThread = 10_000;
+        AtomicLong handled = new AtomicLong();
+        AtomicLong amountSum = new AtomicLong();
+        RingBufferEventSink sink = RingBufferEventSink.start(64, BufferFullPolicy.BLOCK, (event, endOfBatch) -> {
+            handled.incrementAndGet();
+            amountSum.addAndGet(event.getAmount());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        int[] notes = {1, 0, 0};
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 1; i <= eventsPerThread; i++) {
+                    sink.publish(DenominationRegistry.standard(), i, WithdrawalStatus.SUCCESS, notes);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        sink.close();
+
+        assertEquals((long) threads * eventsPerThread, handled.get());
+        assertEquals(threads * ((long) eventsPerThread * (eventsPerThread + 1) / 2), amountSum.get());
+        assertEquals(0, sink.getDroppedCount());
+    }
+
+    /**
+     * Tests that a stalled consumer makes the sink drop events rather than block the publisher.
+     */
+    @Test
+    public void testDropPolicyNeverBlocks() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong handled = new AtomicLong();
+        RingBufferEventSink sink = RingBufferEventSink.start(16, BufferFullPolicy.DROP, (event, endOfBatch) -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.incrementAndGet();
+        });
+
+        for (int i = 0; i < 100; i++) {
+            sink.publish(DenominationRegistry.standard(), 100, WithdrawalStatus.SUCCESS, new int[3]);
+        }
+        release.countDown();
+        sink.close();
+
+        assertTrue(sink.getDroppedCount() >= 100 - 17);
+        assertEquals(100, handled.get() + sink.getDroppedCount());
+    }
+
+    /**
+     * Tests that every event whose publish call returned normally is handled, even when the sink is closed while
+     * publishers are still running.
+     */
+    @Test
+    public void testCloseKeepsAcceptedEvents() throws Exception {
+        int threads = 4;
+        for (int round = 0; round < 50; round++) {
+            AtomicLong handled = new AtomicLong();
+            AtomicLong accepted = new AtomicLong();
+            RingBufferEventSink sink = RingBufferEventSink.start(64, BufferFullPolicy.BLOCK,
+                    (event, endOfBatch) -> handled.incrementAndGet());
+            CountDownLatch started = new CountDownLatch(threads);
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> {
+                    started.countDown();
+                    try {
+                        while (true) {
+                            sink.publish(DenominationRegistry.standard(), 100, WithdrawalStatus.SUCCESS, new int[3]);
+                            accepted.incrementAndGet();
+                        }
+                    } catch (IllegalStateException e) {
+                        // The sink was closed
+                    }
+                });
+            }
+            started.await();
+            sink.close();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+            assertEquals(accepted.get(), handled.get());
+        }
+    }
+
+    /**
+     * Tests that withdrawals made through the ATM end up in the event file.
+     */
+    @Test
+    public void testAtmWritesEventsToFile() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("events.log");
+        try (RingBufferEventSink sink = RingBufferEventSink.start(8, BufferFullPolicy.BLOCK, new FileEventHandler(file))) {
+            ATM atm = new ATM(new NoteInventory(new int[]{10, 5, 2}), sink);
+            atm.withdraw(700);
+            atm.withdraw(250);
+        }
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).endsWith("amount=700 status=SUCCESS notes=200x1,500x1"));
+        assertTrue(lines.get(1).endsWith("amount=250 status=DENOMINATION_UNAVAILABLE notes=-"));
+    }
+}
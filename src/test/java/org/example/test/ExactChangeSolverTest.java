@@ -0,0 +1,172 @@
+package org.example.test;
+
+import org.example.atm.ExactChangeSolver;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The ExactChangeSolverTest class checks the exact-change solver against a brute-force search and verifies that its
+ * incrementally maintained feasibility table matches a freshly built one.
+ */
+public class ExactChangeSolverTest {
+
+    private static final int[] VALUES = {50, 100, 200, 500, 2000};
+
+    /**
+     * Tests that the solver finds a combination exactly when a brute-force search does, for random small inventories.
+     */
+    @Test
+    public void testMatchesBruteForce() {
+        ExactChangeSolver solver = new ExactChangeSolver(VALUES, 10_000);
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int[] counts = new int[VALUES.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = random.nextInt(4);
+            }
+            long[] table = solver.newTable(counts);
+            for (int amount = 50; amount <= 10_000; amount += 50) {
+                boolean expected = bruteForce(counts, amount, 0);
+                int[] plan = solver.plan(table, counts, amount);
+                assertEquals("amount " + amount, expected, solver.isReachable(table, amount));
+                if (expected) {
+                    assertNotNull("amount " + amount, plan);
+                    assertPlanPays(plan, counts, amount);
+                } else {
+                    assertNull("amount " + amount, plan);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that a table updated count by count equals a table built from scratch, for inventories with millions of notes.
+     */
+    @Test
+    public void testIncrementalUpdatesMatchRebuild() {
+        ExactChangeSolver solver = new ExactChangeSolver(VALUES, 100_000);
+        int[] counts = {3_000_000, 1, 2_500_000, 0, 4_000_000};
+        long[] table = solver.newTable(counts);
+        Random random = new Random(7);
+        for (int step = 0; step < 50; step++) {
+            int index = random.nextInt(counts.length);
+            int updated = random.nextBoolean() ? random.nextInt(5) : random.nextInt(5_000_000);
+            solver.updateCount(table, index, counts[index], updated);
+            counts[index] = updated;
+            long[] rebuilt = solver.newTable(counts);
+            for (int amount = 0; amount <= 100_000; amount += 50) {
+                assertEquals(solver.isReachable(rebuilt, amount), solver.isReachable(table, amount));
+            }
+        }
+    }
+
+    /**
+     * Tests that amounts above the table range are still planned exactly from a large inventory.
+     */
+    @Test
+    public void testAmountAboveTableRange() {
+        ExactChangeSolver solver = new ExactChangeSolver(VALUES, 10_000);
+        int[] counts = {1, 0, 3, 0, 1_000_000};
+        long[] table = solver.newTable(counts);
+
+        int[] plan = solver.plan(table, counts, 1_000_650);
+
+        assertNotNull(plan);
+        assertPlanPays(plan, counts, 1_000_650);
+    }
+
+    /**
+     * Tests that an amount above the table range is paid even when the largest notes cannot be part of the payment.
+     */
+    @Test
+    public void testAmountAboveTableRangeWithoutLargestNotes() {
+        int[] values = {100, 200, 500};
+        ExactChangeSolver solver = new ExactChangeSolver(values, 100_000);
+        int[] counts = {0, 1000, 1};
+        long[] table = solver.newTable(counts);
+
+        int[] plan = solver.plan(table, counts, 100_400);
+
+        assertNotNull(plan);
+        assertEquals(0, plan[0]);
+        assertEquals(502, plan[1]);
+        assertEquals(0, plan[2]);
+    }
+
+    /**
+     * Tests that the solver agrees with a bounded knapsack over every amount above the table range, for random
+     * inventories whose balance is many times the range.
+     */
+    @Test
+    public void testMatchesKnapsackAboveTableRange() {
+        ExactChangeSolver solver = new ExactChangeSolver(VALUES, 10_000);
+        Random random = new Random(11);
+        for (int round = 0; round < 20; round++) {
+            int[] counts = new int[VALUES.length];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = random.nextInt(40);
+            }
+            boolean[] reachable = knapsack(counts);
+            long[] table = solver.newTable(counts);
+            for (int amount = 10_050; amount < reachable.length * 50; amount += 50) {
+                int[] plan = solver.plan(table, counts, amount);
+                assertEquals("amount " + amount, reachable[amount / 50], plan != null);
+                if (plan != null) {
+                    assertPlanPays(plan, counts, amount);
+                }
+            }
+        }
+    }
+
+    private static void assertPlanPays(int[] plan, int[] counts, int amount) {
+        long paid = 0;
+        for (int i = 0; i < plan.length; i++) {
+            assertTrue(plan[i] >= 0 && plan[i] <= counts[i]);
+            paid += (long) plan[i] * VALUES[i];
+        }
+        assertEquals(amount, paid);
+    }
+
+    // Reachable amounts in units of 50, splitting each count into powers of two so the pass stays short
+    private static boolean[] knapsack(int[] counts) {
+        int balance = 0;
+        for (int i = 0; i < counts.length; i++) {
+            balance += counts[i] * VALUES[i] / 50;
+        }
+        boolean[] reachable = new boolean[balance + 1];
+        reachable[0] = true;
+        for (int i = 0; i < counts.length; i++) {
+            int left = counts[i];
+            for (int part = 1; left > 0; part <<= 1) {
+                int notes = Math.min(part, left);
+                left -= notes;
+                int weight = notes * VALUES[i] / 50;
+                for (int x = balance; x >= weight; x--) {
+                    reachable[x] |= reachable[x - weight];
+                }
+            }
+        }
+        return reachable;
+    }
+
+    private static boolean bruteForce(int[] counts, int amount, int index) {
+        if (amount == 0) {
+            return true;
+        }
+        if (index == counts.length) {
+            return false;
+        }
+        for (int notes = 0; notes <= counts[index] && notes * VALUES[index] <= amount; notes++) {
+            if (bruteForce(counts, amount - notes * VALUES[index], index + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
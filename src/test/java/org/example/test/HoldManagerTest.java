@@ -0,0 +1,198 @@
+package org.example.test;
+
+import org.example.atm.HoldManager;
+import org.example.atm.HoldState;
+import org.example.atm.InventoryLog;
+import org.example.atm.NoteHold;
+import org.example.atm.NoteInventory;
+import org.example.atm.TimerWheel;
+import org.example.exception.AmountNegativeException;
+import org.example.exception.DenominationUnavailableException;
+import org.example.exception.HoldExpiredException;
+import org.example.exception.InsufficientFundsException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The HoldManagerTest class verifies the reserve/commit/release life cycle of dispense holds, including automatic
+ * expiry, races between a late commit and the expiry timer, and holds whose notes cannot be put back.
+ */
+public class HoldManagerTest {
+
+    private TimerWheel wheel;
+
+    @Before
+    public void startWheel() {
+        wheel = TimerWheel.start(5, 64);
+    }
+
+    @After
+    public void stopWheel() {
+        wheel.close();
+    }
+
+    /**
+     * Tests that reserved notes are unavailable to other withdrawals and come back on release.
+     */
+    @Test
+    public void testReserveAndRelease() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{0, 0, 2});
+        HoldManager holds = new HoldManager(inventory, 60_000, wheel);
+
+        NoteHold hold = holds.reserve(500);
+        assertArrayEquals(new int[]{0, 0, 1}, hold.getNotes());
+        assertArrayEquals(new int[]{0, 0, 1}, inventory.getCounts());
+        inventory.withdraw(500);
+        assertFalse(inventory.canDispense(500));
+
+        assertTrue(holds.release(hold));
+        assertFalse(holds.release(hold));
+        assertEquals(HoldState.RELEASED, hold.getState());
+        assertArrayEquals(new int[]{0, 0, 1}, inventory.getCounts());
+        assertEquals(0, holds.getPendingCount());
+    }
+
+    /**
+     * Tests that a committed hold keeps its notes out and cannot be released afterwards.
+     */
+    @Test
+    public void testCommit() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{10, 5, 2});
+        HoldManager holds = new HoldManager(inventory, 60_000, wheel);
+
+        NoteHold hold = holds.reserve(700);
+        assertTrue(holds.commit(hold));
+        assertFalse(holds.commit(hold));
+        assertFalse(holds.release(hold));
+        assertEquals(HoldState.COMMITTED, hold.getState());
+        assertEquals(2300, inventory.getTotalBalance());
+    }
+
+    /**
+     * Tests that a forgotten hold expires and that committing it afterwards fails.
+     */
+    @Test(expected = HoldExpiredException.class)
+    public void testExpiredHoldCannotBeCommitted() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{10, 5, 2});
+        HoldManager holds = new HoldManager(inventory, 20, wheel);
+
+        NoteHold hold = holds.reserve(700);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (hold.isPending() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(HoldState.EXPIRED, hold.getState());
+        assertEquals(1, holds.getExpiredCount());
+        assertEquals(3000, inventory.getTotalBalance());
+        holds.commit(hold);
+    }
+
+    /**
+     * Tests that commits racing the expiry timer never lose or duplicate notes: every hold is either committed with
+     * its notes gone or expired with its notes back.
+     */
+    @Test
+    public void testCommitRacesExpiry() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{100_000, 100_000, 100_000});
+        HoldManager holds = new HoldManager(inventory, 10, wheel);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> committedAmounts = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            committedAmounts.add(executor.submit(() -> {
+                long committed = 0;
+                for (int i = 0; i < 200; i++) {
+                    NoteHold hold = reserve(holds, 800);
+                    Thread.sleep(i % 3 == 0 ? 15 : 0);
+                    try {
+                        holds.commit(hold);
+                        committed += hold.getAmount();
+                    } catch (HoldExpiredException e) {
+                        assertEquals(HoldState.EXPIRED, hold.getState());
+                    }
+                }
+                return committed;
+            }));
+        }
+        long committed = 0;
+        for (Future<Long> amount : committedAmounts) {
+            committed += amount.get();
+        }
+        executor.shutdown();
+
+        assertEquals(0, holds.getPendingCount());
+        assertEquals(80_000_000 - committed, inventory.getTotalBalance());
+        assertTrue(holds.getExpiredCount() > 0);
+    }
+
+    /**
+     * Tests that a release whose notes cannot be logged keeps the hold pending, so the notes are not lost.
+     */
+    @Test
+    public void testFailedRestoreKeepsHoldPending() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{0, 0, 2});
+        SwitchableLog log = new SwitchableLog();
+        inventory.setLog(log);
+        HoldManager holds = new HoldManager(inventory, 60_000, wheel);
+        NoteHold hold = holds.reserve(500);
+
+        log.failing = true;
+        try {
+            holds.release(hold);
+            fail("The release should have failed");
+        } catch (UncheckedIOException e) {
+            assertTrue(hold.isPending());
+            assertEquals(1, holds.getPendingCount());
+            assertEquals(500, inventory.getTotalBalance());
+        }
+
+        log.failing = false;
+        assertTrue(holds.release(hold));
+        assertEquals(HoldState.RELEASED, hold.getState());
+        assertEquals(0, holds.getPendingCount());
+        assertEquals(1_000, inventory.getTotalBalance());
+    }
+
+    private static NoteHold reserve(HoldManager holds, long amount) {
+        try {
+            return holds.reserve(amount);
+        } catch (AmountNegativeException | InsufficientFundsException | DenominationUnavailableException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * An inventory log that fails every append while {@code failing} is set.
+     */
+    private static final class SwitchableLog implements InventoryLog {
+
+        private volatile boolean failing;
+
+        @Override
+        public void append(long version, int[] delta) throws IOException {
+            if (failing) {
+                throw new IOException("Disk full");
+            }
+        }
+
+        @Override
+        public void awaitDurable(long version) {
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.test;
+
+import org.example.atm.Denomination;
+import org.example.atm.NoteInventory;
+import org.example.exception.AmountNegativeException;
+import org.example.exception.DenominationUnavailableException;
+import org.example.exception.InsufficientFundsException;
+import org.example.journal.InventoryJournal;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * The InventoryJournalTest class verifies that the write-ahead journal rebuilds the exact note counts after a restart,
+ * across snapshots, concurrent withdrawals and a damaged journal tail.
+ */
+public class InventoryJournalTest {
+
+    private static final int[] INITIAL_COUNTS = {1_000, 1_000, 1_000};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that concurrent withdrawals and refills are recovered exactly, including those made after the last snapshot.
+     */
+    @Test
+    public void testRecoversConcurrentChanges() throws Exception {
+        Path directory = folder.newFolder("journal").toPath();
+        int[] expectedCounts;
+        long expectedVersion;
+        try (InventoryJournal journal = InventoryJournal.open(directory, INITIAL_COUNTS, 25)) {
+            NoteInventory inventory = journal.getInventory();
+            int threads = 8;
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int t = 0; t < threads; t++) {
+                final int offset = t;
+                new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 40; i++) {
+                            inventory.withdraw(100 * (1 + (i + offset) % 9));
+                        }
+                        inventory.refill(Denomination.TWO_HUNDRED, 3);
+                    } catch (AmountNegativeException | InsufficientFundsException | DenominationUnavailableException e) {
+                        throw new AssertionError(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }).start();
+            }
+            done.await();
+            expectedCounts = inventory.getCounts();
+            expectedVersion = inventory.getVersion();
+        }
+
+        try (InventoryJournal reopened = InventoryJournal.open(directory, new int[3], 25)) {
+            assertArrayEquals(expectedCounts, reopened.getInventory().getCounts());
+            assertEquals(expectedVersion, reopened.getInventory().getVersion());
+        }
+    }
+
+    /**
+     * Tests that a partially written record at the end of the journal is ignored on recovery.
+     */
+    @Test
+    public void testIgnoresTornRecord() throws Exception {
+        Path directory = folder.newFolder("torn").toPath();
+        try (InventoryJournal journal = InventoryJournal.open(directory, INITIAL_COUNTS, 1_000)) {
+            journal.getInventory().withdraw(700);
+            journal.getInventory().withdraw(300);
+        }
+        Files.write(lastSegment(directory), new byte[]{1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        try (InventoryJournal reopened = InventoryJournal.open(directory, new int[3], 1_000)) {
+            assertArrayEquals(new int[]{999, 998, 999}, reopened.getInventory().getCounts());
+            assertEquals(2, reopened.getInventory().getVersion());
+        }
+    }
+
+    /**
+     * Tests that a change the journal cannot record is never applied to the inventory.
+     */
+    @Test
+    public void testUnjournaledChangeIsNotApplied() throws Exception {
+        Path directory = folder.newFolder("closed").toPath();
+        InventoryJournal journal = InventoryJournal.open(directory, INITIAL_COUNTS, 1_000);
+        NoteInventory inventory = journal.getInventory();
+        inventory.withdraw(700);
+        journal.close();
+
+        try {
+            inventory.withdraw(300);
+            fail("The journal is closed");
+        } catch (UncheckedIOException e) {
+            assertArrayEquals(new int[]{1_000, 999, 999}, inventory.getCounts());
+            assertEquals(1, inventory.getVersion());
+        }
+
+        try (InventoryJournal reopened = InventoryJournal.open(directory, new int[3], 1_000)) {
+            assertArrayEquals(inventory.getCounts(), reopened.getInventory().getCounts());
+        }
+    }
+
+    private static Path lastSegment(Path directory) throws IOException {
+        Path last = null;
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, "journal-*.log")) {
+            for (Path segment : segments) {
+                if (last == null || segment.compareTo(last) > 0) {
+                    last = segment;
+                }
+            }
+        }
+        return last;
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.test;
+
+import org.example.atm.DenominationRegistry;
+import org.example.atm.DispenseResult;
+import org.example.atm.MultiCurrencyATM;
+import org.example.atm.NoteInventory;
+import org.example.atm.WithdrawalStatus;
+import org.example.event.DispenseEventSink;
+import org.example.limit.CardLimitTracker;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The MultiCurrencyAtmTest class verifies that a multi-currency ATM keeps a separate inventory per currency, that
+ * withdrawals in different currencies stay independent under concurrency and that amounts beyond the {@code int}
+ * range are dispensed and balanced exactly.
+ */
+public class MultiCurrencyAtmTest {
+
+    private static final DenominationRegistry EUR = DenominationRegistry.of("EUR", 500, 1_000, 2_000, 5_000, 10_000, 20_000, 50_000);
+    private static final DenominationRegistry USD = DenominationRegistry.of("USD", 100, 500, 1_000, 2_000, 5_000, 10_000);
+    private static final DispenseEventSink NO_EVENTS = (denominations, amount, status, notes) -> { };
+
+    /**
+     * Tests that a vault holding more than {@link Integer#MAX_VALUE} in value dispenses and balances exactly.
+     */
+    @Test
+    public void testAmountsBeyondIntRange() {
+        NoteInventory vault = new NoteInventory(EUR, new int[]{0, 0, 0, 0, 0, 100_000, 100_000});
+        MultiCurrencyATM atm = new MultiCurrencyATM(List.of(vault), NO_EVENTS);
+        assertEquals(7_000_000_000L, atm.getBalance("EUR"));
+
+        DispenseResult result = atm.withdraw("EUR", 3_000_000_010L, new DispenseResult());
+        assertEquals(WithdrawalStatus.DENOMINATION_UNAVAILABLE, result.getStatus());
+
+        result = atm.withdraw("EUR", 3_000_020_000L, result);
+        assertTrue(result.isSuccessful());
+        assertEquals(3_000_020_000L, result.getAmount());
+        assertEquals(60_000, result.getCount(EUR.indexOf(50_000)));
+        assertEquals(1, result.getCount(EUR.indexOf(20_000)));
+        assertEquals(3_999_980_000L, atm.getBalance("EUR"));
+        assertEquals(WithdrawalStatus.INSUFFICIENT_FUNDS, atm.withdraw("EUR", 4_000_000_000L, result).getStatus());
+    }
+
+    /**
+     * Tests that concurrent withdrawals in two currencies only ever change the inventory of their own currency.
+     */
+    @Test
+    public void testCurrenciesAreIndependent() throws InterruptedException {
+        NoteInventory euros = new NoteInventory(EUR, new int[]{10_000, 10_000, 10_000, 10_000, 10_000, 10_000, 10_000});
+        NoteInventory dollars = new NoteInventory(USD, new int[]{10_000, 10_000, 10_000, 10_000, 10_000, 10_000});
+        MultiCurrencyATM atm = new MultiCurrencyATM(List.of(euros, dollars), NO_EVENTS);
+        long euroBalance = atm.getBalance("EUR");
+        long dollarBalance = atm.getBalance("USD");
+
+        AtomicLong euroDispensed = new AtomicLong();
+        AtomicLong dollarDispensed = new AtomicLong();
+        Thread[] workers = new Thread[8];
+        for (int t = 0; t < workers.length; t++) {
+            final boolean euro = t % 2 == 0;
+            workers[t] = new Thread(() -> {
+                DispenseResult result = new DispenseResult();
+                for (int i = 0; i < 2_000; i++) {
+                    if (euro && atm.withdraw("EUR", 7_500, result).isSuccessful()) {
+                        euroDispensed.addAndGet(result.getAmount());
+                    } else if (!euro && atm.withdraw("USD", 3_600, result).isSuccessful()) {
+                        dollarDispensed.addAndGet(result.getAmount());
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals(4 * 2_000 * 7_500L, euroDispensed.get());
+        assertEquals(4 * 2_000 * 3_600L, dollarDispensed.get());
+        assertEquals(euroBalance - euroDispensed.get(), atm.getBalance("EUR"));
+        assertEquals(dollarBalance - dollarDispensed.get(), atm.getBalance("USD"));
+        assertEquals(4 * 2_000, euros.getVersion());
+        assertEquals(4 * 2_000, dollars.getVersion());
+        assertEquals(List.of("EUR", "USD"), List.copyOf(atm.getBalances().keySet()));
+    }
+
+    /**
+     * Tests deposits, card limits per currency and the rejection of unknown or duplicate currencies.
+     */
+    @Test
+    public void testDepositsLimitsAndUnknownCurrencies() {
+        // Limits in cents: 300.00 per transaction and 500.00 per day
+        CardLimitTracker dollarLimits = new CardLimitTracker(30_000, 50_000, Clock.systemUTC());
+        MultiCurrencyATM atm = new MultiCurrencyATM(List.of(new NoteInventory(EUR, new int[7]),
+                new NoteInventory(USD, new int[6])), NO_EVENTS, Map.of("USD", dollarLimits));
+        atm.deposit("USD", new int[]{0, 0, 0, 0, 0, 100});
+        assertEquals(1_000_000, atm.getBalance("USD"));
+        assertEquals(0, atm.getBalance("EUR"));
+
+        long card = 5_555_000_111L;
+        assertSame(dollarLimits, atm.get("USD").getCardLimits());
+        DispenseResult result = new DispenseResult();
+        assertTrue(atm.withdraw("USD", card, 30_000, result).isSuccessful());
+        assertEquals(WithdrawalStatus.LIMIT_EXCEEDED, atm.withdraw("USD", card, 30_000, result).getStatus());
+        assertTrue(atm.withdraw("USD", card, 20_000, result).isSuccessful());
+        assertEquals(0, atm.get("EUR").getCardLimits().getUsedToday(card));
+
+        assertRejected(() -> atm.get("GBP"));
+        assertRejected(() -> new MultiCurrencyATM(List.of(new NoteInventory(USD, new int[6]), new NoteInventory(USD, new int[6]))));
+    }
+
+    private static void assertRejected(Runnable action) {
+        try {
+            action.run();
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        throw new AssertionError("Expected an IllegalArgumentException");
+    }
+}
@@ -0,0 +1,335 @@
+package org.example.test;
+
+import org.example.atm.ATM;
+import org.example.atm.Denomination;
+import org.example.atm.DispenseResult;
+import org.example.atm.InventorySnapshot;
+import org.example.atm.NoteInventory;
+import org.example.atm.WithdrawalResult;
+import org.example.atm.WithdrawalStatus;
+import org.example.exception.AmountNegativeException;
+import org.example.exception.DenominationUnavailableException;
+import org.example.exception.InsufficientFundsException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The NoteInventoryTest class verifies that {@link NoteInventory} debits notes atomically when many threads
+ * withdraw at once, and that a batch still commits while single withdrawals keep changing the state under it.
+ */
+public class NoteInventoryTest {
+
+    private static final int NOTES_PER_DENOMINATION = 2_000_000;
+    private static final int WITHDRAWALS_PER_THREAD = 20_000;
+    private static final int[] AMOUNTS = {100, 300, 700, 800, 1500};
+
+    /**
+     * Tests that a withdrawal debits exactly the dispensed notes and bumps the version.
+     */
+    @Test
+    public void testWithdrawDebitsDispensedNotes() throws AmountNegativeException, InsufficientFundsException, DenominationUnavailableException {
+        NoteInventory inventory = new NoteInventory(new int[]{10, 5, 2});
+        int[] dispensed = inventory.withdraw(700);
+
+        assertEquals(1, dispensed[Denomination.FIVE_HUNDRED.ordinal()]);
+        assertEquals(1, dispensed[Denomination.TWO_HUNDRED.ordinal()]);
+        assertArrayEquals(new int[]{10, 4, 1}, inventory.getCounts());
+        assertEquals(1, inventory.getVersion());
+        assertEquals(2300, inventory.getTotalBalance());
+    }
+
+    /**
+     * Tests that a failed withdrawal leaves the inventory untouched.
+     */
+    @Test
+    public void testFailedWithdrawalLeavesInventoryUnchanged() throws AmountNegativeException, InsufficientFundsException {
+        NoteInventory inventory = new NoteInventory(new int[]{0, 1, 0});
+        try {
+            inventory.withdraw(100);
+        } catch (DenominationUnavailableException e) {
+            assertArrayEquals(new int[]{0, 1, 0}, inventory.getCounts());
+            assertEquals(0, inventory.getVersion());
+            return;
+        }
+        throw new AssertionError("Expected DenominationUnavailableException");
+    }
+
+    /**
+     * Tests that an amount the largest-note-first strategy cannot pay is still paid when another combination exists.
+     */
+    @Test
+    public void testExactChangeWhereGreedyFails() throws AmountNegativeException, InsufficientFundsException, DenominationUnavailableException {
+        NoteInventory inventory = new NoteInventory(new int[]{0, 3, 1});
+        assertTrue(inventory.canDispense(600));
+
+        int[] dispensed = inventory.withdraw(600);
+
+        assertArrayEquals(new int[]{0, 3, 0}, dispensed);
+        assertArrayEquals(new int[]{0, 0, 1}, inventory.getCounts());
+        assertFalse(inventory.canDispense(600));
+    }
+
+    /**
+     * Tests that an amount above the feasibility table's range is paid exactly when the largest note cannot be used.
+     */
+    @Test
+    public void testExactChangeAboveTableRange() throws AmountNegativeException, InsufficientFundsException, DenominationUnavailableException {
+        NoteInventory inventory = new NoteInventory(new int[]{0, 1000, 1});
+        assertTrue(inventory.canDispense(100_400));
+
+        int[] dispensed = inventory.withdraw(100_400);
+
+        assertArrayEquals(new int[]{0, 502, 0}, dispensed);
+        assertArrayEquals(new int[]{0, 498, 1}, inventory.getCounts());
+    }
+
+    /**
+     * Tests that refilled notes are immediately taken into account by the feasibility check.
+     */
+    @Test
+    public void testRefillUpdatesFeasibility() {
+        NoteInventory inventory = new NoteInventory(new int[]{0, 0, 1});
+        assertFalse(inventory.canDispense(700));
+
+        inventory.refill(Denomination.TWO_HUNDRED, 1);
+
+        assertTrue(inventory.canDispense(700));
+        assertFalse(inventory.canDispense(300));
+        assertEquals(1, inventory.getVersion());
+    }
+
+    /**
+     * Tests that the result-object variant reports every outcome through its status and reuses the same result.
+     */
+    @Test
+    public void testWithdrawIntoResult() {
+        NoteInventory inventory = new NoteInventory(new int[]{10, 5, 2});
+        DispenseResult result = new DispenseResult();
+
+        assertSame(result, inventory.withdraw(700, result));
+        assertEquals(WithdrawalStatus.SUCCESS, result.getStatus());
+        assertArrayEquals(new int[]{0, 1, 1}, result.notes());
+
+        inventory.withdraw(250, result);
+        assertEquals(WithdrawalStatus.DENOMINATION_UNAVAILABLE, result.getStatus());
+        assertArrayEquals(new int[]{0, 0, 0}, result.notes());
+
+        inventory.withdraw(0, result);
+        assertEquals(WithdrawalStatus.AMOUNT_NOT_POSITIVE, result.getStatus());
+
+        inventory.withdraw(100_000, result);
+        assertEquals(WithdrawalStatus.INSUFFICIENT_FUNDS, result.getStatus());
+        assertArrayEquals(new int[]{10, 4, 1}, inventory.getCounts());
+    }
+
+    /**
+     * Tests that the convenience methods leave the caller's thread-local result untouched.
+     */
+    @Test
+    public void testConvenienceMethodsKeepThreadResult() throws Exception {
+        ATM atm = new ATM(new NoteInventory(new int[]{10, 5, 2}));
+        DispenseResult mine = DispenseResult.forCurrentThread();
+        atm.withdraw(700, mine);
+
+        atm.getInventory().withdraw(100);
+        atm.tryWithdraw(200);
+        atm.reserve(300);
+        atm.getHolds().reserve(100);
+
+        assertEquals(700, mine.getAmount());
+        assertArrayEquals(new int[]{0, 1, 1}, mine.notes());
+    }
+
+    /**
+     * Tests that snapshots taken while other threads withdraw are internally consistent and never change afterwards.
+     */
+    @Test
+    public void testSnapshotsAreConsistent() throws InterruptedException {
+        NoteInventory inventory = new NoteInventory(new int[]{20_000, 20_000, 20_000});
+        int writers = 4;
+        CountDownLatch done = new CountDownLatch(writers);
+        for (int t = 0; t < writers; t++) {
+            new Thread(() -> {
+                DispenseResult result = new DispenseResult();
+                for (int i = 0; i < 5_000; i++) {
+                    inventory.withdraw(100 * (1 + i % 9), result);
+                }
+                done.countDown();
+            }).start();
+        }
+
+        long lastVersion = -1;
+        List<InventorySnapshot> taken = new ArrayList<>();
+        while (done.getCount() > 0) {
+            InventorySnapshot snapshot = inventory.snapshot();
+            assertEquals(snapshot.getRegistry().totalValue(snapshot.getCounts()), snapshot.getTotalBalance());
+            assertTrue(snapshot.getVersion() >= lastVersion);
+            lastVersion = snapshot.getVersion();
+            if (taken.size() < 100) {
+                taken.add(snapshot);
+            }
+        }
+        done.await();
+        for (InventorySnapshot snapshot : taken) {
+            assertEquals(snapshot.getRegistry().totalValue(snapshot.getCounts()), snapshot.getTotalBalance());
+        }
+        assertEquals(inventory.getTotalBalance(), inventory.snapshot().getRegistry().totalValue(inventory.getCounts()));
+        assertEquals(writers * 5_000L, inventory.getVersion());
+    }
+
+    /**
+     * Tests that a batch gives the same results and final counts as withdrawing each amount in turn.
+     */
+    @Test
+    public void testBatchMatchesSequentialWithdrawals() {
+        long[] amounts = {700, -100, 250, 600, 5000, 800, 400, 300, 100, 100};
+        ATM batched = new ATM();
+        NoteInventory sequential = new ATM().getInventory();
+
+        WithdrawalResult[] results = batched.withdrawAll(amounts);
+
+        assertEquals(amounts.length, results.length);
+        for (int i = 0; i < amounts.length; i++) {
+            WithdrawalStatus expected;
+            int[] expectedNotes = new int[Denomination.values().length];
+            try {
+                expectedNotes = sequential.withdraw(amounts[i]);
+                expected = WithdrawalStatus.SUCCESS;
+            } catch (AmountNegativeException e) {
+                expected = WithdrawalStatus.AMOUNT_NOT_POSITIVE;
+            } catch (InsufficientFundsException e) {
+                expected = WithdrawalStatus.INSUFFICIENT_FUNDS;
+            } catch (DenominationUnavailableException e) {
+                expected = WithdrawalStatus.DENOMINATION_UNAVAILABLE;
+            }
+            assertEquals("amount " + amounts[i], expected, results[i].getStatus());
+            assertArrayEquals(expectedNotes, results[i].getDispensedNotes());
+        }
+        assertArrayEquals(sequential.getCounts(), batched.getInventory().getCounts());
+        assertEquals(1, batched.getInventory().getVersion());
+    }
+
+    /**
+     * Tests that batches keep committing, and conserve notes, while other threads withdraw single amounts as fast as
+     * they can.
+     */
+    @Test(timeout = 60_000)
+    public void testBatchProgressesAgainstSingleWithdrawals() throws InterruptedException {
+        NoteInventory inventory = new NoteInventory(new int[]{NOTES_PER_DENOMINATION, NOTES_PER_DENOMINATION, NOTES_PER_DENOMINATION});
+        int threads = 4;
+        AtomicLongArray dispensedTotals = new AtomicLongArray(Denomination.values().length);
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Thread> singles = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                DispenseResult result = new DispenseResult();
+                while (running.get()) {
+                    inventory.withdraw(100, result);
+                    for (int d = 0; d < result.notes().length; d++) {
+                        dispensedTotals.addAndGet(d, result.notes()[d]);
+                    }
+                }
+            });
+            thread.start();
+            singles.add(thread);
+        }
+
+        long[] amounts = new long[200];
+        for (int i = 0; i < amounts.length; i++) {
+            amounts[i] = AMOUNTS[i % AMOUNTS.length];
+        }
+        int successes = 0;
+        try {
+            for (int batch = 0; batch < 100; batch++) {
+                for (WithdrawalResult result : inventory.withdrawAll(amounts)) {
+                    int[] notes = result.getDispensedNotes();
+                    for (int d = 0; d < notes.length; d++) {
+                        dispensedTotals.addAndGet(d, notes[d]);
+                    }
+                    successes += result.getStatus() == WithdrawalStatus.SUCCESS ? 1 : 0;
+                }
+            }
+        } finally {
+            running.set(false);
+            for (Thread thread : singles) {
+                thread.join();
+            }
+        }
+
+        assertEquals(100 * amounts.length, successes);
+        int[] remaining = inventory.getCounts();
+        for (int d = 0; d < remaining.length; d++) {
+            assertEquals(NOTES_PER_DENOMINATION, remaining[d] + dispensedTotals.get(d));
+        }
+    }
+
+    /**
+     * Tests that no note is lost or created when withdrawals from 1 up to N threads contend on one inventory.
+     * Throughput per thread count is measured by {@code AtmContentionBenchmark}.
+     *
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    @Test
+    public void testContendedWithdrawalsConserveNotes() throws InterruptedException {
+        int maxThreads = Math.min(16, Math.max(4, Runtime.getRuntime().availableProcessors()));
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            NoteInventory inventory = new NoteInventory(new int[]{NOTES_PER_DENOMINATION, NOTES_PER_DENOMINATION, NOTES_PER_DENOMINATION});
+            AtomicLongArray dispensedTotals = new AtomicLongArray(Denomination.values().length);
+
+            runWithdrawals(threads, inventory, dispensedTotals);
+
+            int[] remaining = inventory.getCounts();
+            for (int i = 0; i < remaining.length; i++) {
+                assertEquals(NOTES_PER_DENOMINATION, remaining[i] + dispensedTotals.get(i));
+            }
+            assertEquals((long) threads * WITHDRAWALS_PER_THREAD, inventory.getVersion());
+        }
+    }
+
+    private static void runWithdrawals(int numberOfThreads, NoteInventory inventory, AtomicLongArray dispensedTotals)
+            throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(numberOfThreads);
+        List<Throwable> failures = new ArrayList<>();
+
+        for (int t = 0; t < numberOfThreads; t++) {
+            final int offset = t;
+            Thread thread = new Thread(() -> {
+                long[] local = new long[dispensedTotals.length()];
+                try {
+                    start.await();
+                    for (int i = 0; i < WITHDRAWALS_PER_THREAD; i++) {
+                        int[] dispensed = inventory.withdraw(AMOUNTS[(i + offset) % AMOUNTS.length]);
+                        for (int d = 0; d < dispensed.length; d++) {
+                            local[d] += dispensed[d];
+                        }
+                    }
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                } finally {
+                    for (int d = 0; d < local.length; d++) {
+                        dispensedTotals.addAndGet(d, local[d]);
+                    }
+                    done.countDown();
+                }
+            });
+            thread.start();
+        }
+        start.countDown();
+        done.await();
+        assertTrue("Withdrawals failed: " + failures, failures.isEmpty());
+    }
+}
@@ -0,0 +1,124 @@
+package org.example.test;
+
+import org.example.atm.DenominationRegistry;
+import org.example.atm.DispenseResult;
+import org.example.atm.NoteInventory;
+import org.example.atm.WithdrawalStatus;
+import org.example.planning.AtmForecast;
+import org.example.planning.NoteMove;
+import org.example.planning.RebalancingPlan;
+import org.example.planning.RebalancingPlanner;
+import org.example.planning.WithdrawalDemand;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The RebalancingPlannerTest class verifies the failure predictions of the rebalancing planner, that transfers stay
+ * within a region and that a plan for a large fleet conserves notes and respects the depot stock.
+ */
+public class RebalancingPlannerTest {
+
+    private static final DenominationRegistry STANDARD = DenominationRegistry.standard();
+
+    /**
+     * Tests that the predicted failures match what an inventory reports for the same withdrawals.
+     */
+    @Test
+    public void testPredictsInventoryOutcomes() throws Exception {
+        int[] counts = {2, 3, 1};
+        WithdrawalDemand demand = new WithdrawalDemand(new long[]{600}, new int[]{3});
+        RebalancingPlan plan = new RebalancingPlanner(STANDARD).plan(List.of(new AtmForecast(0, 0, counts, demand)), new long[3]);
+
+        NoteInventory inventory = new NoteInventory(counts);
+        int unavailable = 0;
+        int insufficient = 0;
+        for (int i = 0; i < 3; i++) {
+            WithdrawalStatus status = inventory.withdraw(600, new DispenseResult()).getStatus();
+            unavailable += status == WithdrawalStatus.DENOMINATION_UNAVAILABLE ? 1 : 0;
+            insufficient += status == WithdrawalStatus.INSUFFICIENT_FUNDS ? 1 : 0;
+        }
+        assertEquals(insufficient, plan.getFailuresBefore(WithdrawalStatus.INSUFFICIENT_FUNDS));
+        assertEquals(unavailable, plan.getFailuresBefore(WithdrawalStatus.DENOMINATION_UNAVAILABLE));
+        assertTrue(plan.getMoves().isEmpty());
+    }
+
+    /**
+     * Tests that a failing ATM gets notes from a neighbour with surplus but never from another region.
+     */
+    @Test
+    public void testTransfersStayInRegion() {
+        WithdrawalDemand hundreds = new WithdrawalDemand(new long[]{100, 300}, new int[]{50, 50});
+        List<AtmForecast> forecasts = List.of(
+                new AtmForecast(10, 1, new int[]{2_000, 0, 0}, hundreds),
+                new AtmForecast(11, 1, new int[]{0, 0, 100}, hundreds),
+                new AtmForecast(12, 2, new int[]{0, 0, 100}, hundreds));
+
+        RebalancingPlan plan = new RebalancingPlanner(STANDARD).plan(forecasts, new long[3]);
+
+        assertEquals(1, plan.getMoves().size());
+        NoteMove move = plan.getMoves().get(0);
+        assertEquals(10, move.getFromAtmId());
+        assertEquals(11, move.getToAtmId());
+        assertEquals(0, move.getDenominationIndex());
+        assertArrayEquals(new int[]{0, 0, 100}, plan.getPlannedCounts(2));
+        assertEquals(200, plan.getFailuresBefore(WithdrawalStatus.DENOMINATION_UNAVAILABLE));
+        assertTrue(plan.getFailuresAfter(WithdrawalStatus.DENOMINATION_UNAVAILABLE) < 200);
+    }
+
+    /**
+     * Tests a fleet of tens of thousands of ATMs with a limited depot.
+     */
+    @Test
+    public void testLargeFleet() {
+        SplittableRandom random = new SplittableRandom(7);
+        long[] amounts = {100, 200, 300, 500, 700, 1000, 2000, 5000};
+        List<AtmForecast> forecasts = new ArrayList<>();
+        for (int id = 0; id < 20_000; id++) {
+            int[] counts = {random.nextInt(1_000), random.nextInt(600), random.nextInt(400)};
+            int[] expected = new int[amounts.length];
+            for (int a = 0; a < amounts.length; a++) {
+                expected[a] = random.nextInt(40);
+            }
+            forecasts.add(new AtmForecast(id, id % 50, counts, new WithdrawalDemand(amounts, expected)));
+        }
+        long[] depot = {2_000_000, 1_000_000, 1_000_000};
+
+        RebalancingPlan plan = new RebalancingPlanner(STANDARD).plan(forecasts, depot);
+        System.out.print(plan.format());
+
+        long[] refilled = new long[3];
+        long[] before = new long[3];
+        long[] after = new long[3];
+        for (NoteMove move : plan.getMoves()) {
+            assertTrue(move.getNotes() > 0);
+            if (move.isRefill()) {
+                refilled[move.getDenominationIndex()] += move.getNotes();
+            } else {
+                assertEquals(move.getFromAtmId() % 50, move.getToAtmId() % 50);
+            }
+        }
+        for (int i = 0; i < forecasts.size(); i++) {
+            int[] planned = plan.getPlannedCounts(i);
+            for (int d = 0; d < 3; d++) {
+                assertTrue(planned[d] >= 0);
+                before[d] += forecasts.get(i).getCounts()[d];
+                after[d] += planned[d];
+            }
+        }
+        for (int d = 0; d < 3; d++) {
+            assertTrue(refilled[d] <= depot[d]);
+        }
+        assertArrayEquals(after, new long[]{before[0] + refilled[0], before[1] + refilled[1], before[2] + refilled[2]});
+        long failuresBefore = plan.getFailuresBefore(WithdrawalStatus.INSUFFICIENT_FUNDS) + plan.getFailuresBefore(WithdrawalStatus.DENOMINATION_UNAVAILABLE);
+        long failuresAfter = plan.getFailuresAfter(WithdrawalStatus.INSUFFICIENT_FUNDS) + plan.getFailuresAfter(WithdrawalStatus.DENOMINATION_UNAVAILABLE);
+        assertTrue(Arrays.toString(new long[]{failuresBefore, failuresAfter}), failuresAfter < failuresBefore / 2);
+    }
+}
@@ -0,0 +1,188 @@
+package org.example.test;
+
+import org.example.atm.DispenseResult;
+import org.example.atm.NoteInventory;
+import org.example.replication.ReplicationBackup;
+import org.example.replication.ReplicationMode;
+import org.example.replication.ReplicationPrimary;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The ReplicationTest class verifies that backups follow a primary inventory over a loopback socket, that synchronous
+ * replication acknowledges each withdrawal only once the backups have it, that a failing listener or a lost version
+ * does not stop replication, and that a promoted backup continues with the exact counts.
+ */
+public class ReplicationTest {
+
+    private static final String HOST = "127.0.0.1";
+
+    /**
+     * Tests concurrent withdrawals and deposits replicated asynchronously to two backups, followed by a failover.
+     */
+    @Test
+    public void testAsyncReplicationAndPromotion() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{100_000, 100_000, 100_000});
+        ReplicationPrimary primary = ReplicationPrimary.start(inventory, 0, ReplicationMode.ASYNC);
+        ReplicationBackup first = ReplicationBackup.connect(HOST, primary.getPort());
+        ReplicationBackup second = ReplicationBackup.connect(HOST, primary.getPort());
+
+        Thread[] workers = new Thread[4];
+        for (int t = 0; t < workers.length; t++) {
+            final int offset = t;
+            workers[t] = new Thread(() -> {
+                DispenseResult result = new DispenseResult();
+                for (int i = 0; i < 5_000; i++) {
+                    inventory.withdraw(100 * (1 + (i + offset) % 9), result);
+                    if (i % 50 == 0) {
+                        inventory.deposit(new int[]{3, 2, 1});
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long version = inventory.getVersion();
+        assertTrue(primary.awaitReplicated(version, 10, TimeUnit.SECONDS));
+        assertEquals(0, primary.getReplicationLag());
+        assertEquals(version, first.getVersion());
+        assertArrayEquals(inventory.getCounts(), first.getCounts());
+        assertArrayEquals(inventory.getCounts(), second.getCounts());
+
+        primary.close();
+        second.close();
+        NoteInventory promoted = first.promote();
+        assertEquals(version, promoted.getVersion());
+        assertArrayEquals(inventory.getCounts(), promoted.getCounts());
+        assertEquals(inventory.getTotalBalance(), promoted.getTotalBalance());
+        assertTrue(promoted.withdraw(800, new DispenseResult()).isSuccessful());
+    }
+
+    /**
+     * Tests that in synchronous mode every withdrawal is on the backup by the time it returns.
+     */
+    @Test
+    public void testSyncReplicationAcknowledgesEachWithdrawal() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{1_000, 1_000, 1_000});
+        try (ReplicationPrimary primary = ReplicationPrimary.start(inventory, 0, ReplicationMode.SYNC)) {
+            DispenseResult result = new DispenseResult();
+            try (ReplicationBackup backup = ReplicationBackup.connect(HOST, primary.getPort())) {
+                awaitBackups(primary, 1);
+                for (int i = 0; i < 500; i++) {
+                    assertTrue(inventory.withdraw(800, result).isSuccessful());
+                    assertEquals(inventory.getVersion(), backup.getVersion());
+                }
+                assertArrayEquals(inventory.getCounts(), backup.getCounts());
+            }
+            awaitBackups(primary, 0);
+            assertTrue(inventory.withdraw(800, result).isSuccessful());
+        }
+    }
+
+    /**
+     * Tests that a backup joining late starts from the current counts, and that a single withdrawal can wait for its
+     * own change on an asynchronous primary.
+     */
+    @Test
+    public void testLateBackupAndPerWithdrawalAcknowledgment() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{50, 50, 50});
+        try (ReplicationPrimary primary = ReplicationPrimary.start(inventory, 0, ReplicationMode.ASYNC)) {
+            DispenseResult result = new DispenseResult();
+            for (int i = 0; i < 20; i++) {
+                inventory.withdraw(700, result);
+            }
+            try (ReplicationBackup backup = ReplicationBackup.connect(HOST, primary.getPort())) {
+                assertEquals(20, backup.getVersion());
+                assertArrayEquals(inventory.getCounts(), backup.getCounts());
+
+                inventory.withdraw(300, result);
+                assertTrue(primary.awaitLastCommit(10, TimeUnit.SECONDS));
+                assertTrue(backup.getVersion() >= 21);
+                assertArrayEquals(inventory.getCounts(), backup.getCounts());
+            }
+        }
+    }
+
+    /**
+     * Tests that a backup notices a failed primary and can still be promoted.
+     */
+    @Test
+    public void testBackupDetectsLostPrimary() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{10, 10, 10});
+        ReplicationPrimary primary = ReplicationPrimary.start(inventory, 0, ReplicationMode.SYNC);
+        ReplicationBackup backup = ReplicationBackup.connect(HOST, primary.getPort());
+        awaitBackups(primary, 1);
+        inventory.withdraw(500, new DispenseResult());
+        primary.close();
+
+        assertFalse(backup.awaitVersion(Long.MAX_VALUE, 10, TimeUnit.SECONDS));
+        assertFalse(backup.isConnected());
+        assertArrayEquals(new int[]{10, 10, 9}, backup.promote().getCounts());
+    }
+
+    /**
+     * Tests that a listener that throws before the primary is called does not keep changes from the backups.
+     */
+    @Test
+    public void testThrowingListenerDoesNotStopReplication() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{1_000, 1_000, 1_000});
+        inventory.addListener((version, delta) -> {
+            throw new IllegalStateException("Listener failed on version " + version);
+        });
+        try (ReplicationPrimary primary = ReplicationPrimary.start(inventory, 0, ReplicationMode.SYNC);
+             ReplicationBackup backup = ReplicationBackup.connect(HOST, primary.getPort())) {
+            awaitBackups(primary, 1);
+            DispenseResult result = new DispenseResult();
+            for (int i = 0; i < 100; i++) {
+                assertTrue(inventory.withdraw(800, result).isSuccessful());
+                assertEquals(inventory.getVersion(), backup.getVersion());
+            }
+            assertArrayEquals(inventory.getCounts(), backup.getCounts());
+            assertEquals(1, primary.getBackupCount());
+        }
+    }
+
+    /**
+     * Tests that a committed version the primary never hears of is covered by resynchronizing the backups.
+     */
+    @Test
+    public void testMissingVersionIsResynchronized() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{1_000, 1_000, 1_000});
+        try (ReplicationPrimary primary = ReplicationPrimary.start(inventory, 0, ReplicationMode.ASYNC);
+             ReplicationBackup backup = ReplicationBackup.connect(HOST, primary.getPort())) {
+            DispenseResult result = new DispenseResult();
+            inventory.withdraw(700, result);
+            inventory.removeListener(primary);
+            inventory.withdraw(300, result);
+            inventory.addListener(primary);
+            for (int i = 0; i < 10; i++) {
+                inventory.withdraw(800, result);
+            }
+
+            assertTrue(primary.awaitReplicated(inventory.getVersion(), 10, TimeUnit.SECONDS));
+            assertEquals(inventory.getVersion(), backup.getVersion());
+            assertArrayEquals(inventory.getCounts(), backup.getCounts());
+
+            inventory.withdraw(500, result);
+            assertTrue(primary.awaitLastCommit(10, TimeUnit.SECONDS));
+            assertArrayEquals(inventory.getCounts(), backup.getCounts());
+        }
+    }
+
+    private static void awaitBackups(ReplicationPrimary primary, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (primary.getBackupCount() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, primary.getBackupCount());
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.test;
+
+import org.example.atm.ATM;
+import org.example.atm.DenominationRegistry;
+import org.example.atm.NoteInventory;
+import org.example.atm.WithdrawalStatus;
+import org.example.history.TransactionLog;
+import org.example.history.TransactionSummary;
+import org.example.server.AtmServer;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The TransactionLogTest class verifies that the memory-mapped transaction history keeps every record across
+ * segments and restarts, that time-range and per-ATM queries return exactly the matching records, and that every
+ * withdrawal path of an ATM reaches the log.
+ */
+public class TransactionLogTest {
+
+    private static final DenominationRegistry STANDARD = DenominationRegistry.standard();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests concurrent appends across many small segments, per-ATM totals and recovery after reopening.
+     */
+    @Test
+    public void testConcurrentAppendsSurviveReopen() throws Exception {
+        Path directory = folder.newFolder("history").toPath();
+        int threads = 4;
+        int perThread = 2_500;
+        try (TransactionLog log = TransactionLog.open(directory, STANDARD, 64)) {
+            Thread[] writers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                final int atmId = t;
+                writers[t] = new Thread(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        boolean success = i % 5 != 0;
+                        log.append(atmId, 700, success ? WithdrawalStatus.SUCCESS : WithdrawalStatus.INSUFFICIENT_FUNDS,
+                                success ? new int[]{0, 1, 1} : new int[3]);
+                    }
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            assertSummaries(log, threads, perThread);
+        }
+
+        try (TransactionLog reopened = TransactionLog.open(directory, STANDARD)) {
+            assertEquals(threads * perThread, reopened.size());
+            assertSummaries(reopened, threads, perThread);
+        }
+    }
+
+    /**
+     * Tests that a time-range scan returns exactly the records appended inside the range.
+     */
+    @Test
+    public void testTimeRangeScan() throws Exception {
+        try (TransactionLog log = TransactionLog.open(folder.newFolder("range").toPath(), STANDARD, 1 << 14)) {
+            for (int i = 0; i < 10_000; i++) {
+                log.append(i % 3, 100, WithdrawalStatus.SUCCESS, new int[]{1, 0, 0});
+            }
+            long boundary = System.currentTimeMillis();
+            Thread.sleep(5);
+            for (int i = 0; i < 3_000; i++) {
+                log.append(i % 3, 200, WithdrawalStatus.SUCCESS, new int[]{0, 1, 0});
+            }
+
+            AtomicLong value = new AtomicLong();
+            assertEquals(3_000, log.scan(boundary + 1, Long.MAX_VALUE, record -> value.addAndGet(record.getAmount())));
+            assertEquals(600_000, value.get());
+            assertEquals(10_000, log.scan(0, boundary + 1, record -> { }));
+            assertEquals(1_000, log.summarize(boundary + 1, Long.MAX_VALUE, 2).getCount(WithdrawalStatus.SUCCESS));
+        }
+    }
+
+    /**
+     * Tests recording the withdrawals of an ATM through its event sink.
+     */
+    @Test
+    public void testRecordsThroughEventSink() throws Exception {
+        try (TransactionLog log = TransactionLog.open(folder.newFolder("sink").toPath(), STANDARD)) {
+            ATM atm = new ATM(new NoteInventory(new int[]{10, 5, 2}), log.sink(7));
+            atm.withdraw(700);
+            atm.withdraw(250);
+
+            TransactionSummary summary = log.summarize(0, Long.MAX_VALUE, 7);
+            assertEquals(1, summary.getCount(WithdrawalStatus.SUCCESS));
+            assertEquals(1, summary.getCount(WithdrawalStatus.DENOMINATION_UNAVAILABLE));
+            assertEquals(700, summary.getDispensedValue());
+            assertEquals(1, summary.getNotes(STANDARD.indexOf(200)));
+            assertEquals(1, summary.getNotes(STANDARD.indexOf(500)));
+        }
+    }
+
+    /**
+     * Tests that result-object, batch and asynchronous withdrawals are recorded like printed ones.
+     */
+    @Test
+    public void testRecordsEveryWithdrawalPath() throws Exception {
+        try (TransactionLog log = TransactionLog.open(folder.newFolder("paths").toPath(), STANDARD)) {
+            ATM atm = new ATM(new NoteInventory(new int[]{10, 5, 2}), log.sink(3));
+            atm.tryWithdraw(700);
+            atm.withdrawAll(new long[]{300, 250});
+            assertEquals(WithdrawalStatus.SUCCESS, atm.withdrawAsync(500).get(10, TimeUnit.SECONDS).getStatus());
+            atm.closePipeline();
+
+            TransactionSummary summary = log.summarize(0, Long.MAX_VALUE, 3);
+            assertEquals(4, summary.getWithdrawals());
+            assertEquals(3, summary.getCount(WithdrawalStatus.SUCCESS));
+            assertEquals(1, summary.getCount(WithdrawalStatus.DENOMINATION_UNAVAILABLE));
+            assertEquals(1_500, summary.getDispensedValue());
+        }
+    }
+
+    /**
+     * Tests that withdrawals made over HTTP are recorded.
+     */
+    @Test
+    public void testRecordsServerWithdrawals() throws Exception {
+        try (TransactionLog log = TransactionLog.open(folder.newFolder("server").toPath(), STANDARD)) {
+            ATM atm = new ATM(new NoteInventory(new int[]{10, 5, 2}), log.sink(5));
+            AtmServer server = new AtmServer(atm, 0, 16, 16, 5_000);
+            server.start();
+            try {
+                HttpClient client = HttpClient.newHttpClient();
+                for (String amount : new String[]{"700", "250", "400"}) {
+                    HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/withdraw?amount=" + amount))
+                            .POST(HttpRequest.BodyPublishers.noBody())
+                            .build();
+                    client.send(request, HttpResponse.BodyHandlers.ofString());
+                }
+            } finally {
+                server.stop(0);
+            }
+
+            TransactionSummary summary = log.summarize(0, Long.MAX_VALUE, 5);
+            assertEquals(2, summary.getCount(WithdrawalStatus.SUCCESS));
+            assertEquals(1, summary.getCount(WithdrawalStatus.DENOMINATION_UNAVAILABLE));
+            assertEquals(1_100, summary.getDispensedValue());
+        }
+    }
+
+    /**
+     * Tests that a history cannot be reopened with different denominations.
+     */
+    @Test(expected = IOException.class)
+    public void testRejectsOtherRegistry() throws Exception {
+        Path directory = folder.newFolder("registry").toPath();
+        TransactionLog.open(directory, STANDARD).close();
+        TransactionLog.open(directory, DenominationRegistry.of("INR", 100, 200, 500, 2000));
+    }
+
+    private static void assertSummaries(TransactionLog log, int threads, int perThread) {
+        TransactionSummary[] byAtm = log.summarizeByAtm(0, Long.MAX_VALUE, threads);
+        for (int atmId = 0; atmId < threads; atmId++) {
+            TransactionSummary summary = log.summarize(0, Long.MAX_VALUE, atmId);
+            assertEquals(perThread, summary.getWithdrawals());
+            assertEquals(perThread / 5, summary.getCount(WithdrawalStatus.INSUFFICIENT_FUNDS));
+            assertEquals(700L * (perThread - perThread / 5), summary.getDispensedValue());
+            assertEquals(perThread - perThread / 5, byAtm[atmId].getNotes(2));
+        }
+        assertEquals((long) threads * perThread, log.summarize(0, Long.MAX_VALUE, TransactionLog.ANY_ATM).getWithdrawals());
+    }
+}
@@ -0,0 +1,252 @@
+package org.example.test;
+
+import org.example.atm.ATM;
+import org.example.atm.DispenseResult;
+import org.example.atm.InventoryLog;
+import org.example.atm.NoteInventory;
+import org.example.atm.WithdrawalPipeline;
+import org.example.atm.WithdrawalStatus;
+import org.example.metrics.AtmMetrics;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * The WithdrawalPipelineTest class verifies that the single-writer pipeline applies withdrawals in submission order,
+ * accounts for every note when many threads submit at once, and completes every accepted request even when a batch
+ * fails or the pipeline is closed under load.
+ */
+public class WithdrawalPipelineTest {
+
+    private static final int[] AMOUNTS = {700, 500, 300, 1000, 100, 250, 2000, 800, 400, 600, 900, 200};
+
+    /**
+     * Tests that the withdrawals of one caller give exactly the results of applying them one by one in order.
+     */
+    @Test
+    public void testAppliesInSubmissionOrder() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{10, 5, 2});
+        NoteInventory sequential = new NoteInventory(new int[]{10, 5, 2});
+        List<CompletableFuture<DispenseResult>> futures = new ArrayList<>();
+        try (WithdrawalPipeline pipeline = WithdrawalPipeline.start(inventory, new AtmMetrics(inventory))) {
+            for (int amount : AMOUNTS) {
+                futures.add(pipeline.submit(amount));
+            }
+        }
+
+        DispenseResult expected = new DispenseResult();
+        for (int i = 0; i < AMOUNTS.length; i++) {
+            DispenseResult actual = futures.get(i).getNow(null);
+            sequential.withdraw(AMOUNTS[i], expected);
+            assertEquals(expected.getStatus(), actual.getStatus());
+            assertArrayEquals(expected.notes(), actual.notes());
+        }
+        assertArrayEquals(sequential.getCounts(), inventory.getCounts());
+    }
+
+    /**
+     * Tests many threads withdrawing asynchronously from one ATM.
+     */
+    @Test
+    public void testConcurrentSubmitters() throws Exception {
+        int threads = 8;
+        int perThread = 5_000;
+        ATM atm = new ATM(new NoteInventory(new int[]{100_000, 100_000, 100_000}));
+        long initialBalance = atm.getSnapshot().getTotalBalance();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> dispensed = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            dispensed.add(executor.submit(() -> {
+                List<CompletableFuture<DispenseResult>> futures = new ArrayList<>();
+                for (int i = 0; i < perThread; i++) {
+                    futures.add(atm.withdrawAsync(AMOUNTS[i % AMOUNTS.length]));
+                }
+                long total = 0;
+                for (CompletableFuture<DispenseResult> future : futures) {
+                    DispenseResult result = future.get();
+                    if (result.isSuccessful()) {
+                        total += result.getAmount();
+                    }
+                }
+                return total;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> future : dispensed) {
+            total += future.get();
+        }
+        executor.shutdown();
+        atm.closePipeline();
+
+        assertEquals(initialBalance - total, atm.getSnapshot().getTotalBalance());
+        assertEquals(threads * perThread, atm.getMetrics().getWithdrawals());
+        assertTrue(atm.getMetrics().getOutcomeCount(WithdrawalStatus.DENOMINATION_UNAVAILABLE) >= threads * perThread / AMOUNTS.length);
+    }
+
+    /**
+     * Tests that closing waits for queued withdrawals and that a closed pipeline rejects new ones.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testCloseDrainsQueue() {
+        NoteInventory inventory = new NoteInventory(new int[]{1_000, 1_000, 1_000});
+        WithdrawalPipeline pipeline = WithdrawalPipeline.start(inventory, new AtmMetrics(inventory));
+        List<CompletableFuture<DispenseResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            futures.add(pipeline.submit(100));
+        }
+        pipeline.close();
+        for (CompletableFuture<DispenseResult> future : futures) {
+            assertTrue(future.isDone());
+        }
+        assertEquals(0, inventory.getCount(0));
+        pipeline.submit(100);
+    }
+
+    /**
+     * Tests that a failing batch completes its futures exceptionally and that the writer goes on with later batches.
+     */
+    @Test
+    public void testFailedBatchDoesNotStopWriter() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{10, 10, 10});
+        long initialBalance = inventory.getTotalBalance();
+        FailingLog log = new FailingLog();
+        inventory.setLog(log);
+        try (WithdrawalPipeline pipeline = WithdrawalPipeline.start(inventory, new AtmMetrics(inventory))) {
+            log.failing = true;
+            CompletableFuture<DispenseResult> failed = pipeline.submit(700);
+            try {
+                failed.get(10, TimeUnit.SECONDS);
+                fail("The withdrawal should have failed");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof UncheckedIOException);
+            }
+            assertEquals(initialBalance, inventory.getTotalBalance());
+
+            log.failing = false;
+            DispenseResult result = pipeline.submit(700).get(10, TimeUnit.SECONDS);
+            assertTrue(result.isSuccessful());
+            assertEquals(initialBalance - 700, inventory.getTotalBalance());
+        }
+    }
+
+    /**
+     * Tests that a withdrawal racing with close() is either rejected or completed, never left waiting.
+     */
+    @Test
+    public void testCloseRaceLeavesNoPendingFuture() throws Exception {
+        int threads = 4;
+        for (int round = 0; round < 50; round++) {
+            NoteInventory inventory = new NoteInventory(new int[]{100_000, 100_000, 100_000});
+            WithdrawalPipeline pipeline = WithdrawalPipeline.start(inventory, new AtmMetrics(inventory));
+            List<List<CompletableFuture<DispenseResult>>> submitted = new ArrayList<>();
+            CountDownLatch started = new CountDownLatch(threads);
+            List<Thread> submitters = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                List<CompletableFuture<DispenseResult>> futures = new ArrayList<>();
+                submitted.add(futures);
+                Thread submitter = new Thread(() -> {
+                    started.countDown();
+                    try {
+                        while (true) {
+                            futures.add(pipeline.submit(100));
+                        }
+                    } catch (IllegalStateException e) {
+                        // The pipeline was closed; stop submitting.
+                    }
+                });
+                submitters.add(submitter);
+                submitter.start();
+            }
+            started.await();
+            pipeline.close();
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+            for (List<CompletableFuture<DispenseResult>> futures : submitted) {
+                for (CompletableFuture<DispenseResult> future : futures) {
+                    assertTrue(future.isDone());
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that an error thrown while applying a batch fails the futures of that batch and closes the pipeline.
+     */
+    @Test
+    public void testErrorFailsDequeuedBatch() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{10, 10, 10});
+        inventory.setLog(new InventoryLog() {
+            @Override
+            public void append(long version, int[] delta) {
+                throw new AssertionError("Journal corrupted");
+            }
+
+            @Override
+            public void awaitDurable(long version) {
+            }
+        });
+        WithdrawalPipeline pipeline = WithdrawalPipeline.start(inventory, new AtmMetrics(inventory));
+        CompletableFuture<DispenseResult> failed = pipeline.submit(700);
+        try {
+            failed.get(10, TimeUnit.SECONDS);
+            fail("The withdrawal should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+        pipeline.close();
+        assertTrue(pipeline.isClosed());
+    }
+
+    /**
+     * Tests that closing the pipeline from its own writer thread neither deadlocks nor strands queued withdrawals.
+     */
+    @Test
+    public void testCloseFromWriterThread() throws Exception {
+        NoteInventory inventory = new NoteInventory(new int[]{10, 10, 10});
+        AtomicReference<WithdrawalPipeline> holder = new AtomicReference<>();
+        WithdrawalPipeline pipeline = WithdrawalPipeline.start(inventory, new AtmMetrics(inventory),
+                (denominations, amount, status, notes) -> holder.get().close());
+        holder.set(pipeline);
+        DispenseResult result = pipeline.submit(700).get(10, TimeUnit.SECONDS);
+        assertTrue(result.isSuccessful());
+        assertTrue(pipeline.isClosed());
+        pipeline.close();
+    }
+
+    /**
+     * An inventory log that fails every append while {@code failing} is set.
+     */
+    private static final class FailingLog implements InventoryLog {
+
+        private volatile boolean failing;
+
+        @Override
+        public void append(long version, int[] delta) throws IOException {
+            if (failing) {
+                throw new IOException("Disk full");
+            }
+        }
+
+        @Override
+        public void awaitDurable(long version) {
+        }
+    }
+}
@@ -4,6 +4,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.example.atm.ATM;
 import org.example.atm.Denomination;
+import org.example.atm.InventorySnapshot;
 import org.example.atm.Withdrawal;
 import org.example.constant.ProjectConstants;
 import org.example.exception.AmountNegativeException;
@@ -116,10 +117,14 @@ public class WithdrawalTest {
         final int[] amounts = {500, 700, 300};
 
         ATM atm = new ATM();
-        int initialTotalBalance = calculateTotalBalance(atm.getDenominations());
+        InventorySnapshot initial = atm.getSnapshot();
+        long initialTotalBalance = initial.getTotalBalance();
         CountDownLatch latch = getCountDownLatch(numberOfThreads, amounts, atm);
         latch.await(); // Wait for all threads to finish
-        int remainingTotalBalance = calculateTotalBalance(atm.getDenominations());
+        InventorySnapshot remaining = atm.getSnapshot();
+        long remainingTotalBalance = remaining.getTotalBalance();
+        assertEquals(calculateTotalBalance(atm.getDenominations()), remainingTotalBalance);
+        assertEquals(initial.getVersion() + amounts.length, remaining.getVersion());
         // Assert the final state of the ATM after concurrent withdrawals
         assertEquals(initialTotalBalance - Arrays.stream(amounts).sum(), remainingTotalBalance);
     }
@@ -146,7 +151,7 @@ public class WithdrawalTest {
             final int amountPerThread = amounts[i];
             Thread thread = new Thread(() -> {
                 try {
-                    Withdrawal withdrawal = new Withdrawal(amountPerThread, atm.getDenominations());
+                    Withdrawal withdrawal = new Withdrawal(amountPerThread, atm.getInventory());
                     withdrawal.execute();
                 } catch (DenominationUnavailableException | InsufficientFundsException | AmountNegativeException e) {
                     logger.error("Error occurred during withdrawal: " + e.getMessage());
@@ -0,0 +1,118 @@
+package org.example.test;
+
+import org.example.atm.AtmFleet;
+import org.example.atm.WithdrawalStatus;
+import org.example.load.AmountDistribution;
+import org.example.load.SyntheticWorkload;
+import org.example.load.TraceReader;
+import org.example.load.WorkloadDriver;
+import org.example.load.WorkloadReport;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The WorkloadDriverTest class verifies trace parsing across split boundaries and that both workload modes account
+ * for every withdrawal.
+ */
+public class WorkloadDriverTest {
+
+    private static final int[] COUNTS = {100_000, 100_000, 100_000};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that comments, blank lines, CRLF line ends and both line forms are parsed, and that the parts of a split
+     * trace together hold every line exactly once.
+     */
+    @Test
+    public void testSplitTraceReadsEveryLine() throws Exception {
+        Path trace = folder.getRoot().toPath().resolve("trace.csv");
+        long expectedSum = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(trace, StandardCharsets.US_ASCII)) {
+            out.write("# atm,amount\n\n");
+            for (int i = 0; i < 10_000; i++) {
+                int amount = 100 * (1 + i % 20);
+                expectedSum += amount;
+                out.write(i % 2 == 0 ? (i % 7) + "," + amount + "\r\n" : amount + "\n");
+            }
+        }
+
+        AtomicLong lines = new AtomicLong();
+        AtomicLong sum = new AtomicLong();
+        long[] bounds = TraceReader.split(trace, 7);
+        for (int part = 0; part < 7; part++) {
+            lines.addAndGet(TraceReader.read(trace, bounds[part], bounds[part + 1], (atmId, amount) -> sum.addAndGet(amount)));
+        }
+        assertEquals(10_000, lines.get());
+        assertEquals(expectedSum, sum.get());
+    }
+
+    /**
+     * Tests that a malformed line is reported.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsMalformedLine() throws Exception {
+        Path trace = folder.getRoot().toPath().resolve("bad.csv");
+        Files.writeString(trace, "100\n20x0\n");
+        TraceReader.read(trace, (atmId, amount) -> { });
+    }
+
+    /**
+     * Tests that replaying a trace withdraws exactly the successful amounts from the fleet.
+     */
+    @Test
+    public void testReplayAccountsForEveryWithdrawal() throws Exception {
+        Path trace = folder.getRoot().toPath().resolve("replay.csv");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5_000; i++) {
+            text.append(i % 4).append(',').append(i % 50 == 0 ? 250 : 800).append('\n');
+        }
+        Files.writeString(trace, text);
+        AtmFleet fleet = WorkloadDriver.newFleet(4, COUNTS);
+        long before = totalBalance(fleet);
+
+        WorkloadReport report = new WorkloadDriver(fleet, COUNTS, 0).replay(trace, 4);
+
+        assertEquals(5_000, report.getOperations());
+        assertEquals(100, report.getCount(WithdrawalStatus.DENOMINATION_UNAVAILABLE));
+        assertEquals(before - 800L * report.getCount(WithdrawalStatus.SUCCESS), totalBalance(fleet));
+        assertTrue(report.format().contains("DenominationUnavailableException=100"));
+    }
+
+    /**
+     * Tests a paced synthetic workload over several threads and ATMs, topping ATMs up as they drain.
+     */
+    @Test
+    public void testSyntheticWorkload() {
+        int[] small = {50, 50, 50};
+        AtmFleet fleet = WorkloadDriver.newFleet(8, small);
+        WorkloadDriver driver = new WorkloadDriver(fleet, small, 20_000);
+        AmountDistribution amounts = AmountDistribution.parse("100:1,700:2,1500:1");
+
+        WorkloadReport report = driver.run(new SyntheticWorkload(20_000, 4, 200_000, amounts, 42));
+
+        assertEquals(20_000, report.getOperations());
+        assertEquals(20_000, report.getCount(WithdrawalStatus.SUCCESS));
+        assertTrue(report.getThroughput() > 0);
+        assertEquals(750.0, amounts.getMean(), 1e-9);
+    }
+
+    private static long totalBalance(AtmFleet fleet) {
+        long total = 0;
+        for (int id = 0; id < fleet.size(); id++) {
+            total += fleet.get(id).getInventory().getTotalBalance();
+        }
+        return total;
+    }
+}